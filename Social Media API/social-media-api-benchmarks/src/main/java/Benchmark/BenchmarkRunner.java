@@ -0,0 +1,25 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: BenchmarkRunner.java
+/* FILE DESCRIPTION: Main class of benchmarks.jar. Runs JMH with the usual command line options
+ * (e.g. a benchmark name regex, -f, -wi, -i) and always adds the GC profiler, so every result
+ * reports allocation rate (gc.alloc.rate.norm, bytes per operation) next to throughput.
+*/
+
+package Benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception{
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        new Runner(options).run();
+    }
+}
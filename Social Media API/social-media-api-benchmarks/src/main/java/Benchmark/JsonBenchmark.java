@@ -0,0 +1,70 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: JsonBenchmark.java
+/* FILE DESCRIPTION: JMH benchmark of serializing Message lists of 1, 100 and 10,000 items with the shared JsonCodec,
+ * the way list endpoints write responses, plus reading the same JSON back the way the batch endpoint reads requests.
+ * The output buffer is reused so only the codec's own allocation is measured.
+*/
+
+package Benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Model.Message;
+import Utility.JsonCodec;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    @Param({ "1", "100", "10000" })
+    private int size;
+
+    private List<Message> messages;
+    private byte[] json;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException{
+        messages = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            messages.add(new Message(i + 1, 1 + (i % 100), "message number " + i + " with some #text", 1_700_000_000L + i));
+        }
+
+        out = new ByteArrayOutputStream(size * 128);
+        JsonCodec.writeMessages(out, messages);
+        json = out.toByteArray();
+    }
+
+    @Benchmark
+    public int writeMessages() throws IOException{
+        out.reset();
+        JsonCodec.writeMessages(out, messages);
+        return out.size();
+    }
+
+    @Benchmark
+    public List<Message> readMessages() throws IOException{
+        return JsonCodec.readMessages(new ByteArrayInputStream(json));
+    }
+}
@@ -0,0 +1,96 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: MessageDaoBenchmark.java
+/* FILE DESCRIPTION: JMH benchmark of MessageDaoImpl insert, select, update and delete against a scratch SQLite file.
+ * The table is seeded with SEED_MESSAGES rows in WAL mode like production; MessageDaoImpl is used directly,
+ * without the cache or timing decorators, so the numbers are the JDBC and SQLite cost alone.
+*/
+
+package Benchmark;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.Message.MessageDaoImpl;
+import Model.Message;
+import Utility.ConnectionUtil;
+import Utility.SchemaManager;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageDaoBenchmark {
+    // Rows in the table before measuring
+    private static final int SEED_MESSAGES = 10_000;
+
+    private File dbFile;
+    private MessageDaoImpl messageDao;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception{
+        dbFile = File.createTempFile("dao-bench", ".db");
+        System.setProperty("db.path", dbFile.getAbsolutePath());
+        SchemaManager.migrate();
+
+        messageDao = new MessageDaoImpl();
+        List<Message> seed = new ArrayList<>(SEED_MESSAGES);
+        for(int i = 0; i < SEED_MESSAGES; i++){
+            seed.add(new Message(1 + (i % 100), "seed message " + i, i));
+        }
+        messageDao.insertMessages(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        ConnectionUtil.shutdown();
+        dbFile.delete();
+        new File(dbFile.getAbsolutePath() + "-wal").delete();
+        new File(dbFile.getAbsolutePath() + "-shm").delete();
+    }
+
+    @Benchmark
+    public Message insert(){
+        return messageDao.insertMessage(new Message(1, "benchmark message", System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    public Message selectById(){
+        return messageDao.selectMessageById(1 + ThreadLocalRandom.current().nextInt(SEED_MESSAGES));
+    }
+
+    @Benchmark
+    public List<Message> selectPageFromUser(){
+        return messageDao.selectMessagesFromUserAfter(1 + ThreadLocalRandom.current().nextInt(100), Long.MIN_VALUE, 0, 20);
+    }
+
+    @Benchmark
+    public Message update(){
+        return messageDao.updateMessage(1 + ThreadLocalRandom.current().nextInt(SEED_MESSAGES), "updated message");
+    }
+
+    // Delete needs a row to remove, so each operation inserts one first
+    @Benchmark
+    public Message insertThenDelete(){
+        Message inserted = messageDao.insertMessage(new Message(2, "short-lived message", System.currentTimeMillis()));
+        return messageDao.deleteMessage(inserted.getMessageId());
+    }
+}
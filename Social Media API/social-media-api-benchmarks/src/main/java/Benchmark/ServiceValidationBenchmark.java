@@ -0,0 +1,97 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ServiceValidationBenchmark.java
+/* FILE DESCRIPTION: JMH benchmark of the SocialMediaService validation paths: the checks that reject a request
+ * before any DAO call, and the same calls when they pass. The service runs on the in-memory DAOs so the
+ * accepted paths measure service overhead rather than SQLite.
+*/
+
+package Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import DAO.Account.InMemoryAccountDao;
+import DAO.Follow.InMemoryFollowDao;
+import DAO.Message.InMemoryMessageDao;
+import Model.Account;
+import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+import Service.SocialMediaService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceValidationBenchmark {
+    private SocialMediaService service;
+    private List<Message> mixedBatch;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        service = new SocialMediaService(new InMemoryAccountDao(), new InMemoryMessageDao(), new InMemoryFollowDao());
+        service.userRegister(new Account("bench", "password"));
+
+        // Half the items fail validation
+        mixedBatch = new ArrayList<>();
+        for(int i = 0; i < 100; i++){
+            mixedBatch.add(new Message(1, (i % 2 == 0) ? "batch message " + i : " ", i));
+        }
+    }
+
+    @Benchmark
+    public Account registerBlankUsername(){
+        return service.userRegister(new Account("", "password"));
+    }
+
+    @Benchmark
+    public Account loginAccepted(){
+        return service.userLogin(new Account("bench", "password"));
+    }
+
+    @Benchmark
+    public Message createBlankText(){
+        return service.messageCreate(new Message(1, "   ", 0));
+    }
+
+    @Benchmark
+    public Message updateBlankText(){
+        return service.messageUpdate(1, "");
+    }
+
+    @Benchmark
+    public MessageBatchResult createBatchHalfInvalid(){
+        // Inserts 50 Messages per call, so the store grows during the run
+        return service.messageCreateBatch(mixedBatch);
+    }
+
+    @Benchmark
+    public Object pageInvalidCursor(){
+        try{
+            return service.messageRetrievePage("not-a-cursor", 20);
+        }
+        catch(IllegalArgumentException e){
+            return e;
+        }
+    }
+
+    @Benchmark
+    public MessagePage pageAccepted(){
+        return service.messageRetrievePage(null, 20);
+    }
+}
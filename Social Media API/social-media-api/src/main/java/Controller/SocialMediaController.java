@@ -7,18 +7,100 @@
 package Controller;
 
 import io.javalin.Javalin;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import io.javalin.http.Header;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.ServletOutputStream;
+
+import DAO.DaoFactory;
+import DAO.Message.MessageVisitor;
 import Model.Account;
 import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+import Model.TrendingTag;
 import Service.SocialMediaService;
+import Utility.AcceptEncoding;
+import Utility.AppConfig;
+import Utility.ConcurrencyLimiter;
+import Utility.ConnectionPool;
+import Utility.ConnectionUtil;
+import Utility.DbExecutor;
+import Utility.ETags;
+import Utility.JsonCodec;
+import Utility.Metrics;
+import Utility.OffHeapResponseCache;
+import Utility.OverloadedException;
+import Utility.RateLimitRules;
+import Utility.RateLimitedException;
+import Utility.ServerThreadPool;
+import Utility.SqlWriter;
 
 public class SocialMediaController {
     SocialMediaService socialMediaService;
 
+    // Pagination settings
+    // When true, list endpoints called without limit/after return every row like they always have
+    private final boolean legacyUnpaginated = AppConfig.getBoolean("api.pagination.legacyUnpaginated", true);
+    private final int defaultPageSize = AppConfig.getInt("api.pagination.defaultLimit", 100);
+
+    // Largest number of Messages accepted by POST /messages/batch
+    private final int maxBatchSize = AppConfig.getInt("api.batch.maxSize", 5_000);
+
+    // Encoded GET /accounts/{accountId}/messages bodies, created by startAPI() when responseCache.enabled
+    private OffHeapResponseCache responseCache;
+    private final boolean responseCacheGzip = AppConfig.getBoolean("responseCache.gzip", true);
+
+    // Bodies smaller than this are not worth compressing (the same cutoff Javalin uses)
+    private static final int GZIP_MIN_BYTES = 1500;
+
+    // Rate limits used when rateLimit.rules is not set; see RateLimitRules for the format
+    public static final String DEFAULT_RATE_LIMIT_RULES =
+        "POST /messages account=20/40 ip=200/400; "
+        + "POST /messages/batch account=2/4 ip=20/40; "
+        + "PATCH /messages/{messageId} ip=50/100; "
+        + "DELETE /messages/{messageId} ip=50/100; "
+        + "PATCH /accounts/{accountId} account=5/10 ip=50/100; "
+        + "DELETE /accounts/{accountId} account=5/10 ip=50/100; "
+        + "PUT /accounts/{accountId}/following/{followeeId} account=10/20 ip=100/200; "
+        + "POST /register ip=5/20; "
+        + "GET /login ip=10/30";
+
+    // Admission control, created by startAPI(); each is null when switched off
+    private RateLimitRules rateLimits;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private final long maxQueueWaitNanos = AppConfig.getLong("admission.maxQueueWaitMs", 500) * 1_000_000L;
+    private final LongAdder queueWaitShedCount = new LongAdder();
+
+    // Server threads that write async responses, set by startAPI(); DB executor threads only run the queries
+    private Executor responseExecutor;
+
+    // Request attributes set by the admission handler
+    private static final String ADMITTED_ATTRIBUTE = "admission.admitted";
+    private static final String RATE_LIMIT_RULE_ATTRIBUTE = "admission.rateLimitRule";
+
+    // Route label for requests that never reached an endpoint ("shed" or "unmatched"), read by recordRequest
+    private static final String ROUTE_LABEL_ATTRIBUTE = "metrics.routeLabel";
+
     // Constructors
     // No-arg constructor
     public SocialMediaController(){
@@ -36,23 +118,81 @@ public class SocialMediaController {
      * OUTPUT: Javalin object
      * Creates a Javalin object that defines the controller behavior and returns it
      * Endpoints will be grouped by roles
+     * Handlers run on platform or virtual threads depending on the server.threadMode setting
+     * With metrics.enabled, every completed request is counted by route and status and timed, and GET /metrics serves the totals
+     * With responseCache.enabled, encoded per-account Message listings are kept off-heap and dropped whenever the account posts,
+     * edits or deletes a Message
+     * Every request except GET /metrics passes admission control first: per-route account and IP rate limits (429) when
+     * rateLimit.enabled, then a cap on requests in progress and on how long DB work has been queued (503)
     */
     public Javalin startAPI(){
-        Javalin app = Javalin.create();
+        boolean metricsEnabled = AppConfig.getBoolean("metrics.enabled", true);
+
+        if(AppConfig.getBoolean("responseCache.enabled", true)){
+            responseCache = new OffHeapResponseCache(
+                AppConfig.getLong("responseCache.maxBytes", 64L << 20),
+                AppConfig.getInt("responseCache.blockSize", 4096),
+                AppConfig.getInt("responseCache.maxEntryBytes", 4 << 20)
+            );
+            socialMediaService.addMessageChangeListener(responseCache::invalidate);
+        }
+
+        if(AppConfig.getBoolean("rateLimit.enabled", false)){
+            rateLimits = RateLimitRules.parse(AppConfig.getString("rateLimit.rules", DEFAULT_RATE_LIMIT_RULES), AppConfig.getInt("rateLimit.maxKeys", 100_000));
+        }
+        int maxConcurrent = AppConfig.getInt("admission.maxConcurrent", 1000);
+        if(maxConcurrent > 0){
+            concurrencyLimiter = new ConcurrencyLimiter(maxConcurrent);
+        }
+
+        QueuedThreadPool threadPool = ServerThreadPool.create();
+        responseExecutor = ServerThreadPool.blockingExecutor(threadPool);
+
+        Javalin app = Javalin.create(config -> {
+            config.jetty.server(() -> new Server(threadPool));
+
+            // Runs once the response is complete, including responses written asynchronously
+            if(metricsEnabled){
+                config.requestLogger.http(this::recordRequest);
+            }
+        });
+
+        // Stop the service's background threads along with the server
+        app.events(event -> event.serverStopped(socialMediaService::close));
+
+        // Shed load with 503 when a queue in front of the DB is full or too slow, and with 429 when a client is over its rate limit
+        app.exception(OverloadedException.class, this::overloadedHandler);
+        app.exception(RateLimitedException.class, this::rateLimitedHandler);
+        app.before(this::admissionHandler);
+        app.after(this::releaseAdmissionHandler);
+        app.error(404, this::notFoundHandler);
 
         app.post("/register", this::postUserHandler);
         app.get("/login", this::getLoginUserHandler);
         app.patch("/accounts/{accountId}", this::patchUpdateUserHandler);
         app.delete("/accounts", this::deleteUserHandler);
         app.delete("/accounts/{accountId}", this::deleteUserByIdHandler);
+        app.put("/accounts/{accountId}/following/{followeeId}", this::putFollowHandler);
+        app.delete("/accounts/{accountId}/following/{followeeId}", this::deleteFollowHandler);
+        app.get("/accounts/{accountId}/feed", this::getFeedHandler);
 
         app.post("/messages", this::postMessageHandler);
+        app.post("/messages/batch", this::postMessageBatchHandler);
         app.get("/messages", this::getAllMessagesHandler);
+        app.get("/messages/export", this::getExportMessagesHandler);
+        app.get("/messages/search", this::getSearchMessagesHandler);
         app.get("/messages/{messageId}", this::getMessageByIdHandler);
         app.get("/accounts/{accountId}/messages", this::getAllMessagesFromUserHandler);
         app.patch("/messages/{messageId}", this::patchUpdateMessageHandler);
         app.delete("/messages", this::deleteMessageHandler);
-        app.delete("/messages/{messageId}", this::deleteUserByIdHandler);
+        app.delete("/messages/{messageId}", this::deleteMessageHandler);
+
+        app.get("/trending", this::getTrendingHandler);
+
+        if(metricsEnabled){
+            registerMetrics();
+            app.get("/metrics", this::getMetricsHandler);
+        }
 
         return app;
     }
@@ -66,25 +206,23 @@ public class SocialMediaController {
      * If successful, return response body with JSON representation of Account object
      * Otherwise, return client error
     */
-    private void postUserHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
-
+    private void postUserHandler(Context ctx) throws IOException{
         // Read Request Body
-        Account user = om.readValue(ctx.body(), Account.class);
+        Account user = JsonCodec.readAccount(ctx.bodyInputStream());
 
-        // Attempt POST
-        Account createdUser = socialMediaService.userRegister(user);
-
-        // Check if unsuccessful
-        if(createdUser == null){
-            // Client error
-            ctx.status(400);
-        }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(createdUser));
-            ctx.status(200);
-        }
+        // Attempt POST off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userRegisterAsync(user), createdUser -> {
+            // Check if unsuccessful
+            if(createdUser == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, createdUser);
+            }
+        });
     }
 
     /*
@@ -95,25 +233,23 @@ public class SocialMediaController {
      * If successful, returns response body with JSON representation of Account object
      * Otherwise, return unauthorized error
     */
-    private void getLoginUserHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
-
+    private void getLoginUserHandler(Context ctx) throws IOException{
         // Read Request Body
-        Account user = om.readValue(ctx.body(), Account.class);
-
-        // Attempt GET
-        Account loginUser = socialMediaService.userLogin(user);
+        Account user = JsonCodec.readAccount(ctx.bodyInputStream());
 
-        // Check if unsuccessful
-        if(loginUser == null){
-            // Unauthorized error
-            ctx.status(401);
-        }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(loginUser));
-            ctx.status(200);
-        }
+        // Attempt GET off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userLoginAsync(user), loginUser -> {
+            // Check if unsuccessful
+            if(loginUser == null){
+                // Unauthorized error
+                ctx.status(401);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, loginUser);
+            }
+        });
     }
 
     /*
@@ -124,25 +260,23 @@ public class SocialMediaController {
      * If successful, returns response body with JSON representation of Account object
      * Otherwise, return client error
     */
-    private void patchUpdateUserHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
-
+    private void patchUpdateUserHandler(Context ctx) throws IOException{
         // Read Request Body
-        Account user = om.readValue(ctx.body(), Account.class);
-
-        // Attempt PATCH
-        Account updatedUser = socialMediaService.userUpdate(user);
+        Account user = JsonCodec.readAccount(ctx.bodyInputStream());
 
-        // Check if unsuccessful
-        if(updatedUser == null){
-            // Client error
-            ctx.status(400);
-        }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(updatedUser));
-            ctx.status(200);
-        }
+        // Attempt PATCH off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userUpdateAsync(user), updatedUser -> {
+            // Check if unsuccessful
+            if(updatedUser == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, updatedUser);
+            }
+        });
     }
 
     /*
@@ -153,25 +287,23 @@ public class SocialMediaController {
      * If successful, returns response body with JSON representation of Account object
      * Otherwise, return client error
     */
-    private void deleteUserHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
-
+    private void deleteUserHandler(Context ctx) throws IOException{
         // Read Request Body
-        Account user = om.readValue(ctx.body(), Account.class);
-
-        // Attempt DELETE
-        Account deletedUser = socialMediaService.userDelete(user.getAccountId());
+        Account user = JsonCodec.readAccount(ctx.bodyInputStream());
 
-        // Check if unsuccessful
-        if(deletedUser == null){
-            // Client error
-            ctx.status(400);
-        }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(deletedUser));
-            ctx.status(200);
-        }
+        // Attempt DELETE off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userDeleteAsync(user.getAccountId()), deletedUser -> {
+            // Check if unsuccessful
+            if(deletedUser == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, deletedUser);
+            }
+        });
     }
 
     /*
@@ -182,22 +314,105 @@ public class SocialMediaController {
      * If successful, returns response body with JSON representation of Account object
      * Otherwise, return unauthorized error
     */
-    private void deleteUserByIdHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
+    private void deleteUserByIdHandler(Context ctx) throws IOException{
+        int accountId = Integer.parseInt(ctx.pathParam("accountId"));
 
-        // Attempt DELETE
-        Account deletedUser = socialMediaService.userDelete(Integer.parseInt(ctx.pathParam("accountId")));
+        // Attempt DELETE off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userDeleteAsync(accountId), deletedUser -> {
+            // Check if unsuccessful
+            if(deletedUser == null){
+                // Unauthorized error
+                ctx.status(401);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, deletedUser);
+            }
+        });
+    }
 
-        // Check if unsuccessful
-        if(deletedUser == null){
-            // Unauthorized error
-            ctx.status(401);
+    /*
+     * PUT Follow Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Makes the accountId follow the followeeId; following an account again is not an error
+     * If successful, returns response body with JSON representation of the followed Account object
+     * Otherwise, return client error
+    */
+    private void putFollowHandler(Context ctx) throws IOException{
+        int accountId = Integer.parseInt(ctx.pathParam("accountId"));
+        int followeeId = Integer.parseInt(ctx.pathParam("followeeId"));
+
+        // Attempt PUT off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userFollowAsync(accountId, followeeId), followee -> {
+            // Check if unsuccessful
+            if(followee == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, followee);
+            }
+        });
+    }
+
+    /*
+     * DELETE Follow Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Makes the accountId stop following the followeeId
+     * If successful, returns response body with JSON representation of the unfollowed Account object
+     * Otherwise, return client error
+    */
+    private void deleteFollowHandler(Context ctx) throws IOException{
+        int accountId = Integer.parseInt(ctx.pathParam("accountId"));
+        int followeeId = Integer.parseInt(ctx.pathParam("followeeId"));
+
+        // Attempt DELETE off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.userUnfollowAsync(accountId, followeeId), followee -> {
+            // Check if unsuccessful
+            if(followee == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, followee);
+            }
+        });
+    }
+
+    /*
+     * GET Feed Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Retrieves up to limit of the newest Messages from the accounts the accountId follows, newest first
+     * Returns JSON representation of Message object List
+     * Always returns HTTP Status Code 200, or 400 for an invalid limit
+    */
+    private void getFeedHandler(Context ctx) throws IOException{
+        int accountId = Integer.parseInt(ctx.pathParam("accountId"));
+
+        CompletableFuture<List<Message>> feed;
+        try{
+            feed = socialMediaService.feedRetrieveAsync(accountId, pageLimit(ctx));
+        }
+        catch(IllegalArgumentException e){
+            // Client error
+            ctx.status(400);
+            ctx.result(e.getMessage());
+            return;
         }
-        else{
+
+        respondAsync(ctx, () -> feed, messages -> {
             // Return response body
-            ctx.json(om.writeValueAsString(deletedUser));
             ctx.status(200);
-        }
+            writeJson(ctx, messages);
+        });
     }
 
     /*
@@ -208,25 +423,64 @@ public class SocialMediaController {
      * If successful, returns response body with JSON representation of Message object
      * Otherwise, return client error
     */
-    private void postMessageHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
-
+    private void postMessageHandler(Context ctx) throws IOException{
         // Read request body
-        Message msg = om.readValue(ctx.body(), Message.class);
+        Message msg = JsonCodec.readMessage(ctx.bodyInputStream());
+
+        // The poster is only known once the body is read
+        checkAccountRateLimit(ctx, msg.getPostedBy());
+
+        // Attempt POST off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.messageCreateAsync(msg), addedMsg -> {
+            // Check if unsuccessful
+            if(addedMsg == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, addedMsg);
+            }
+        });
+    }
 
-        // Attempt POST
-        Message addedMsg = socialMediaService.messageCreate(msg);
+    /*
+     * POST Message Batch Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Creates every valid Message from a JSON array in one transaction
+     * Returns the created Messages and per-item errors, plus the insert rate in the X-Rows-Per-Second header
+     * Returns client error if the body is not an array or holds more than api.batch.maxSize items
+    */
+    private void postMessageBatchHandler(Context ctx) throws IOException{
+        // Read request body
+        List<Message> msgs = JsonCodec.readMessages(ctx.bodyInputStream());
 
-        // Check if unsuccessful
-        if(addedMsg == null){
+        // Check batch size
+        if(msgs == null || msgs.size() > maxBatchSize){
             // Client error
             ctx.status(400);
+            ctx.result("Request body must be a JSON array of at most " + maxBatchSize + " messages");
+            return;
         }
-        else{
+
+        // One request for each account posting in the batch
+        for(int postedBy : msgs.stream().mapToInt(Message::getPostedBy).distinct().toArray()){
+            checkAccountRateLimit(ctx, postedBy);
+        }
+
+        // Attempt POST off the HTTP thread
+        long start = System.nanoTime();
+        respondAsync(ctx, () -> socialMediaService.messageCreateBatchAsync(msgs), result -> {
+            long elapsedNanos = Math.max(1, System.nanoTime() - start);
+
             // Return response body
-            ctx.json(om.writeValueAsString(addedMsg));
+            ctx.header("X-Rows-Per-Second", String.valueOf(result.getCreated().size() * 1_000_000_000L / elapsedNanos));
             ctx.status(200);
-        }
+            ctx.contentType(ContentType.APPLICATION_JSON);
+            JsonCodec.writeBatchResult(ctx.outputStream(), result);
+        });
     }
 
     /*
@@ -234,26 +488,33 @@ public class SocialMediaController {
      * INPUT: 1 Context object
      * OUTPUT: N/A
      * Retrieves a Message by the ID from the request body
-     * If successful, returns JSON representation of Message object
+     * If successful, returns JSON representation of Message object with its ETag
      * Otherwise, returns emtpy JSON body
-     * Always returns HTTP Status Code 200
+     * Always returns HTTP Status Code 200, or 304 with no body if If-None-Match lists the Message's current ETag
     */
-    private void getMessageByIdHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
+    private void getMessageByIdHandler(Context ctx) throws IOException{
+        int messageId = Integer.parseInt(ctx.pathParam("messageId"));
 
-        // Attempt GET
-        Message msg = socialMediaService.messageRetrieveById(Integer.parseInt(ctx.pathParam("messageId")));
+        // Attempt GET off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.messageRetrieveByIdAsync(messageId), msg -> {
+            // Check if unsuccessful
+            if(msg == null){
+                ctx.status(200);
+                ctx.json("");
+                return;
+            }
 
-        // Check if unsuccessful
-        if(msg == null){
-            ctx.json("");
-        }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(msg));
-        }
+            // Client already has this version
+            String etag = ETags.forMessage(msg);
+            if(notModified(ctx, etag)){
+                return;
+            }
 
-        ctx.status(200);
+            // Return response body; status and headers are set first since the body is streamed straight to the response
+            ctx.status(200);
+            ctx.header(Header.ETAG, etag);
+            writeJson(ctx, msg);
+        });
     }
 
     /*
@@ -261,14 +522,101 @@ public class SocialMediaController {
      * INPUT: 1 Context object
      * OUTPUT: N/A
      * Retrieves all Messages from the accountId from the request body
+     * With the since/until query parameters (epoch seconds, since inclusive, until exclusive), returns up to
+     * limit Messages posted in that range, newest first
+     * Otherwise, with the limit/after query parameters (or when legacy listing is disabled), returns one page
+     * ordered by time posted and sets the X-Next-Cursor header if more pages follow
+     * Every form carries the ETag of the account's Messages; if If-None-Match lists it, returns 304 with no body
+     * after looking up only the stored list version
+     * Bodies are gzipped when Accept-Encoding allows it, under their own ETag, and every response varies on Accept-Encoding
      * If successful, returns JSON representation of Message object List
      * Otherwise, returns empty JSON body
-     * Always returns HTTP Status Code 200
+     * Always returns HTTP Status Code 200, 304, or 400 for an invalid limit, cursor, since or until
     */
-    private void getAllMessagesFromUserHandler(Context ctx) {
-        // Return response body
-        ctx.json(socialMediaService.messageRetrieveAllFromUser(Integer.parseInt(ctx.pathParam("accountId"))));
-        ctx.status(200);
+    private void getAllMessagesFromUserHandler(Context ctx){
+        int accountId = Integer.parseInt(ctx.pathParam("accountId"));
+
+        // Pick the content-coding first: it is part of the ETag, so If-None-Match is checked against the variant being sent
+        ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+        boolean gzip = AcceptEncoding.accepts(ctx.header(Header.ACCEPT_ENCODING), "gzip");
+
+        // Read the tag before any query, so the rows sent are never older than the tag they go out with
+        ctx.future(() -> socialMediaService.messageETagFromUserAsync(accountId)
+            .thenComposeAsync(listETag -> respondMessagesFromUser(ctx, accountId, listETag, gzip), responseExecutor));
+    }
+
+    /*
+     * Respond Messages From User Helper Method
+     * INPUT: 1 Context object, 1 int, 1 String, 1 boolean
+     * OUTPUT: CompletableFuture of Void
+     * Answers GET /accounts/{accountId}/messages once the list's ETag is known; completes when the response is written
+    */
+    private CompletableFuture<Void> respondMessagesFromUser(Context ctx, int accountId, String listETag, boolean gzip){
+        String etag = gzip ? ETags.forContentCoding(listETag, "gzip") : listETag;
+        if(notModified(ctx, etag)){
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Full listings and first pages are answered from the response cache when it holds them for this ETag
+        String variant = responseCacheVariant(ctx, gzip);
+        try{
+            if(variant != null && writeCached(ctx, accountId, variant, etag)){
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+
+        // Time-range GET, newest first
+        if(ctx.queryParam("since") != null || ctx.queryParam("until") != null){
+            CompletableFuture<List<Message>> messages;
+            try{
+                messages = socialMediaService.messageRetrieveTimelineAsync(accountId,
+                    timeParam(ctx, "since", Long.MIN_VALUE), timeParam(ctx, "until", Long.MAX_VALUE), pageLimit(ctx));
+            }
+            catch(IllegalArgumentException e){
+                // Client error
+                ctx.status(400);
+                ctx.result(e.getMessage());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return writeWhenDone(messages, result -> writeListing(ctx, etag, gzip, result, null));
+        }
+
+        // Paginated GET
+        if(isPaginated(ctx)){
+            CompletableFuture<MessagePage> page;
+            try{
+                page = socialMediaService.messageRetrievePageFromUserAsync(accountId, listETag, ctx.queryParam("after"), pageLimit(ctx));
+            }
+            catch(IllegalArgumentException e){
+                // Client error
+                ctx.status(400);
+                ctx.result(e.getMessage());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return writeWhenDone(page, result -> {
+                if(variant != null){
+                    writeCacheable(ctx, accountId, variant, etag, result.getMessages(), result.getNextCursor());
+                    return;
+                }
+
+                writeListing(ctx, etag, gzip, result.getMessages(), result.getNextCursor());
+            });
+        }
+
+        return writeWhenDone(socialMediaService.messageRetrieveAllFromUserAsync(accountId, listETag), messages -> {
+            if(variant != null){
+                writeCacheable(ctx, accountId, variant, etag, messages, null);
+                return;
+            }
+
+            // Return response body
+            writeListing(ctx, etag, gzip, messages, null);
+        });
     }
 
     /*
@@ -276,14 +624,97 @@ public class SocialMediaController {
      * INPUT: 1 Context object
      * OUTPUT: N/A
      * Retrieves all Messages
+     * With the limit/after query parameters (or when legacy listing is disabled), returns one page
+     * ordered by time posted and sets the X-Next-Cursor header if more pages follow
      * If successful, returns JSON representation of Message object List
      * Otherwise, returns empty JSON body
+     * Always returns HTTP Status Code 200, or 400 for an invalid limit or cursor
+    */
+    private void getAllMessagesHandler(Context ctx) throws IOException{
+        // Paginated GET
+        if(isPaginated(ctx)){
+            CompletableFuture<MessagePage> page;
+            try{
+                page = socialMediaService.messageRetrievePageAsync(ctx.queryParam("after"), pageLimit(ctx));
+            }
+            catch(IllegalArgumentException e){
+                // Client error
+                ctx.status(400);
+                ctx.result(e.getMessage());
+                return;
+            }
+
+            respondAsync(ctx, () -> page, result -> writePage(ctx, result));
+            return;
+        }
+
+        respondAsync(ctx, () -> socialMediaService.messageRetrieveAllAsync(), messages -> {
+            // Return response body
+            ctx.status(200);
+            writeJson(ctx, messages);
+        });
+    }
+
+    /*
+     * GET Export Messages Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Streams every Message as newline-delimited JSON (one object per line) while rows are read
+     * Nothing is buffered beyond the output buffer, and the scan stops if the client disconnects
      * Always returns HTTP Status Code 200
     */
-    private void getAllMessagesHandler(Context ctx) {
-        // Return response body
-        ctx.json(socialMediaService.messageRetrieveAll());
+    private void getExportMessagesHandler(Context ctx) throws IOException{
         ctx.status(200);
+        ctx.contentType("application/x-ndjson");
+
+        JsonGenerator gen = JsonCodec.createNdjsonGenerator(ctx.outputStream());
+        IOException[] failure = new IOException[1];
+
+        // Attempt export off the HTTP thread; rows are written from the DB thread as they are read
+        MessageVisitor writeLine = msg -> {
+            try{
+                JsonCodec.writeMessageLine(gen, msg);
+                return true;
+            }
+            catch(IOException e){
+                // Client went away, stop reading rows
+                failure[0] = e;
+                return false;
+            }
+        };
+
+        respondAsync(ctx, () -> socialMediaService.messageExportAsync(writeLine), exported -> {
+            if(failure[0] != null){
+                System.out.println("Message export stopped after " + exported + " rows: " + failure[0].getMessage());
+                return;
+            }
+
+            gen.flush();
+        });
+    }
+
+    /*
+     * GET Search Messages Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Retrieves up to limit Messages containing every word of the q query parameter, best match first
+     * Sets the X-Next-Cursor header if more results follow; pass it back as the after query parameter
+     * Returns JSON representation of Message object List
+     * Always returns HTTP Status Code 200, or 400 for a missing or invalid q, limit or cursor
+    */
+    private void getSearchMessagesHandler(Context ctx) throws IOException{
+        CompletableFuture<MessagePage> page;
+        try{
+            page = socialMediaService.messageSearchAsync(ctx.queryParam("q"), ctx.queryParam("after"), pageLimit(ctx));
+        }
+        catch(IllegalArgumentException e){
+            // Client error
+            ctx.status(400);
+            ctx.result(e.getMessage());
+            return;
+        }
+
+        respondAsync(ctx, () -> page, result -> writePage(ctx, result));
     }
 
     /*
@@ -294,25 +725,24 @@ public class SocialMediaController {
      * If successful, returns response body with JSON representation of Message object
      * Otherwise, returns client error
     */
-    private void patchUpdateMessageHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
-
+    private void patchUpdateMessageHandler(Context ctx) throws IOException{
         // Read request body
-        Message msg = om.readValue(ctx.body(), Message.class);
-
-        // Attempt PATCH
-        Message updatedMsg = socialMediaService.messageUpdate(Integer.parseInt(ctx.pathParam("messageId")), msg.getMessageText());
+        Message msg = JsonCodec.readMessage(ctx.bodyInputStream());
+        int messageId = Integer.parseInt(ctx.pathParam("messageId"));
 
-        // Check if unsuccessful
-        if(updatedMsg == null){
-            // Client error
-            ctx.status(400);
-        }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(updatedMsg));
-            ctx.status(200);
-        }
+        // Attempt PATCH off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.messageUpdateAsync(messageId, msg.getMessageText()), updatedMsg -> {
+            // Check if unsuccessful
+            if(updatedMsg == null){
+                // Client error
+                ctx.status(400);
+            }
+            else{
+                // Return response body
+                ctx.status(200);
+                writeJson(ctx, updatedMsg);
+            }
+        });
     }
 
     /*
@@ -320,25 +750,588 @@ public class SocialMediaController {
      * INPUT: 1 Context object
      * OUTPUT: N/A
      * Retrieves a Message after deleting it
+     * The messageId comes from the path, or from the request body for DELETE /messages
      * If successful, returns response body with JSON representation of Message object
      * Otherwise, returns empty JSON body
      * Always returns HTTP Status Code 200
     */
-    private void deleteMessageHandler(Context ctx) throws JsonProcessingException{
-        ObjectMapper om = new ObjectMapper();
+    private void deleteMessageHandler(Context ctx) throws IOException{
+        int messageId = ctx.pathParamMap().containsKey("messageId")
+            ? Integer.parseInt(ctx.pathParam("messageId"))
+            : JsonCodec.readMessage(ctx.bodyInputStream()).getMessageId();
 
-        // Attempt DELETE
-        Message deletedMsg = socialMediaService.messageDelete(Integer.parseInt(ctx.pathParam("messageId")));
+        // Attempt DELETE off the HTTP thread
+        respondAsync(ctx, () -> socialMediaService.messageDeleteAsync(messageId), deletedMsg -> {
+            // Status is set first since the body is streamed straight to the response
+            ctx.status(200);
 
-        // Check if unsuccessful
-        if(deletedMsg == null){
-            ctx.json("");
+            // Check if unsuccessful
+            if(deletedMsg == null){
+                ctx.json("");
+            }
+            else{
+                // Return response body
+                writeJson(ctx, deletedMsg);
+            }
+        });
+    }
+
+    /*
+     * GET Trending Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Retrieves up to limit (default 10) of the most used #hashtags and @mentions over the window query parameter,
+     * a number with a unit of s, m, h or d (default 1h)
+     * Served from in-memory counters on the HTTP thread
+     * Returns JSON array of {tag, count} objects, most used first
+     * Always returns HTTP Status Code 200, or 400 for an invalid window or limit
+    */
+    private void getTrendingHandler(Context ctx) throws IOException{
+        List<TrendingTag> tags;
+        try{
+            String limit = ctx.queryParam("limit");
+            tags = socialMediaService.trendingRetrieve(durationParam(ctx, "window", 3_600_000L),
+                (limit == null) ? 10 : Integer.parseInt(limit));
         }
-        else{
-            // Return response body
-            ctx.json(om.writeValueAsString(deletedMsg));
+        catch(IllegalArgumentException | ArithmeticException e){
+            // Client error
+            ctx.status(400);
+            ctx.result(e.getMessage());
+            return;
         }
 
         ctx.status(200);
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        JsonCodec.writeTrending(ctx.outputStream(), tags);
+    }
+
+    /*
+     * GET Metrics Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Returns every metric in the Prometheus text format
+     * Always returns HTTP Status Code 200
+    */
+    private void getMetricsHandler(Context ctx){
+        ctx.status(200);
+        ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+        ctx.result(Metrics.writePrometheus());
+    }
+
+    /*
+     * Overloaded Exception Handler Method
+     * INPUT: 1 OverloadedException, 1 Context object
+     * OUTPUT: N/A
+     * Returns service unavailable with a Retry-After header
+    */
+    private void overloadedHandler(OverloadedException e, Context ctx){
+        ctx.header("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        ctx.status(503);
+        ctx.result(e.getMessage());
+    }
+
+    /*
+     * Rate Limited Handler Method
+     * INPUT: 1 RateLimitedException, 1 Context object
+     * OUTPUT: N/A
+     * Answers a request over its rate limit with 429 and a Retry-After header
+    */
+    private void rateLimitedHandler(RateLimitedException e, Context ctx){
+        ctx.header("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        ctx.status(429);
+        ctx.result(e.getMessage());
+    }
+
+    // Admission Control Helpers
+    /*
+     * Admission Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Runs before every request; applies the route's IP limit and, for /accounts/{accountId} routes, its account limit,
+     * then sheds the request if the oldest queued DB task has waited longer than admission.maxQueueWaitMs
+     * or admission.maxConcurrent requests are already in progress
+     * Throws RateLimitedException (429) or OverloadedException (503), and labels the request "shed" for metrics
+    */
+    private void admissionHandler(Context ctx){
+        // Scrapes have to get through most of all when the server is struggling
+        if(ctx.path().equals("/metrics")){
+            return;
+        }
+
+        try{
+            admit(ctx);
+        }
+        catch(RateLimitedException | OverloadedException e){
+            // Shed before routing, so there is no endpoint path to count it under
+            ctx.attribute(ROUTE_LABEL_ATTRIBUTE, "shed");
+            throw e;
+        }
+    }
+
+    /*
+     * Admit Helper Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Checks the request against the rate limits, the DB queue wait and the concurrency limit, taking a slot if admitted
+     * Throws RateLimitedException or OverloadedException
+    */
+    private void admit(Context ctx){
+
+        // Rate limits first, so a client over its limit never takes a slot
+        if(rateLimits != null){
+            RateLimitRules.Rule rule = rateLimits.match(ctx.method().name(), ctx.path());
+
+            if(rule != null){
+                rule.checkIp(ctx.ip());
+
+                String accountId = rule.accountIdFrom(ctx.path());
+                if(accountId != null){
+                    rule.checkAccount(accountId, 1);
+                }
+
+                // For handlers that learn the account from the body
+                ctx.attribute(RATE_LIMIT_RULE_ATTRIBUTE, rule);
+            }
+        }
+
+        // Work admitted now would only wait behind a queue that is already too slow
+        long queueWait = DbExecutor.shared().getOldestQueueWaitNanos();
+        if(maxQueueWaitNanos > 0 && queueWait > maxQueueWaitNanos){
+            queueWaitShedCount.increment();
+            throw new OverloadedException("Database work has been queued for " + (queueWait / 1_000_000) + " ms",
+                (int) Math.max(1, (queueWait + 999_999_999L) / 1_000_000_000L));
+        }
+
+        if(concurrencyLimiter != null){
+            if(!concurrencyLimiter.tryAcquire()){
+                throw new OverloadedException("Too many requests in progress (limit = " + concurrencyLimiter.getLimit() + ")", 1);
+            }
+            ctx.attribute(ADMITTED_ATTRIBUTE, Boolean.TRUE);
+        }
+    }
+
+    /*
+     * Release Admission Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Runs after every request, once any asynchronous response is complete, and frees its concurrency slot
+    */
+    private void releaseAdmissionHandler(Context ctx){
+        if(ctx.attribute(ADMITTED_ATTRIBUTE) != null){
+            ctx.attribute(ADMITTED_ATTRIBUTE, null);
+            concurrencyLimiter.release();
+        }
+    }
+
+    /*
+     * Not Found Handler Method
+     * INPUT: 1 Context object
+     * OUTPUT: N/A
+     * Runs on every 404; labels the request "unmatched" for metrics when no endpoint matched its path
+     * (Javalin raises that 404 while the request is still in the BEFORE phase)
+    */
+    private void notFoundHandler(Context ctx){
+        if(ctx.handlerType() == HandlerType.BEFORE){
+            ctx.attribute(ROUTE_LABEL_ATTRIBUTE, "unmatched");
+        }
+    }
+
+    /*
+     * Check Account Rate Limit Helper Method
+     * INPUT: 1 Context object, 1 int
+     * OUTPUT: N/A
+     * Charges one request to the account under the route's rate limit, if it has one
+     * Throws RateLimitedException if the account is over it
+    */
+    private void checkAccountRateLimit(Context ctx, int accountId){
+        RateLimitRules.Rule rule = ctx.attribute(RATE_LIMIT_RULE_ATTRIBUTE);
+
+        if(rule != null){
+            rule.checkAccount(String.valueOf(accountId), 1);
+        }
+    }
+
+    // Async Helpers
+    /*
+     * Respond Async Helper Method
+     * INPUT: 1 Context object, 1 Supplier of CompletableFuture, 1 ResponseWriter
+     * OUTPUT: N/A
+     * Hands the request to Javalin as an async request so the HTTP thread is released while the future runs,
+     * then writes the response from the result on a server thread once it completes
+     * Exceptions from the future (e.g. OverloadedException) go to the registered exception handlers
+    */
+    private <T> void respondAsync(Context ctx, Supplier<CompletableFuture<T>> future, ResponseWriter<T> writer){
+        ctx.future(() -> writeWhenDone(future.get(), writer));
+    }
+
+    /*
+     * Write When Done Helper Method
+     * INPUT: 1 CompletableFuture, 1 ResponseWriter
+     * OUTPUT: CompletableFuture of Void
+     * Runs the writer on the future's result; for handlers that chain several async steps under one ctx.future
+     * The writer runs on a server thread, not the one that completed the future (usually a DB executor thread), so encoding
+     * and writing to a slow client never hold a DB slot, and callers sharing one coalesced read are written in parallel
+    */
+    private <T> CompletableFuture<Void> writeWhenDone(CompletableFuture<T> future, ResponseWriter<T> writer){
+        return future.thenAcceptAsync(result -> {
+            try{
+                writer.write(result);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }, responseExecutor);
+    }
+
+    /*
+     * Response Writer Interface
+     * Writes the response for a completed result; may throw IOException while streaming the body
+    */
+    @FunctionalInterface
+    private interface ResponseWriter<T> {
+        void write(T result) throws IOException;
+    }
+
+    // Metrics Helpers
+    /*
+     * Record Request Helper Method
+     * INPUT: 1 Context object, 1 Float
+     * OUTPUT: N/A
+     * Counts a completed request under the path it was routed by, so ids in the URL do not create new series
+     * Requests that matched no route are counted together under "unmatched", and requests shed by admission control under "shed"
+    */
+    private void recordRequest(Context ctx, Float executionMillis){
+        // By now the AFTER handler has run, so the handler type no longer tells whether an endpoint did
+        String route = ctx.attribute(ROUTE_LABEL_ATTRIBUTE);
+        if(route == null){
+            route = ctx.endpointHandlerPath();
+        }
+
+        Metrics.route(ctx.method().name(), route).record(ctx.status().getCode(), (long) (executionMillis * 1_000_000));
+    }
+
+    /*
+     * Register Metrics Helper Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Registers gauges and counters for the DB executor, the connection pool and, in split mode, the writer
+    */
+    private void registerMetrics(){
+        DbExecutor executor = DbExecutor.shared();
+        Metrics.gauge("db_executor_threads", "", "Threads running DAO calls", executor::getThreadCount);
+        Metrics.gauge("db_executor_active_threads", "", "Threads currently running a DAO call", executor::getActiveCount);
+        Metrics.gauge("db_executor_queue_depth", "", "DAO calls waiting for a thread", executor::getQueueDepth);
+        Metrics.counter("db_executor_completed_total", "", "DAO calls completed", executor::getCompletedCount);
+        Metrics.counter("db_executor_rejected_total", "", "DAO calls turned away with 503 because the queue was full", executor::getRejectedCount);
+        Metrics.counter("db_executor_queue_seconds_total", "", "Time DAO calls spent queued", () -> executor.getTotalQueueNanos() / 1e9);
+        Metrics.counter("db_executor_run_seconds_total", "", "Time DAO calls spent running", () -> executor.getTotalRunNanos() / 1e9);
+
+        if(concurrencyLimiter != null){
+            Metrics.gauge("admission_in_flight_requests", "", "Requests in progress", concurrencyLimiter::getInFlight);
+            Metrics.counter("admission_shed_total", "reason=\"concurrency\"", "Requests shed with 503 by admission control", concurrencyLimiter::getRejectedCount);
+        }
+        Metrics.counter("admission_shed_total", "reason=\"queue_wait\"", "Requests shed with 503 by admission control", queueWaitShedCount::sum);
+        Metrics.gauge("db_executor_oldest_queue_wait_seconds", "", "How long the oldest queued DAO call has waited", () -> executor.getOldestQueueWaitNanos() / 1e9);
+
+        if(rateLimits != null){
+            for(RateLimitRules.Rule rule : rateLimits.getRules()){
+                if(rule.getAccountLimiter() != null){
+                    Metrics.counter("rate_limited_total", "route=\"" + rule.getRoute() + "\",key=\"account\"", "Requests turned away with 429 by a rate limit", rule.getAccountLimiter()::getLimitedCount);
+                }
+                if(rule.getIpLimiter() != null){
+                    Metrics.counter("rate_limited_total", "route=\"" + rule.getRoute() + "\",key=\"ip\"", "Requests turned away with 429 by a rate limit", rule.getIpLimiter()::getLimitedCount);
+                }
+            }
+        }
+
+        socialMediaService.getRowCaches().forEach((name, cache) -> {
+            String label = "cache=\"" + name + "\"";
+            Metrics.counter("row_cache_hits_total", label, "Lookups by id served from the row cache", cache::getHitCount);
+            Metrics.counter("row_cache_misses_total", label, "Lookups by id that went to the database", cache::getMissCount);
+            Metrics.counter("row_cache_evictions_total", label, "Rows dropped from the row cache for space or because they expired", cache::getEvictionCount);
+            Metrics.gauge("row_cache_entries", label, "Rows held in the row cache", cache::size);
+        });
+
+        socialMediaService.getReadFlights().forEach((query, flights) -> {
+            Metrics.counter("db_coalesced_reads_total", "query=\"" + query + "\"", "Reads that shared an identical query already in flight instead of running their own", flights::getSharedCount);
+            Metrics.gauge("db_coalesced_reads_in_flight", "query=\"" + query + "\"", "Coalescable queries running now", flights::getInFlightCount);
+        });
+
+        if(responseCache != null){
+            Metrics.counter("response_cache_requests_total", "result=\"hit\"", "Message listing lookups in the response cache", responseCache::getHitCount);
+            Metrics.counter("response_cache_requests_total", "result=\"miss\"", "Message listing lookups in the response cache", responseCache::getMissCount);
+            Metrics.counter("response_cache_evictions_total", "", "Accounts evicted from the response cache to make room", responseCache::getEvictionCount);
+            Metrics.gauge("response_cache_used_bytes", "", "Off-heap bytes holding cached responses", responseCache::getUsedBytes);
+            Metrics.gauge("response_cache_capacity_bytes", "", "Off-heap bytes reserved for cached responses", responseCache::getCapacityBytes);
+        }
+
+        if(DaoFactory.isInMemory()){
+            return;
+        }
+
+        // Read through ConnectionUtil on every scrape, so the gauges follow the pool if it is replaced
+        Metrics.gauge("db_pool_connections", "state=\"active\"", "Pooled connections by state", () -> ConnectionUtil.getPool().getActiveCount());
+        Metrics.gauge("db_pool_connections", "state=\"idle\"", "Pooled connections by state", () -> ConnectionUtil.getPool().getIdleCount());
+        Metrics.gauge("db_pool_max_connections", "", "Most connections the pool opens", () -> ConnectionUtil.getPool().getMaxSize());
+        Metrics.gauge("db_pool_waiting_threads", "", "Threads waiting for a connection", () -> ConnectionUtil.getPool().getWaitingCount());
+        Metrics.counter("db_pool_borrows_total", "", "Connections handed out", () -> ConnectionUtil.getPool().getBorrowCount());
+        Metrics.counter("db_pool_wait_seconds_total", "", "Time spent waiting for a connection", () -> ConnectionUtil.getPool().getTotalWaitNanos() / 1e9);
+        Metrics.counter("db_pool_timeouts_total", "", "Borrows that timed out", () -> ConnectionUtil.getPool().getTimeoutCount());
+        Metrics.counter("db_pool_rejected_total", "", "Borrows turned away because too many callers were waiting", () -> ConnectionUtil.getPool().getRejectedCount());
+        Metrics.counter("db_pool_leaks_total", "", "Connections held longer than the leak detection threshold", () -> ConnectionUtil.getPool().getLeakCount());
+        Metrics.counter("db_statement_cache_total", "result=\"hit\"", "Prepared statement lookups", () -> ConnectionUtil.getPool().getStatementCacheHitCount());
+        Metrics.counter("db_statement_cache_total", "result=\"miss\"", "Prepared statement lookups", () -> ConnectionUtil.getPool().getStatementCacheMissCount());
+
+        if(ConnectionUtil.isSplitMode()){
+            Metrics.gauge("db_writer_queue_depth", "", "Writes waiting for the writer thread", () -> ConnectionUtil.getWriter().getQueueDepth());
+            Metrics.counter("db_writer_tasks_total", "", "Writes run by the writer thread", () -> ConnectionUtil.getWriter().getTaskCount());
+            Metrics.counter("db_writer_rejected_total", "", "Writes turned away because the writer queue was full", () -> ConnectionUtil.getWriter().getRejectedCount());
+            Metrics.counter("db_writer_wait_seconds_total", "", "Time writes spent queued", () -> ConnectionUtil.getWriter().getTotalWaitNanos() / 1e9);
+            Metrics.counter("db_writer_run_seconds_total", "", "Time writes spent running", () -> ConnectionUtil.getWriter().getTotalRunNanos() / 1e9);
+        }
+    }
+
+    // Pagination Helpers
+    /*
+     * Is Paginated Helper Method
+     * INPUT: 1 Context object
+     * OUTPUT: 1 boolean
+     * Returns true if the list request should be served one page at a time
+    */
+    private boolean isPaginated(Context ctx){
+        return !legacyUnpaginated || ctx.queryParam("limit") != null || ctx.queryParam("after") != null;
+    }
+
+    /*
+     * Page Limit Helper Method
+     * INPUT: 1 Context object
+     * OUTPUT: 1 int
+     * Returns the limit query parameter, or the default page size if it is absent
+     * Throws NumberFormatException if it is not a number
+    */
+    private int pageLimit(Context ctx){
+        String limit = ctx.queryParam("limit");
+
+        return (limit == null) ? defaultPageSize : Integer.parseInt(limit);
+    }
+
+    /*
+     * Not Modified Helper Method
+     * INPUT: 1 Context object, 1 String
+     * OUTPUT: 1 boolean
+     * If the request's If-None-Match lists the given ETag, answers 304 with the ETag and no body and returns true
+    */
+    private boolean notModified(Context ctx, String etag){
+        if(!ETags.matches(ctx.header(Header.IF_NONE_MATCH), etag)){
+            return false;
+        }
+
+        ctx.status(304);
+        ctx.header(Header.ETAG, etag);
+        return true;
+    }
+
+    /*
+     * Time Param Helper Method
+     * INPUT: 1 Context object, 1 String, 1 long
+     * OUTPUT: 1 long
+     * Returns the named query parameter as epoch seconds, or the default if it is absent
+     * Throws IllegalArgumentException (NumberFormatException) if it is not a number
+    */
+    private long timeParam(Context ctx, String name, long defaultValue){
+        String value = ctx.queryParam(name);
+
+        return (value == null) ? defaultValue : Long.parseLong(value);
+    }
+
+    /*
+     * Duration Param Helper Method
+     * INPUT: 1 Context object, 1 String, 1 long
+     * OUTPUT: 1 long
+     * Returns the named query parameter (e.g. 90s, 15m, 1h, 7d) in millis, or the default if it is absent
+     * Throws IllegalArgumentException if it is not a number followed by s, m, h or d
+    */
+    private long durationParam(Context ctx, String name, long defaultMillis){
+        String value = ctx.queryParam(name);
+        if(value == null){
+            return defaultMillis;
+        }
+
+        long unit;
+        switch(value.isEmpty() ? ' ' : value.charAt(value.length() - 1)){
+            case 's': unit = 1_000L; break;
+            case 'm': unit = 60_000L; break;
+            case 'h': unit = 3_600_000L; break;
+            case 'd': unit = 86_400_000L; break;
+            default: throw new IllegalArgumentException(name + " must be a number followed by s, m, h or d");
+        }
+
+        return Math.multiplyExact(Long.parseLong(value.substring(0, value.length() - 1)), unit);
+    }
+
+    /*
+     * Write Page Helper Method
+     * INPUT: 1 Context object, 1 MessagePage object
+     * OUTPUT: N/A
+     * Sends the page's Messages as a JSON array, with the next page's cursor in the X-Next-Cursor header
+    */
+    private void writePage(Context ctx, MessagePage page) throws IOException{
+        if(page.hasNext()){
+            ctx.header("X-Next-Cursor", page.getNextCursor());
+        }
+
+        ctx.status(200);
+        writeJson(ctx, page.getMessages());
+    }
+
+    // Response Helpers
+    /*
+     * Response Cache Variant Helper Method
+     * INPUT: 1 Context object, 1 boolean
+     * OUTPUT: 1 String
+     * Returns the response cache key of a GET /accounts/{accountId}/messages request within its account,
+     * or null if it is not cached (cache disabled, a time range, or a page after the first)
+     * The limit is used as sent; one that is not valid is answered with 400 and never reaches the cache
+    */
+    private String responseCacheVariant(Context ctx, boolean gzip){
+        if(responseCache == null || ctx.queryParam("since") != null || ctx.queryParam("until") != null || ctx.queryParam("after") != null){
+            return null;
+        }
+
+        String variant = isPaginated(ctx) ? "page:" + ctx.queryParam("limit") : "all";
+
+        return gzip ? variant + "|gzip" : variant;
+    }
+
+    /*
+     * Write Cached Helper Method
+     * INPUT: 1 Context object, 1 int, 2 String
+     * OUTPUT: 1 boolean
+     * Sends the cached body for the variant straight from off-heap memory and returns true,
+     * or returns false if the cache does not hold it for this ETag
+    */
+    private boolean writeCached(Context ctx, int accountId, String variant, String etag) throws IOException{
+        OffHeapResponseCache.Body body = responseCache.acquire(accountId, variant, etag);
+        if(body == null){
+            return false;
+        }
+
+        try{
+            writeBodyHeaders(ctx, etag, body.getLength(), body.getContentEncoding(), body.getNextCursor());
+
+            // Jetty takes the blocks as ByteBuffers without another copy; any other stream gets them as arrays
+            ServletOutputStream out = ctx.res().getOutputStream();
+            if(out instanceof HttpOutput){
+                responseCache.writeTo(body, ((HttpOutput) out)::write);
+            }
+            else{
+                responseCache.writeTo(body, buffer -> {
+                    byte[] chunk = new byte[buffer.remaining()];
+                    buffer.get(chunk);
+                    out.write(chunk);
+                });
+            }
+        }
+        finally{
+            responseCache.release(body);
+        }
+
+        return true;
+    }
+
+    /*
+     * Write Cacheable Helper Method
+     * INPUT: 1 Context object, 1 int, 2 String, 1 List of Message objects, 1 String
+     * OUTPUT: N/A
+     * Encodes the Messages once (gzipped for a gzip variant when responseCache.gzip is on and the body is large enough),
+     * stores the bytes in the response cache and sends them
+    */
+    private void writeCacheable(Context ctx, int accountId, String variant, String etag, List<Message> messages, String nextCursor) throws IOException{
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        JsonCodec.writeMessages(json, messages);
+
+        byte[] body = json.toByteArray();
+        String contentEncoding = null;
+        if(responseCacheGzip && variant.endsWith("|gzip") && body.length >= GZIP_MIN_BYTES){
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream(body.length / 4);
+            try(OutputStream out = new GZIPOutputStream(gzipped)){
+                out.write(body);
+            }
+            body = gzipped.toByteArray();
+            contentEncoding = "gzip";
+        }
+
+        responseCache.put(accountId, variant, etag, body, contentEncoding, nextCursor);
+
+        writeBodyHeaders(ctx, etag, body.length, contentEncoding, nextCursor);
+        ctx.res().getOutputStream().write(body);
+    }
+
+    /*
+     * Write Listing Helper Method
+     * INPUT: 1 Context object, 1 String, 1 boolean, 1 List of Message objects, 1 String
+     * OUTPUT: N/A
+     * Streams an uncached Message listing, gzipped when the ETag's variant is; it goes to the raw response stream
+     * so Javalin cannot pick a different coding than the one the ETag names
+    */
+    private void writeListing(Context ctx, String etag, boolean gzip, List<Message> messages, String nextCursor) throws IOException{
+        ctx.status(200);
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        ctx.header(Header.ETAG, etag);
+        if(nextCursor != null){
+            ctx.header("X-Next-Cursor", nextCursor);
+        }
+
+        if(!gzip){
+            JsonCodec.writeMessages(ctx.res().getOutputStream(), messages);
+            return;
+        }
+
+        ctx.header(Header.CONTENT_ENCODING, "gzip");
+        try(OutputStream out = new GZIPOutputStream(ctx.res().getOutputStream())){
+            JsonCodec.writeMessages(out, messages);
+        }
+    }
+
+    /*
+     * Write Body Headers Helper Method
+     * INPUT: 1 Context object, 1 String, 1 int, 2 String
+     * OUTPUT: N/A
+     * Sets the status and headers of an already-encoded Message listing; the body then goes to the raw
+     * response stream, so Javalin does not compress it a second time
+    */
+    private void writeBodyHeaders(Context ctx, String etag, int length, String contentEncoding, String nextCursor){
+        ctx.status(200);
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        ctx.header(Header.ETAG, etag);
+        if(contentEncoding != null){
+            ctx.header(Header.CONTENT_ENCODING, contentEncoding);
+        }
+        if(nextCursor != null){
+            ctx.header("X-Next-Cursor", nextCursor);
+        }
+        ctx.res().setContentLength(length);
+    }
+
+    /*
+     * Write JSON Helper Methods
+     * INPUT: 1 Context object, 1 Account, Message or List of Message objects
+     * OUTPUT: N/A
+     * Serializes the value straight into the response output stream with the shared codec,
+     * without building an intermediate String
+    */
+    private void writeJson(Context ctx, Account user) throws IOException{
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        JsonCodec.writeAccount(ctx.outputStream(), user);
+    }
+
+    private void writeJson(Context ctx, Message msg) throws IOException{
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        JsonCodec.writeMessage(ctx.outputStream(), msg);
+    }
+
+    private void writeJson(Context ctx, List<Message> messages) throws IOException{
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        JsonCodec.writeMessages(ctx.outputStream(), messages);
     }
-}
+}
\ No newline at end of file
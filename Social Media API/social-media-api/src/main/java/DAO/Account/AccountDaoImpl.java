@@ -22,21 +22,27 @@ public class AccountDaoImpl implements AccountDAO{
      * Returns null if unsuccessful
     */
     public Account insertAccount(Account user){
-        // Establish connection to DB
-        Connection connection = ConnectionUtil.getConnection();
-
         // SQL Logic
         try{
-            String sql = "INSERT INTO accounts (username, password) VALUES (?, ?)";
-
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getPassword());
+            return ConnectionUtil.write(connection -> {
+                // RETURNING hands back the stored row, including the new accountId, in the same round trip
+                String sql = "INSERT INTO accounts (username, password) VALUES (?, ?) RETURNING *";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setString(1, user.getUsername());
+                    ps.setString(2, user.getPassword());
+
+                    // Check if successful
+                    try(ResultSet rs = ps.executeQuery()){
+                        if(rs.next()){
+                            return extractAccountFromResultSet(rs);
+                        }
+                    }
+                }
 
-            // Check if successful
-            if(ps.executeUpdate() > 0){
-                return selectAccountByUserAndPass(user.getUsername(), user.getPassword());
-            }
+                // Return null if unsuccessful
+                return null;
+            });
         }
         catch(SQLException e){
             System.out.println("Failed to insert Account");
@@ -56,21 +62,19 @@ public class AccountDaoImpl implements AccountDAO{
      * Returns null if unsuccessful
     */
     public Account selectAccountById(int id){
-        // Establish connection to DB
-        Connection connection = ConnectionUtil.getConnection();
-
         // SQL Logic
-        try{
+        try(Connection connection = ConnectionUtil.getConnection()){
             String sql = "SELECT * FROM accounts WHERE accountId = ?";
 
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setInt(1, id);
-
-            ResultSet rs = ps.executeQuery();
+            try(PreparedStatement ps = connection.prepareStatement(sql)){
+                ps.setInt(1, id);
 
-            // Check if ResultSet is empty
-            if(rs.next()){
-                return extractAccountFromResultSet(rs);
+                try(ResultSet rs = ps.executeQuery()){
+                    // Check if ResultSet is empty
+                    if(rs.next()){
+                        return extractAccountFromResultSet(rs);
+                    }
+                }
             }
         }
         catch(SQLException e){
@@ -91,22 +95,20 @@ public class AccountDaoImpl implements AccountDAO{
      * Returns null if unsuccessful
     */
     public Account selectAccountByUserAndPass(String username, String password){
-        // Establish connection to DB
-        Connection connection = ConnectionUtil.getConnection();
-
         // SQL Logic
-        try{
+        try(Connection connection = ConnectionUtil.getConnection()){
             String sql = "SELECT * FROM accounts WHERE username = ? AND password = ?";
             
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, username);
-            ps.setString(2, password);
-
-            ResultSet rs = ps.executeQuery();
-
-            // Check if ResultSet is empty
-            if(rs.next()){
-                return extractAccountFromResultSet(rs);
+            try(PreparedStatement ps = connection.prepareStatement(sql)){
+                ps.setString(1, username);
+                ps.setString(2, password);
+
+                try(ResultSet rs = ps.executeQuery()){
+                    // Check if ResultSet is empty
+                    if(rs.next()){
+                        return extractAccountFromResultSet(rs);
+                    }
+                }
             }
         }
         catch(SQLException e){
@@ -127,22 +129,19 @@ public class AccountDaoImpl implements AccountDAO{
      * Returns an empty List if unsuccessful, or if no accounts exist
     */
     public List<Account> selectAllAccounts(){
-        // Establish connection to DB
-        Connection connection = ConnectionUtil.getConnection();
-
         List<Account> accounts = new ArrayList<>();
 
         // SQL Logic
-        try{
+        try(Connection connection = ConnectionUtil.getConnection()){
             String sql = "SELECT * FROM accounts";
 
-            PreparedStatement ps = connection.prepareStatement(sql);
-
-            ResultSet rs = ps.executeQuery();
-
-            // Loop through ResultSet
-            while(rs.next()){
-                accounts.add(extractAccountFromResultSet(rs));
+            try(PreparedStatement ps = connection.prepareStatement(sql)){
+                try(ResultSet rs = ps.executeQuery()){
+                    // Loop through ResultSet
+                    while(rs.next()){
+                        accounts.add(extractAccountFromResultSet(rs));
+                    }
+                }
             }
         }
         catch(SQLException e){
@@ -162,21 +161,28 @@ public class AccountDaoImpl implements AccountDAO{
      * Returns null if unsuccessful
     */
     public Account updateAccount(Account user){
-        // Establish connection to DB
-        Connection connection = ConnectionUtil.getConnection();
-
         // SQL Logic
         try{
-            String sql = "UPDATE accounts SET username = ?, password = ? WHERE accountId = ?";
-
-            PreparedStatement ps = connection.prepareStatement(sql);
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getPassword());
-            ps.setInt(3, user.getAccountId());
+            return ConnectionUtil.write(connection -> {
+                // RETURNING hands back the updated row in the same round trip
+                String sql = "UPDATE accounts SET username = ?, password = ? WHERE accountId = ? RETURNING *";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setString(1, user.getUsername());
+                    ps.setString(2, user.getPassword());
+                    ps.setInt(3, user.getAccountId());
+
+                    // Check if successful
+                    try(ResultSet rs = ps.executeQuery()){
+                        if(rs.next()){
+                            return extractAccountFromResultSet(rs);
+                        }
+                    }
+                }
 
-            if(ps.executeUpdate() > 0){
-                return selectAccountById(user.getAccountId());
-            }
+                // Return null if unsuccessful
+                return null;
+            });
         }
         catch(SQLException e){
             System.out.println("Failed to update Account");
@@ -196,26 +202,26 @@ public class AccountDaoImpl implements AccountDAO{
      * Returns null if unsuccessful
     */
     public Account deleteAccount(int id){
-        // Establish connection to DB
-        Connection connection = ConnectionUtil.getConnection();
-
         // SQL Logic
         try{
-            // Acquire Account data before deletion
-            Account deletedAccount = selectAccountById(id);
-
-            // Check if Account exists
-            if(deletedAccount != null){
-                String sql = "DELETE FROM accounts WHERE accountId = ?";
-
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setInt(1, id);
-
-                // Check if successful
-                if(ps.executeUpdate() > 0){
-                    return deletedAccount;
+            return ConnectionUtil.write(connection -> {
+                // RETURNING hands back the deleted row, so no select is needed beforehand
+                String sql = "DELETE FROM accounts WHERE accountId = ? RETURNING *";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, id);
+
+                    // Check if successful (no row means the Account did not exist)
+                    try(ResultSet rs = ps.executeQuery()){
+                        if(rs.next()){
+                            return extractAccountFromResultSet(rs);
+                        }
+                    }
                 }
-            }
+
+                // Return null if unsuccessful
+                return null;
+            });
         }
         catch(SQLException e){
             System.out.println("Failed to delete Account by ID");
@@ -0,0 +1,66 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: CachingAccountDao.java
+/* FILE DESCRIPTION: AccountDAO decorator that serves selectAccountById from a bounded read-through cache.
+ * Updates and deletes invalidate the affected entry.
+*/
+
+package DAO.Account;
+
+import Model.Account;
+import Utility.BoundedCache;
+
+public class CachingAccountDao extends ForwardingAccountDao {
+    // Accounts by accountId
+    private final BoundedCache<Integer, Account> cache;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 AccountDAO, 1 int, 1 long
+     * Caches up to maxSize Accounts, each for ttlMillis (0 = until evicted or invalidated)
+    */
+    public CachingAccountDao(AccountDAO delegate, int maxSize, long ttlMillis){
+        super(delegate);
+        this.cache = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    // Methods
+    // cache Getter Method
+    public BoundedCache<Integer, Account> getCache(){ return this.cache; }
+
+    @Override
+    public Account insertAccount(Account user){
+        Account inserted = delegate.insertAccount(user);
+
+        if(inserted != null){
+            cache.put(inserted.getAccountId(), inserted);
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public Account selectAccountById(int id){
+        return cache.get(id, delegate::selectAccountById);
+    }
+
+    @Override
+    public Account updateAccount(Account user){
+        try{
+            return delegate.updateAccount(user);
+        }
+        finally{
+            cache.invalidate(user.getAccountId());
+        }
+    }
+
+    @Override
+    public Account deleteAccount(int id){
+        try{
+            return delegate.deleteAccount(id);
+        }
+        finally{
+            cache.invalidate(id);
+        }
+    }
+}
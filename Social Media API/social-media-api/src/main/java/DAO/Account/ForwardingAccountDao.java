@@ -0,0 +1,38 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ForwardingAccountDao.java
+/* FILE DESCRIPTION: Base class for AccountDAO decorators; forwards every call to the wrapped AccountDAO
+ * so subclasses only override the methods they change
+*/
+
+package DAO.Account;
+
+import Model.Account;
+
+import java.util.List;
+
+public abstract class ForwardingAccountDao implements AccountDAO {
+    // Wrapped DAO
+    protected final AccountDAO delegate;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 AccountDAO
+    */
+    protected ForwardingAccountDao(AccountDAO delegate){
+        this.delegate = delegate;
+    }
+
+    // Methods
+    public Account insertAccount(Account user){ return delegate.insertAccount(user); }
+
+    public Account selectAccountById(int id){ return delegate.selectAccountById(id); }
+
+    public Account selectAccountByUserAndPass(String username, String password){ return delegate.selectAccountByUserAndPass(username, password); }
+
+    public List<Account> selectAllAccounts(){ return delegate.selectAllAccounts(); }
+
+    public Account updateAccount(Account user){ return delegate.updateAccount(user); }
+
+    public Account deleteAccount(int id){ return delegate.deleteAccount(id); }
+}
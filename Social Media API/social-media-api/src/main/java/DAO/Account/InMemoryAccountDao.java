@@ -0,0 +1,238 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: InMemoryAccountDao.java
+/* FILE DESCRIPTION: AccountDAO that keeps every Account in process memory instead of SQLite.
+ * Rows are stored as parallel columns (ids, usernames, passwords) found through an int-keyed IntIndexMap,
+ * with a username index that enforces the same uniqueness as the SQLite schema.
+ * One StampedLock guards the store; lookups are optimistic reads that take no lock unless a write overlaps.
+ * Useful as a hot tier, as a test double, and as a baseline for measuring SQLite overhead.
+*/
+
+package DAO.Account;
+
+import Model.Account;
+import Utility.IntIndexMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+public class InMemoryAccountDao implements AccountDAO {
+    private final StampedLock lock = new StampedLock();
+
+    // Columns
+    private int[] ids = new int[64];
+    private String[] usernames = new String[64];
+    private String[] passwords = new String[64];
+    private int size = 0;
+
+    // Indexes
+    private final IntIndexMap rowById = new IntIndexMap(64);
+    private final Map<String, Integer> idByUsername = new HashMap<>();
+    private int lastId = 0;
+
+    // Methods
+    /*
+     * Insert Account Method
+     * INPUT: 1 Account object
+     * OUTPUT: Account object
+     * Stores the given Account under the next accountId and returns it with the accountId
+     * Returns null if the username is taken or either field is null
+    */
+    public Account insertAccount(Account user){
+        if(user.getUsername() == null || user.getPassword() == null){
+            return null;
+        }
+
+        long stamp = lock.writeLock();
+        try{
+            if(idByUsername.containsKey(user.getUsername())){
+                return null;
+            }
+
+            if(size == ids.length){
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+                passwords = Arrays.copyOf(passwords, capacity);
+            }
+
+            int id = ++lastId;
+            ids[size] = id;
+            usernames[size] = user.getUsername();
+            passwords[size] = user.getPassword();
+            rowById.put(id, size);
+            idByUsername.put(user.getUsername(), id);
+            size++;
+
+            return new Account(id, user.getUsername(), user.getPassword());
+        }
+        finally{
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Select Account by ID Method
+     * INPUT: 1 int
+     * OUTPUT: Account object
+     * Returns the Account with the given ID, or null if there is none
+    */
+    public Account selectAccountById(int id){
+        long stamp = lock.tryOptimisticRead();
+        if(stamp != 0){
+            try{
+                Account user = readById(id);
+                if(lock.validate(stamp)){
+                    return user;
+                }
+            }
+            catch(RuntimeException e){
+                // Saw a half-resized column; retry under the lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try{
+            return readById(id);
+        }
+        finally{
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /*
+     * Select Account by Username and Password Method
+     * INPUT: 2 String
+     * OUTPUT: Account object
+     * Returns the Account with the given credentials, or null if there is none
+    */
+    public Account selectAccountByUserAndPass(String username, String password){
+        // HashMap is not safe to read during a write, so this takes the read lock
+        long stamp = lock.readLock();
+        try{
+            Integer id = idByUsername.get(username);
+            if(id == null){
+                return null;
+            }
+
+            Account user = readById(id);
+            return (user != null && user.getPassword().equals(password)) ? user : null;
+        }
+        finally{
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /*
+     * Select All Accounts Method
+     * INPUT: N/A
+     * OUTPUT: List of Account objects
+     * Returns every Account, ordered by accountId
+    */
+    public List<Account> selectAllAccounts(){
+        List<Account> accounts = new ArrayList<>();
+
+        long stamp = lock.readLock();
+        try{
+            for(int row = 0; row < size; row++){
+                accounts.add(new Account(ids[row], usernames[row], passwords[row]));
+            }
+        }
+        finally{
+            lock.unlockRead(stamp);
+        }
+
+        accounts.sort(Comparator.comparingInt(Account::getAccountId));
+        return accounts;
+    }
+
+    /*
+     * Update Account Method
+     * INPUT: 1 Account object
+     * OUTPUT: Account object
+     * Replaces the username and password of the Account with the given accountId and returns it
+     * Returns null if the Account does not exist, the new username belongs to someone else, or a field is null
+    */
+    public Account updateAccount(Account user){
+        if(user.getUsername() == null || user.getPassword() == null){
+            return null;
+        }
+
+        long stamp = lock.writeLock();
+        try{
+            int row = rowById.get(user.getAccountId());
+            if(row == IntIndexMap.NO_VALUE){
+                return null;
+            }
+
+            Integer owner = idByUsername.get(user.getUsername());
+            if(owner != null && owner != user.getAccountId()){
+                return null;
+            }
+
+            idByUsername.remove(usernames[row]);
+            idByUsername.put(user.getUsername(), user.getAccountId());
+            usernames[row] = user.getUsername();
+            passwords[row] = user.getPassword();
+
+            return new Account(user.getAccountId(), user.getUsername(), user.getPassword());
+        }
+        finally{
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Delete Account Method
+     * INPUT: 1 int
+     * OUTPUT: Account object
+     * Removes the Account with the given ID and returns it, or null if it does not exist
+    */
+    public Account deleteAccount(int id){
+        long stamp = lock.writeLock();
+        try{
+            int row = rowById.remove(id);
+            if(row == IntIndexMap.NO_VALUE){
+                return null;
+            }
+
+            Account deleted = new Account(id, usernames[row], passwords[row]);
+            idByUsername.remove(usernames[row]);
+
+            // Move the last row into the hole
+            int last = --size;
+            if(row != last){
+                ids[row] = ids[last];
+                usernames[row] = usernames[last];
+                passwords[row] = passwords[last];
+                rowById.put(ids[row], row);
+            }
+            usernames[last] = null;
+            passwords[last] = null;
+
+            return deleted;
+        }
+        finally{
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /*
+     * Read by ID Helper Method
+     * INPUT: 1 int
+     * OUTPUT: Account object
+     * Builds the Account stored for the id; callers hold the lock or validate an optimistic stamp
+    */
+    private Account readById(int id){
+        int row = rowById.get(id);
+        if(row == IntIndexMap.NO_VALUE){
+            return null;
+        }
+
+        return new Account(id, usernames[row], passwords[row]);
+    }
+}
@@ -0,0 +1,103 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: TimedAccountDao.java
+/* FILE DESCRIPTION: AccountDAO decorator that times every call to the wrapped DAO into a per-method LatencyHistogram,
+ * exported by /metrics as db_query_duration_seconds. The timers are looked up once here, so each call only
+ * reads the clock twice and records without locking or allocating.
+*/
+
+package DAO.Account;
+
+import Model.Account;
+import Utility.LatencyHistogram;
+import Utility.Metrics;
+
+import java.util.List;
+
+public class TimedAccountDao extends ForwardingAccountDao {
+    // Timers by method
+    private final LatencyHistogram insertAccountTimer;
+    private final LatencyHistogram selectAccountByIdTimer;
+    private final LatencyHistogram selectAccountByUserAndPassTimer;
+    private final LatencyHistogram selectAllAccountsTimer;
+    private final LatencyHistogram updateAccountTimer;
+    private final LatencyHistogram deleteAccountTimer;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 AccountDAO
+     * Times the given DAO, labelling its timers with its class name (e.g. AccountDaoImpl)
+    */
+    public TimedAccountDao(AccountDAO delegate){
+        super(delegate);
+
+        String dao = delegate.getClass().getSimpleName();
+        this.insertAccountTimer = Metrics.queryTimer(dao, "insertAccount");
+        this.selectAccountByIdTimer = Metrics.queryTimer(dao, "selectAccountById");
+        this.selectAccountByUserAndPassTimer = Metrics.queryTimer(dao, "selectAccountByUserAndPass");
+        this.selectAllAccountsTimer = Metrics.queryTimer(dao, "selectAllAccounts");
+        this.updateAccountTimer = Metrics.queryTimer(dao, "updateAccount");
+        this.deleteAccountTimer = Metrics.queryTimer(dao, "deleteAccount");
+    }
+
+    // Methods
+    public Account insertAccount(Account user){
+        long start = System.nanoTime();
+        try{
+            return delegate.insertAccount(user);
+        }
+        finally{
+            insertAccountTimer.recordSince(start);
+        }
+    }
+
+    public Account selectAccountById(int id){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectAccountById(id);
+        }
+        finally{
+            selectAccountByIdTimer.recordSince(start);
+        }
+    }
+
+    public Account selectAccountByUserAndPass(String username, String password){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectAccountByUserAndPass(username, password);
+        }
+        finally{
+            selectAccountByUserAndPassTimer.recordSince(start);
+        }
+    }
+
+    public List<Account> selectAllAccounts(){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectAllAccounts();
+        }
+        finally{
+            selectAllAccountsTimer.recordSince(start);
+        }
+    }
+
+    public Account updateAccount(Account user){
+        long start = System.nanoTime();
+        try{
+            return delegate.updateAccount(user);
+        }
+        finally{
+            updateAccountTimer.recordSince(start);
+        }
+    }
+
+    public Account deleteAccount(int id){
+        long start = System.nanoTime();
+        try{
+            return delegate.deleteAccount(id);
+        }
+        finally{
+            deleteAccountTimer.recordSince(start);
+        }
+    }
+}
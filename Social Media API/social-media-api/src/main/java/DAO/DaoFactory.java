@@ -0,0 +1,128 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: DaoFactory.java
+/* FILE DESCRIPTION: Class that builds the configured DAO implementations, wrapping them in
+ * the optional decorators enabled through AppConfig
+ * db.backend=memory swaps SQLite for the in-memory DAOs, which need no cache or group commit in front
+*/
+
+package DAO;
+
+import DAO.Account.AccountDAO;
+import DAO.Account.AccountDaoImpl;
+import DAO.Account.CachingAccountDao;
+import DAO.Account.InMemoryAccountDao;
+import DAO.Account.TimedAccountDao;
+import DAO.Follow.FollowDAO;
+import DAO.Follow.FollowDaoImpl;
+import DAO.Follow.InMemoryFollowDao;
+import DAO.Message.CachingMessageDao;
+import DAO.Message.GroupCommitMessageDao;
+import DAO.Message.InMemoryMessageDao;
+import DAO.Message.MessageDAO;
+import DAO.Message.MessageDaoImpl;
+import DAO.Message.TimedMessageDao;
+import Utility.AppConfig;
+
+public class DaoFactory {
+    // Storage backends
+    public static final String SQLITE = "sqlite";
+    public static final String MEMORY = "memory";
+
+    /*
+     * Is In Memory Method
+     * INPUT: N/A
+     * OUTPUT: 1 boolean
+     * Returns true if db.backend is memory, so nothing is read from or written to SQLite
+    */
+    public static boolean isInMemory(){
+        return MEMORY.equalsIgnoreCase(AppConfig.getString("db.backend", SQLITE));
+    }
+
+    /*
+     * Create Account DAO Method
+     * INPUT: N/A
+     * OUTPUT: AccountDAO
+     * Returns the AccountDAO the service should use
+     * With db.backend=memory, Accounts live only in process memory
+     * With metrics.enabled, every SQLite call is timed (cache hits are not, since the cache sits in front)
+     * With cache.enabled, lookups by accountId are served from a read-through cache
+    */
+    public static AccountDAO createAccountDao(){
+        if(isInMemory()){
+            return new InMemoryAccountDao();
+        }
+
+        AccountDAO accountDao = new AccountDaoImpl();
+
+        if(AppConfig.getBoolean("metrics.enabled", true)){
+            accountDao = new TimedAccountDao(accountDao);
+        }
+
+        if(AppConfig.getBoolean("cache.enabled", true)){
+            accountDao = new CachingAccountDao(
+                accountDao,
+                AppConfig.getInt("cache.accounts.maxSize", 10_000),
+                AppConfig.getLong("cache.ttlMs", 300_000)
+            );
+        }
+
+        return accountDao;
+    }
+
+    /*
+     * Create Message DAO Method
+     * INPUT: N/A
+     * OUTPUT: MessageDAO
+     * Returns the MessageDAO the service should use
+     * With db.backend=memory, Messages live only in process memory
+     * With metrics.enabled, every SQLite call is timed (cache hits are not, since the cache sits in front)
+     * With db.groupCommit.enabled, inserts are funneled through a group-commit writer
+     * With cache.enabled, lookups by messageId are served from a read-through cache
+    */
+    public static MessageDAO createMessageDao(){
+        if(isInMemory()){
+            return new InMemoryMessageDao();
+        }
+
+        MessageDAO messageDao = new MessageDaoImpl();
+
+        if(AppConfig.getBoolean("metrics.enabled", true)){
+            messageDao = new TimedMessageDao(messageDao);
+        }
+
+        if(AppConfig.getBoolean("db.groupCommit.enabled", false)){
+            messageDao = new GroupCommitMessageDao(
+                messageDao,
+                AppConfig.getInt("db.groupCommit.maxBatchSize", 256),
+                AppConfig.getLong("db.groupCommit.maxLingerMicros", 2_000),
+                AppConfig.getInt("db.groupCommit.queueCapacity", 10_000),
+                AppConfig.getLong("db.groupCommit.enqueueTimeoutMs", 1_000)
+            );
+        }
+
+        if(AppConfig.getBoolean("cache.enabled", true)){
+            messageDao = new CachingMessageDao(
+                messageDao,
+                AppConfig.getInt("cache.messages.maxSize", 10_000),
+                AppConfig.getLong("cache.ttlMs", 300_000)
+            );
+        }
+
+        return messageDao;
+    }
+
+    /*
+     * Create Follow DAO Method
+     * INPUT: N/A
+     * OUTPUT: FollowDAO
+     * Returns the FollowDAO the service should use
+     * With db.backend=memory, the follow graph lives only in process memory
+    */
+    public static FollowDAO createFollowDao(){
+        if(isInMemory()){
+            return new InMemoryFollowDao();
+        }
+
+        return new FollowDaoImpl();
+    }
+}
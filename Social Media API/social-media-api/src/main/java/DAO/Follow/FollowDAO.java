@@ -0,0 +1,23 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: FollowDAO.java
+/* FILE DESCRIPTION: Interface that defines CRUD behavior for the follow graph between accounts.
+*/
+
+package DAO.Follow;
+
+public interface FollowDAO {
+    // Create Follow, returns true if followerId now follows followeeId (including if it already did)
+    public boolean insertFollow(int followerId, int followeeId);
+
+    // Delete Follow, returns true if a follow was removed
+    public boolean deleteFollow(int followerId, int followeeId);
+
+    // Retrieve the accountIds following followeeId
+    public int[] selectFollowerIds(int followeeId);
+
+    // Retrieve the accountIds followerId follows
+    public int[] selectFolloweeIds(int followerId);
+
+    // Count the accounts following followeeId
+    public int countFollowers(int followeeId);
+}
@@ -0,0 +1,163 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: FollowDaoImpl.java
+/* FILE DESCRIPTION: Class that implements the FollowDAO interface on the SQLite follows table
+*/
+
+package DAO.Follow;
+
+import Utility.ConnectionUtil;
+
+import java.sql.*;
+import java.util.Arrays;
+
+public class FollowDaoImpl implements FollowDAO {
+    /*
+     * Insert Follow Method
+     * INPUT: 2 int
+     * OUTPUT: 1 boolean
+     * Stores that followerId follows followeeId; following again is not an error
+     * Returns false if unsuccessful
+    */
+    public boolean insertFollow(int followerId, int followeeId){
+        // SQL Logic
+        try{
+            return ConnectionUtil.write(connection -> {
+                String sql = "INSERT OR IGNORE INTO follows (followerId, followeeId) VALUES (?, ?)";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, followerId);
+                    ps.setInt(2, followeeId);
+                    ps.executeUpdate();
+                }
+
+                return true;
+            });
+        }
+        catch(SQLException e){
+            System.out.println("Failed to insert Follow");
+            System.out.println(e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /*
+     * Delete Follow Method
+     * INPUT: 2 int
+     * OUTPUT: 1 boolean
+     * Removes the follow from followerId to followeeId
+     * Returns false if there was no such follow, or if unsuccessful
+    */
+    public boolean deleteFollow(int followerId, int followeeId){
+        // SQL Logic
+        try{
+            return ConnectionUtil.write(connection -> {
+                String sql = "DELETE FROM follows WHERE followerId = ? AND followeeId = ?";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, followerId);
+                    ps.setInt(2, followeeId);
+
+                    return ps.executeUpdate() > 0;
+                }
+            });
+        }
+        catch(SQLException e){
+            System.out.println("Failed to delete Follow");
+            System.out.println(e.getMessage());
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /*
+     * Select Follower IDs Method
+     * INPUT: 1 int
+     * OUTPUT: 1 int array
+     * Retrieves the accountIds following followeeId, read straight from the idx_follows_followee index
+     * Returns an empty array if unsuccessful
+    */
+    public int[] selectFollowerIds(int followeeId){
+        return selectIds("SELECT followerId FROM follows WHERE followeeId = ?", followeeId);
+    }
+
+    /*
+     * Select Followee IDs Method
+     * INPUT: 1 int
+     * OUTPUT: 1 int array
+     * Retrieves the accountIds followerId follows, read straight from the primary key
+     * Returns an empty array if unsuccessful
+    */
+    public int[] selectFolloweeIds(int followerId){
+        return selectIds("SELECT followeeId FROM follows WHERE followerId = ?", followerId);
+    }
+
+    /*
+     * Count Followers Method
+     * INPUT: 1 int
+     * OUTPUT: 1 int
+     * Counts the accounts following followeeId
+     * Returns 0 if unsuccessful
+    */
+    public int countFollowers(int followeeId){
+        // SQL Logic
+        try(Connection connection = ConnectionUtil.getConnection()){
+            String sql = "SELECT COUNT(*) FROM follows WHERE followeeId = ?";
+
+            try(PreparedStatement ps = connection.prepareStatement(sql)){
+                ps.setInt(1, followeeId);
+
+                try(ResultSet rs = ps.executeQuery()){
+                    if(rs.next()){
+                        return rs.getInt(1);
+                    }
+                }
+            }
+        }
+        catch(SQLException e){
+            System.out.println("Failed to count Followers");
+            System.out.println(e.getMessage());
+            e.printStackTrace();
+        }
+
+        return 0;
+    }
+
+    /*
+     * Select IDs Helper Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: 1 int array
+     * Runs a single-column id query into a growing int array, with no boxing per row
+    */
+    private int[] selectIds(String sql, int id){
+        // SQL Logic
+        try(Connection connection = ConnectionUtil.getConnection()){
+            try(PreparedStatement ps = connection.prepareStatement(sql)){
+                ps.setInt(1, id);
+
+                try(ResultSet rs = ps.executeQuery()){
+                    int[] ids = new int[16];
+                    int count = 0;
+
+                    while(rs.next()){
+                        if(count == ids.length){
+                            ids = Arrays.copyOf(ids, count * 2);
+                        }
+                        ids[count++] = rs.getInt(1);
+                    }
+
+                    return Arrays.copyOf(ids, count);
+                }
+            }
+        }
+        catch(SQLException e){
+            System.out.println("Failed to retrieve Follow IDs");
+            System.out.println(e.getMessage());
+            e.printStackTrace();
+        }
+
+        return new int[0];
+    }
+}
@@ -0,0 +1,88 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: InMemoryFollowDao.java
+/* FILE DESCRIPTION: FollowDAO that keeps the follow graph in process memory instead of SQLite.
+ * Each edge is stored twice, once in the follower's followee set and once in the followee's follower set,
+ * so both directions are a single lookup. Methods synchronize on the DAO; follows change rarely next to reads.
+*/
+
+package DAO.Follow;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class InMemoryFollowDao implements FollowDAO {
+    // Edges in both directions
+    private final Map<Integer, Set<Integer>> followersById = new HashMap<>();
+    private final Map<Integer, Set<Integer>> followeesById = new HashMap<>();
+
+    // Methods
+    /*
+     * Insert Follow Method
+     * INPUT: 2 int
+     * OUTPUT: 1 boolean
+     * Stores that followerId follows followeeId; following again is not an error
+    */
+    public synchronized boolean insertFollow(int followerId, int followeeId){
+        followersById.computeIfAbsent(followeeId, id -> new LinkedHashSet<>()).add(followerId);
+        followeesById.computeIfAbsent(followerId, id -> new LinkedHashSet<>()).add(followeeId);
+
+        return true;
+    }
+
+    /*
+     * Delete Follow Method
+     * INPUT: 2 int
+     * OUTPUT: 1 boolean
+     * Removes the follow from followerId to followeeId, returns false if there was none
+    */
+    public synchronized boolean deleteFollow(int followerId, int followeeId){
+        Set<Integer> followees = followeesById.get(followerId);
+        if(followees == null || !followees.remove(followeeId)){
+            return false;
+        }
+        if(followees.isEmpty()){
+            followeesById.remove(followerId);
+        }
+
+        Set<Integer> followers = followersById.get(followeeId);
+        followers.remove(followerId);
+        if(followers.isEmpty()){
+            followersById.remove(followeeId);
+        }
+
+        return true;
+    }
+
+    // Retrieve the accountIds following followeeId
+    public synchronized int[] selectFollowerIds(int followeeId){
+        return toArray(followersById.get(followeeId));
+    }
+
+    // Retrieve the accountIds followerId follows
+    public synchronized int[] selectFolloweeIds(int followerId){
+        return toArray(followeesById.get(followerId));
+    }
+
+    // Count the accounts following followeeId
+    public synchronized int countFollowers(int followeeId){
+        Set<Integer> followers = followersById.get(followeeId);
+
+        return (followers == null) ? 0 : followers.size();
+    }
+
+    private static int[] toArray(Set<Integer> ids){
+        if(ids == null){
+            return new int[0];
+        }
+
+        int[] result = new int[ids.size()];
+        int i = 0;
+        for(int id : ids){
+            result[i++] = id;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: CachingMessageDao.java
+/* FILE DESCRIPTION: MessageDAO decorator that serves selectMessageById from a bounded read-through cache.
+ * Updates and deletes invalidate the affected entry.
+*/
+
+package DAO.Message;
+
+import Model.Message;
+import Utility.BoundedCache;
+import Utility.DbExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class CachingMessageDao extends ForwardingMessageDao {
+    // Messages by messageId
+    private final BoundedCache<Integer, Message> cache;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 MessageDAO, 1 int, 1 long
+     * Caches up to maxSize Messages, each for ttlMillis (0 = until evicted or invalidated)
+    */
+    public CachingMessageDao(MessageDAO delegate, int maxSize, long ttlMillis){
+        super(delegate);
+        this.cache = new BoundedCache<>(maxSize, ttlMillis);
+    }
+
+    // Methods
+    // cache Getter Method
+    public BoundedCache<Integer, Message> getCache(){ return this.cache; }
+
+    @Override
+    public Message insertMessage(Message msg){
+        Message inserted = delegate.insertMessage(msg);
+
+        if(inserted != null){
+            cache.put(inserted.getMessageId(), inserted);
+        }
+
+        return inserted;
+    }
+
+    @Override
+    public CompletableFuture<Message> insertMessageAsync(Message msg, DbExecutor executor){
+        return delegate.insertMessageAsync(msg, executor).thenApply(inserted -> {
+            if(inserted != null){
+                cache.put(inserted.getMessageId(), inserted);
+            }
+
+            return inserted;
+        });
+    }
+
+    @Override
+    public Message selectMessageById(int id){
+        return cache.get(id, delegate::selectMessageById);
+    }
+
+    @Override
+    public List<Message> selectMessagesByIds(int[] ids){
+        List<Integer> keys = new ArrayList<>(ids.length);
+        for(int id : ids){
+            keys.add(id);
+        }
+
+        // Only the ids missing from the cache go to the delegate, all in one call
+        Map<Integer, Message> found = cache.getAll(keys, missing -> {
+            Map<Integer, Message> loaded = new HashMap<>();
+            for(Message msg : delegate.selectMessagesByIds(missing.stream().mapToInt(Integer::intValue).toArray())){
+                loaded.put(msg.getMessageId(), msg);
+            }
+            return loaded;
+        });
+
+        return new ArrayList<>(found.values());
+    }
+
+    @Override
+    public Message updateMessage(int id, String newText){
+        try{
+            return delegate.updateMessage(id, newText);
+        }
+        finally{
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public Message deleteMessage(int id){
+        try{
+            return delegate.deleteMessage(id);
+        }
+        finally{
+            cache.invalidate(id);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ForwardingMessageDao.java
+/* FILE DESCRIPTION: Base class for MessageDAO decorators; forwards every call to the wrapped MessageDAO
+ * so subclasses only override the methods they change
+ * insertMessageAsync is the exception: its default runs this decorator's insertMessage, so a decorator that
+ * only overrides insertMessage still applies; decorators over a queueing DAO override it to pass it on
+*/
+
+package DAO.Message;
+
+import Model.Message;
+
+import java.util.List;
+
+public abstract class ForwardingMessageDao implements MessageDAO {
+    // Wrapped DAO
+    protected final MessageDAO delegate;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 MessageDAO
+    */
+    protected ForwardingMessageDao(MessageDAO delegate){
+        this.delegate = delegate;
+    }
+
+    // Methods
+    public Message insertMessage(Message msg){ return delegate.insertMessage(msg); }
+
+    public List<Message> insertMessages(List<Message> msgs){ return delegate.insertMessages(msgs); }
+
+    public Message selectMessageById(int id){ return delegate.selectMessageById(id); }
+
+    public List<Message> selectMessagesByIds(int[] ids){ return delegate.selectMessagesByIds(ids); }
+
+    public Message selectMessageByData(Message msg){ return delegate.selectMessageByData(msg); }
+
+    public List<Message> selectAllMessagesFromUser(int accountId){ return delegate.selectAllMessagesFromUser(accountId); }
+
+    public long selectMessageListVersion(int accountId){ return delegate.selectMessageListVersion(accountId); }
+
+    public List<Message> selectAllMessages(){ return delegate.selectAllMessages(); }
+
+    public int forEachMessage(MessageVisitor visitor){ return delegate.forEachMessage(visitor); }
+
+    public List<Message> selectMessagesAfter(long afterTimePostedEpoch, int afterMessageId, int limit){
+        return delegate.selectMessagesAfter(afterTimePostedEpoch, afterMessageId, limit);
+    }
+
+    public List<Message> selectMessagesFromUserAfter(int accountId, long afterTimePostedEpoch, int afterMessageId, int limit){
+        return delegate.selectMessagesFromUserAfter(accountId, afterTimePostedEpoch, afterMessageId, limit);
+    }
+
+    public List<Message> searchMessages(String query, int offset, int limit){
+        return delegate.searchMessages(query, offset, limit);
+    }
+
+    public Message updateMessage(int id, String newText){ return delegate.updateMessage(id, newText); }
+
+    public Message deleteMessage(int id){ return delegate.deleteMessage(id); }
+
+    public void close(){ delegate.close(); }
+}
@@ -0,0 +1,249 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: GroupCommitMessageDao.java
+/* FILE DESCRIPTION: MessageDAO decorator that group-commits inserts.
+ * Callers enqueue their Message and wait on a future; a single writer thread drains the queue and
+ * stores each batch with one transaction, so SQLite syncs once per batch instead of once per Message.
+ * Futures are completed on the common pool, not the writer, so whatever callers chain onto them
+ * never delays the next batch.
+*/
+
+package DAO.Message;
+
+import Model.Message;
+import Utility.DbExecutor;
+import Utility.OverloadedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class GroupCommitMessageDao extends ForwardingMessageDao {
+    // Settings
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final long enqueueTimeoutMs;
+
+    // Writer state
+    private final BlockingQueue<PendingInsert> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Statistics
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder rowCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 MessageDAO, 1 int, 2 long, 1 int
+     * Wraps the given DAO and starts the writer thread
+     * maxLingerMicros is how long the writer waits for more inserts once a batch has started
+     * Callers block for up to enqueueTimeoutMs when the queue is full before being rejected
+    */
+    public GroupCommitMessageDao(MessageDAO delegate, int maxBatchSize, long maxLingerMicros, int queueCapacity, long enqueueTimeoutMs){
+        super(delegate);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MICROSECONDS.toNanos(maxLingerMicros);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.writer = new Thread(this::runWriter, "message-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Methods
+    /*
+     * Insert Message Method
+     * INPUT: 1 Message object
+     * OUTPUT: Message object
+     * Queues the Message for the next group commit and waits for it to be stored
+     * Returns null if unsuccessful; rethrows the writer's exception if the batch could not be run at all
+    */
+    @Override
+    public Message insertMessage(Message msg){
+        try{
+            return insertMessageAsync(msg).join();
+        }
+        catch(CompletionException e){
+            throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /*
+     * Insert Message Async Method
+     * INPUT: 1 Message object
+     * OUTPUT: CompletableFuture of Message object
+     * Queues the Message for the next group commit; the future completes with the stored Message, or null if unsuccessful,
+     * and completes exceptionally if the writer failed while running its batch
+     * Blocks while the queue is full, and throws OverloadedException if no space frees up in time
+    */
+    public CompletableFuture<Message> insertMessageAsync(Message msg){
+        PendingInsert pending = new PendingInsert(msg);
+
+        try{
+            if(!running || !queue.offer(pending, enqueueTimeoutMs, TimeUnit.MILLISECONDS)){
+                rejectedCount.increment();
+                throw new OverloadedException("Message write queue is full", 1);
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while queueing Message", 1);
+        }
+
+        return pending.future;
+    }
+
+    /*
+     * Insert Message Async Method
+     * INPUT: 1 Message object, 1 DbExecutor
+     * OUTPUT: CompletableFuture of Message object
+     * Queues the Message straight for the writer; no database thread is held while its batch fills
+    */
+    @Override
+    public CompletableFuture<Message> insertMessageAsync(Message msg, DbExecutor executor){
+        return insertMessageAsync(msg);
+    }
+
+    /*
+     * Close Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Stops accepting inserts, lets the writer flush what is queued and waits for it to finish, then closes the wrapped DAO
+    */
+    @Override
+    public void close(){
+        running = false;
+
+        try{
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        super.close();
+    }
+
+    // Statistics Getter Methods
+    // Number of inserts waiting for the writer
+    public int getQueueDepth(){ return queue.size(); }
+    // Number of batches committed
+    public long getBatchCount(){ return batchCount.sum(); }
+    // Number of Messages committed
+    public long getRowCount(){ return rowCount.sum(); }
+    // Number of inserts rejected because the queue was full
+    public long getRejectedCount(){ return rejectedCount.sum(); }
+
+    /*
+     * Writer Loop Helper Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Takes the first waiting insert, then keeps collecting until the batch is full
+     * or maxLinger has passed since the batch started, and commits it
+    */
+    private void runWriter(){
+        List<PendingInsert> batch = new ArrayList<>(maxBatchSize);
+
+        while(running || !queue.isEmpty()){
+            try{
+                PendingInsert first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null){
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while(batch.size() < maxBatchSize){
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+
+                    long remaining = deadline - System.nanoTime();
+                    if(batch.size() >= maxBatchSize || remaining <= 0){
+                        break;
+                    }
+
+                    PendingInsert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if(next == null){
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                commit(batch);
+            }
+            catch(InterruptedException e){
+                running = false;
+            }
+            catch(RuntimeException e){
+                System.out.println("Group commit writer failed");
+                e.printStackTrace();
+                // Not the caller's fault, so not a null (400); it reaches them as a server error
+                batch.forEach(pending -> pending.future.completeExceptionally(e));
+            }
+            finally{
+                batch.clear();
+            }
+        }
+    }
+
+    /*
+     * Commit Batch Helper Method
+     * INPUT: 1 List of PendingInsert objects
+     * OUTPUT: N/A
+     * Stores the batch in one transaction and completes each caller's future with its stored Message, off the writer thread
+     * If the batch fails as a whole, retries the rows one by one so one bad row does not fail the others
+    */
+    private void commit(List<PendingInsert> batch){
+        List<Message> msgs = new ArrayList<>(batch.size());
+        for(PendingInsert pending : batch){
+            msgs.add(pending.msg);
+        }
+
+        List<Message> stored = delegate.insertMessages(msgs);
+
+        if(stored.size() == batch.size()){
+            batchCount.increment();
+            rowCount.add(stored.size());
+
+            for(int i = 0; i < batch.size(); i++){
+                Message msg = stored.get(i);
+                batch.get(i).future.completeAsync(() -> msg);
+            }
+            return;
+        }
+
+        // Every row is stored before any future completes, so a failure part way through fails them all
+        // instead of racing completions already handed off
+        Message[] results = new Message[batch.size()];
+        for(int i = 0; i < batch.size(); i++){
+            results[i] = delegate.insertMessage(batch.get(i).msg);
+            if(results[i] != null){
+                rowCount.increment();
+            }
+        }
+        for(int i = 0; i < batch.size(); i++){
+            Message msg = results[i];
+            batch.get(i).future.completeAsync(() -> msg);
+        }
+    }
+
+    /*
+     * Pending Insert Class
+     * A queued Message and the future its caller is waiting on
+    */
+    private static class PendingInsert {
+        private final Message msg;
+        private final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        private PendingInsert(Message msg){
+            this.msg = msg;
+        }
+    }
+}
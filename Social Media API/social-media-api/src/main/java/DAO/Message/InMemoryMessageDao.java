@@ -0,0 +1,546 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: InMemoryMessageDao.java
+/* FILE DESCRIPTION: MessageDAO that keeps every Message in process memory instead of SQLite.
+ * Messages are split into stripes by messageId; each stripe stores its rows as parallel primitive
+ * columns (ids, postedBy, timePostedEpoch, version, plus the text) found through an int-keyed IntIndexMap,
+ * so there is no Integer boxing and no Message object per stored row.
+ * Each stripe has its own StampedLock: lookups by id are optimistic reads that take no lock at all,
+ * and writes to different stripes never wait on each other.
+ * Each account's Message list version is a counter bumped after every write to their Messages.
+ * Useful as a hot tier, as a test double, and as a baseline for measuring SQLite overhead.
+*/
+
+package DAO.Message;
+
+import Model.Message;
+import Utility.IntIndexMap;
+import Utility.SearchQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+public class InMemoryMessageDao implements MessageDAO {
+    // Number of stripes, a power of two
+    private static final int STRIPES = 16;
+
+    // Keyset order used by the paged queries
+    private static final Comparator<Message> BY_TIME_THEN_ID =
+        Comparator.comparingLong(Message::getTimePostedEpoch).thenComparingInt(Message::getMessageId);
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    // Message list version by accountId
+    private final ConcurrentHashMap<Integer, AtomicLong> listVersions = new ConcurrentHashMap<>();
+
+    // Constructors
+    // No-arg constructor
+    public InMemoryMessageDao(){
+        for(int i = 0; i < STRIPES; i++){
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Methods
+    /*
+     * Insert Message Method
+     * INPUT: 1 Message object
+     * OUTPUT: Message object
+     * Stores the given Message under the next messageId and returns it with the messageId
+     * Returns null if the messageText is null (the column is NOT NULL in SQLite)
+    */
+    public Message insertMessage(Message msg){
+        if(msg.getMessageText() == null){
+            return null;
+        }
+
+        int id = lastId.incrementAndGet();
+        stripeFor(id).insert(id, msg.getPostedBy(), msg.getMessageText(), msg.getTimePostedEpoch());
+        bumpListVersion(msg.getPostedBy());
+
+        return new Message(id, msg.getPostedBy(), msg.getMessageText(), msg.getTimePostedEpoch());
+    }
+
+    /*
+     * Insert Messages Method
+     * INPUT: 1 List of Message objects
+     * OUTPUT: List of Message objects
+     * Stores every Message under a block of consecutive messageIds and returns them with their messageIds
+     * Returns an empty List, storing nothing, if any messageText is null
+    */
+    public List<Message> insertMessages(List<Message> msgs){
+        List<Message> inserted = new ArrayList<>(msgs.size());
+
+        for(Message msg : msgs){
+            if(msg.getMessageText() == null){
+                return inserted;
+            }
+        }
+
+        int firstId = lastId.getAndAdd(msgs.size()) + 1;
+        for(int i = 0; i < msgs.size(); i++){
+            Message msg = msgs.get(i);
+            stripeFor(firstId + i).insert(firstId + i, msg.getPostedBy(), msg.getMessageText(), msg.getTimePostedEpoch());
+            inserted.add(new Message(firstId + i, msg.getPostedBy(), msg.getMessageText(), msg.getTimePostedEpoch()));
+        }
+        for(Message msg : msgs){
+            bumpListVersion(msg.getPostedBy());
+        }
+
+        return inserted;
+    }
+
+    /*
+     * Select Message by ID Method
+     * INPUT: 1 int
+     * OUTPUT: Message object
+     * Returns the Message with the given ID, or null if there is none
+    */
+    public Message selectMessageById(int id){
+        return stripeFor(id).find(id);
+    }
+
+    /*
+     * Select Messages by IDs Method
+     * INPUT: 1 int array
+     * OUTPUT: List of Message objects
+     * Returns the Messages with the given IDs, skipping IDs that have none
+    */
+    public List<Message> selectMessagesByIds(int[] ids){
+        List<Message> messages = new ArrayList<>(ids.length);
+
+        for(int id : ids){
+            Message msg = stripeFor(id).find(id);
+            if(msg != null){
+                messages.add(msg);
+            }
+        }
+
+        return messages;
+    }
+
+    /*
+     * Select Message by Data Method
+     * INPUT: 1 Message object
+     * OUTPUT: Message object
+     * Returns the first Message with the same postedBy, messageText and timePostedEpoch, or null if there is none
+    */
+    public Message selectMessageByData(Message msg){
+        List<Message> matches = new ArrayList<>();
+        for(Stripe stripe : stripes){
+            stripe.collect(matches, row -> row.postedBy == msg.getPostedBy()
+                && row.timePostedEpoch == msg.getTimePostedEpoch()
+                && row.messageText.equals(msg.getMessageText()));
+        }
+
+        return matches.stream().min(Comparator.comparingInt(Message::getMessageId)).orElse(null);
+    }
+
+    /*
+     * Select all Messages from User Method
+     * INPUT: 1 int
+     * OUTPUT: List of Message objects
+     * Returns every Message posted by the given accountId, ordered by (timePostedEpoch, messageId)
+    */
+    public List<Message> selectAllMessagesFromUser(int accountId){
+        List<Message> messages = new ArrayList<>();
+        for(Stripe stripe : stripes){
+            stripe.collect(messages, row -> row.postedBy == accountId);
+        }
+
+        messages.sort(BY_TIME_THEN_ID);
+        return messages;
+    }
+
+    /*
+     * Select Message List Version Method
+     * INPUT: 1 int
+     * OUTPUT: 1 long
+     * Returns the version of the given accountId's Message list, or 0 if they never posted
+    */
+    public long selectMessageListVersion(int accountId){
+        AtomicLong version = listVersions.get(accountId);
+        return (version == null) ? 0 : version.get();
+    }
+
+    /*
+     * Select all Messages Method
+     * INPUT: N/A
+     * OUTPUT: List of Message objects
+     * Returns every Message, ordered by messageId
+    */
+    public List<Message> selectAllMessages(){
+        List<Message> messages = new ArrayList<>();
+        for(Stripe stripe : stripes){
+            stripe.collect(messages, row -> true);
+        }
+
+        messages.sort(Comparator.comparingInt(Message::getMessageId));
+        return messages;
+    }
+
+    /*
+     * For Each Message Method
+     * INPUT: 1 MessageVisitor
+     * OUTPUT: 1 int
+     * Visits every Message in messageId order with one reused Message object
+     * Only the ids are copied up front; each row is read when it is visited
+    */
+    public int forEachMessage(MessageVisitor visitor){
+        int[] ids = new int[0];
+        int count = 0;
+        for(Stripe stripe : stripes){
+            long stamp = stripe.lock.readLock();
+            try{
+                ids = Arrays.copyOf(ids, count + stripe.size);
+                System.arraycopy(stripe.ids, 0, ids, count, stripe.size);
+                count += stripe.size;
+            }
+            finally{
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        Arrays.sort(ids, 0, count);
+
+        Message msg = new Message();
+        int visited = 0;
+        for(int i = 0; i < count; i++){
+            // Skip rows deleted since the ids were copied
+            if(!stripeFor(ids[i]).fill(ids[i], msg)){
+                continue;
+            }
+            visited++;
+
+            if(!visitor.visit(msg)){
+                break;
+            }
+        }
+
+        return visited;
+    }
+
+    /*
+     * Select Messages After Method
+     * INPUT: 1 long, 2 int
+     * OUTPUT: List of Message objects
+     * Returns up to limit Messages ordered by (timePostedEpoch, messageId) that come after the given position
+    */
+    public List<Message> selectMessagesAfter(long afterTimePostedEpoch, int afterMessageId, int limit){
+        List<Message> messages = new ArrayList<>();
+        for(Stripe stripe : stripes){
+            stripe.collect(messages, row -> row.isAfter(afterTimePostedEpoch, afterMessageId));
+        }
+
+        return firstPage(messages, limit);
+    }
+
+    /*
+     * Select Messages From User After Method
+     * INPUT: 1 int, 1 long, 2 int
+     * OUTPUT: List of Message objects
+     * Returns up to limit of the user's Messages ordered by (timePostedEpoch, messageId) that come after the given position
+    */
+    public List<Message> selectMessagesFromUserAfter(int accountId, long afterTimePostedEpoch, int afterMessageId, int limit){
+        List<Message> messages = new ArrayList<>();
+        for(Stripe stripe : stripes){
+            stripe.collect(messages, row -> row.postedBy == accountId && row.isAfter(afterTimePostedEpoch, afterMessageId));
+        }
+
+        return firstPage(messages, limit);
+    }
+
+    /*
+     * Search Messages Method
+     * INPUT: 1 String, 2 int
+     * OUTPUT: List of Message objects
+     * Returns up to limit Messages containing every term of the query after skipping offset matches
+     * Scans every row; matches are ranked by the share of their terms that are query terms (a rough stand-in for
+     * the SQLite backend's bm25), then by messageId
+    */
+    public List<Message> searchMessages(String query, int offset, int limit){
+        List<String> terms = SearchQuery.terms(query);
+        List<Message> messages = new ArrayList<>();
+        if(terms.isEmpty()){
+            return messages;
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for(Stripe stripe : stripes){
+            stripe.collect(messages, row -> {
+                List<String> words = SearchQuery.terms(row.messageText);
+                if(!words.containsAll(terms)){
+                    return false;
+                }
+
+                scores.put(row.messageId, (double) terms.size() / words.size());
+                return true;
+            });
+        }
+
+        messages.sort(Comparator.<Message>comparingDouble(msg -> -scores.get(msg.getMessageId())).thenComparingInt(Message::getMessageId));
+
+        int from = Math.min(offset, messages.size());
+        return new ArrayList<>(messages.subList(from, Math.min(messages.size(), from + limit)));
+    }
+
+    /*
+     * Update Message Method
+     * INPUT: 1 int, 1 String
+     * OUTPUT: Message object
+     * Replaces the messageText of the given Message, bumps its version and returns the updated Message
+     * Returns null if the Message does not exist or the text is null
+    */
+    public Message updateMessage(int id, String newText){
+        if(newText == null){
+            return null;
+        }
+
+        Message updated = stripeFor(id).update(id, newText);
+        if(updated != null){
+            bumpListVersion(updated.getPostedBy());
+        }
+        return updated;
+    }
+
+    /*
+     * Delete Message Method
+     * INPUT: 1 int
+     * OUTPUT: Message object
+     * Removes the given Message and returns it, or null if it does not exist
+    */
+    public Message deleteMessage(int id){
+        Message deleted = stripeFor(id).delete(id);
+        if(deleted != null){
+            bumpListVersion(deleted.getPostedBy());
+        }
+        return deleted;
+    }
+
+    // Helper Methods
+    private Stripe stripeFor(int id){
+        return stripes[id & (STRIPES - 1)];
+    }
+
+    /*
+     * Bump List Version Helper Method
+     * INPUT: 1 int
+     * OUTPUT: N/A
+     * Called after the write is stored; the first version is random, like the SQLite triggers', so tags from an
+     * earlier run are not reused
+    */
+    private void bumpListVersion(int accountId){
+        listVersions.computeIfAbsent(accountId, id -> new AtomicLong(ThreadLocalRandom.current().nextLong(1_000_000_000_000L)))
+            .incrementAndGet();
+    }
+
+    /*
+     * First Page Helper Method
+     * INPUT: 1 List of Message objects, 1 int
+     * OUTPUT: List of Message objects
+     * Sorts the matches into keyset order and keeps the first limit of them
+    */
+    private static List<Message> firstPage(List<Message> matches, int limit){
+        matches.sort(BY_TIME_THEN_ID);
+        return (matches.size() <= limit) ? matches : new ArrayList<>(matches.subList(0, limit));
+    }
+
+    /*
+     * Row Predicate Interface
+     * Tests one stored row, read through a reused RowView
+    */
+    @FunctionalInterface
+    private interface RowPredicate {
+        boolean test(RowView row);
+    }
+
+    /*
+     * Row View Class
+     * The columns of the row a RowPredicate is looking at
+    */
+    private static class RowView {
+        private int messageId;
+        private int postedBy;
+        private String messageText;
+        private long timePostedEpoch;
+        private int version;
+
+        private boolean isAfter(long afterTimePostedEpoch, int afterMessageId){
+            return timePostedEpoch > afterTimePostedEpoch
+                || (timePostedEpoch == afterTimePostedEpoch && messageId > afterMessageId);
+        }
+    }
+
+    /*
+     * Stripe Class
+     * One lock's worth of rows, stored densely in parallel columns
+     * Deleting a row moves the last row into its place, so the columns never have holes
+    */
+    private static class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final IntIndexMap rowById = new IntIndexMap(64);
+        private int[] ids = new int[64];
+        private int[] postedBy = new int[64];
+        private long[] timePostedEpoch = new long[64];
+        private String[] messageText = new String[64];
+        private int[] version = new int[64];
+        private int size = 0;
+
+        private void insert(int id, int poster, String text, long time){
+            long stamp = lock.writeLock();
+            try{
+                if(size == ids.length){
+                    int capacity = size * 2;
+                    ids = Arrays.copyOf(ids, capacity);
+                    postedBy = Arrays.copyOf(postedBy, capacity);
+                    timePostedEpoch = Arrays.copyOf(timePostedEpoch, capacity);
+                    messageText = Arrays.copyOf(messageText, capacity);
+                    version = Arrays.copyOf(version, capacity);
+                }
+
+                ids[size] = id;
+                postedBy[size] = poster;
+                timePostedEpoch[size] = time;
+                messageText[size] = text;
+                version[size] = 1;
+                rowById.put(id, size);
+                size++;
+            }
+            finally{
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /*
+         * Find Method
+         * Tries a lock-free optimistic read first and falls back to a read lock if a writer got in the way
+        */
+        private Message find(int id){
+            long stamp = lock.tryOptimisticRead();
+            if(stamp != 0){
+                try{
+                    Message msg = read(id);
+                    if(lock.validate(stamp)){
+                        return msg;
+                    }
+                }
+                catch(RuntimeException e){
+                    // Saw a half-resized column; retry under the lock
+                }
+            }
+
+            stamp = lock.readLock();
+            try{
+                return read(id);
+            }
+            finally{
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private Message read(int id){
+            int row = rowById.get(id);
+            if(row == IntIndexMap.NO_VALUE){
+                return null;
+            }
+
+            return new Message(id, postedBy[row], messageText[row], timePostedEpoch[row], version[row]);
+        }
+
+        private boolean fill(int id, Message msg){
+            long stamp = lock.readLock();
+            try{
+                int row = rowById.get(id);
+                if(row == IntIndexMap.NO_VALUE){
+                    return false;
+                }
+
+                msg.setMessageId(id);
+                msg.setPostedBy(postedBy[row]);
+                msg.setMessageText(messageText[row]);
+                msg.setTimePostedEpoch(timePostedEpoch[row]);
+                msg.setVersion(version[row]);
+                return true;
+            }
+            finally{
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private void collect(List<Message> out, RowPredicate predicate){
+            RowView view = new RowView();
+
+            long stamp = lock.readLock();
+            try{
+                for(int row = 0; row < size; row++){
+                    view.messageId = ids[row];
+                    view.postedBy = postedBy[row];
+                    view.messageText = messageText[row];
+                    view.timePostedEpoch = timePostedEpoch[row];
+                    view.version = version[row];
+
+                    if(predicate.test(view)){
+                        out.add(new Message(view.messageId, view.postedBy, view.messageText, view.timePostedEpoch, view.version));
+                    }
+                }
+            }
+            finally{
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private Message update(int id, String newText){
+            long stamp = lock.writeLock();
+            try{
+                int row = rowById.get(id);
+                if(row == IntIndexMap.NO_VALUE){
+                    return null;
+                }
+
+                messageText[row] = newText;
+                version[row]++;
+                return new Message(id, postedBy[row], newText, timePostedEpoch[row], version[row]);
+            }
+            finally{
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private Message delete(int id){
+            long stamp = lock.writeLock();
+            try{
+                int row = rowById.remove(id);
+                if(row == IntIndexMap.NO_VALUE){
+                    return null;
+                }
+
+                Message deleted = new Message(id, postedBy[row], messageText[row], timePostedEpoch[row], version[row]);
+
+                // Move the last row into the hole
+                int last = --size;
+                if(row != last){
+                    ids[row] = ids[last];
+                    postedBy[row] = postedBy[last];
+                    timePostedEpoch[row] = timePostedEpoch[last];
+                    messageText[row] = messageText[last];
+                    version[row] = version[last];
+                    rowById.put(ids[row], row);
+                }
+                messageText[last] = null;
+
+                return deleted;
+            }
+            finally{
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
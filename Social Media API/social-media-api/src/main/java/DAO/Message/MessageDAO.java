@@ -6,28 +6,61 @@
 package DAO.Message;
 
 import Model.Message;
+import Utility.DbExecutor;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MessageDAO {
     // Create Message
     public Message insertMessage(Message msg);
 
+    // Create Message without blocking the caller; by default insertMessage runs on the executor,
+    // while DAOs that queue inserts themselves (e.g. for group commit) hand them over directly
+    public default CompletableFuture<Message> insertMessageAsync(Message msg, DbExecutor executor){
+        return executor.supply(() -> insertMessage(msg));
+    }
+
+    // Create Messages in one transaction, returns them with their messageIds (empty if the batch failed)
+    public List<Message> insertMessages(List<Message> msgs);
+
     // Retrieve Message by ID
     public Message selectMessageById(int id);
 
+    // Retrieve the Messages with the given IDs in one round trip, in no particular order; IDs without a Message are skipped
+    public List<Message> selectMessagesByIds(int[] ids);
+
     // Retrieve Message by Data
     public Message selectMessageByData(Message msg);
 
     // Retrieve all Messages from User
     public List<Message> selectAllMessagesFromUser(int accountId);
 
+    // Retrieve the version of the User's Message list; it changes with every insert, update or delete of one of their
+    // Messages and is stored with them, so it holds across restarts and servers (0 if they never posted)
+    public long selectMessageListVersion(int accountId);
+
     // Retrieve all Messages
     public List<Message> selectAllMessages();
 
+    // Stream every Message to the visitor in messageId order without collecting them, returns the number visited
+    public int forEachMessage(MessageVisitor visitor);
+
+    // Retrieve up to limit Messages ordered by (timePostedEpoch, messageId), starting after the given position
+    public List<Message> selectMessagesAfter(long afterTimePostedEpoch, int afterMessageId, int limit);
+
+    // Retrieve up to limit Messages from User ordered by (timePostedEpoch, messageId), starting after the given position
+    public List<Message> selectMessagesFromUserAfter(int accountId, long afterTimePostedEpoch, int afterMessageId, int limit);
+
+    // Retrieve up to limit Messages whose text contains every term of the query, best match first, skipping the first offset
+    public List<Message> searchMessages(String query, int offset, int limit);
+
     // Update Message
     public Message updateMessage(int id, String newText);
 
     // Delete Message by ID
     public Message deleteMessage(int id);
+
+    // Release background resources, finishing queued writes first; DAOs without any do nothing
+    public default void close(){}
 }
@@ -3,13 +3,21 @@
 package DAO.Message;
 
 import Model.Message;
+import Utility.AppConfig;
 import Utility.ConnectionUtil;
+import Utility.SearchQuery;
 
 import java.sql.*;
 import java.util.List;
 import java.util.ArrayList;
 
 public class MessageDaoImpl implements MessageDAO {
+        // Rows SQLite steps per fetch while streaming
+        private static final int STREAM_FETCH_SIZE = AppConfig.getInt("db.stream.fetchSize", 500);
+
+        // Most ids bound in one IN (...) list, well under SQLite's limit on host parameters
+        private static final int MAX_IDS_PER_QUERY = 512;
+
         /*
          * Insert Message Method
          * INPUT: 1 Message object
@@ -18,22 +26,28 @@ public class MessageDaoImpl implements MessageDAO {
          * Returns null if unsuccessful
         */
         public Message insertMessage(Message msg){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             // SQL Logic
             try{
-                String sql = "INSERT INTO messages (postedBy, messageText, timePostedEpoch) VALUES (?, ?, ?)";
-
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setInt(1, msg.getPostedBy());
-                ps.setString(2, msg.getMessageText());
-                ps.setLong(3, msg.getTimePostedEpoch());
+                return ConnectionUtil.write(connection -> {
+                    // RETURNING hands back the stored row, including the new messageId, in the same round trip
+                    String sql = "INSERT INTO messages (postedBy, messageText, timePostedEpoch) VALUES (?, ?, ?) RETURNING *";
+
+                    try(PreparedStatement ps = connection.prepareStatement(sql)){
+                        ps.setInt(1, msg.getPostedBy());
+                        ps.setString(2, msg.getMessageText());
+                        ps.setLong(3, msg.getTimePostedEpoch());
+
+                        // Check if successful
+                        try(ResultSet rs = ps.executeQuery()){
+                            if(rs.next()){
+                                return extractMessageFromResultSet(rs);
+                            }
+                        }
+                    }
 
-                // Check if successful
-                if(ps.executeUpdate() > 0){
-                    return selectMessageByData(msg);
-                }
+                    // Return null if unsuccessful
+                    return null;
+                });
             }
             catch(SQLException e){
                 System.out.println("Failed to insert Message");
@@ -45,6 +59,66 @@ public class MessageDaoImpl implements MessageDAO {
             return null;
         }
 
+        /*
+         * Insert Messages Method
+         * INPUT: 1 List of Message objects
+         * OUTPUT: List of Message objects
+         * Inserts every Message with one JDBC batch inside a single transaction and returns them with their messageIds
+         * Returns an empty List if unsuccessful; the transaction is rolled back so either all rows are stored or none are
+        */
+        public List<Message> insertMessages(List<Message> msgs){
+            if(msgs.isEmpty()){
+                return new ArrayList<>();
+            }
+
+            // SQL Logic
+            // (a connection returned mid-transaction is rolled back, so a failed batch leaves nothing behind)
+            try{
+                return ConnectionUtil.write(connection -> {
+                    connection.setAutoCommit(false);
+
+                    String sql = "INSERT INTO messages (postedBy, messageText, timePostedEpoch) VALUES (?, ?, ?)";
+
+                    try(PreparedStatement ps = connection.prepareStatement(sql)){
+                        for(Message msg : msgs){
+                            ps.setInt(1, msg.getPostedBy());
+                            ps.setString(2, msg.getMessageText());
+                            ps.setLong(3, msg.getTimePostedEpoch());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+
+                    // The transaction holds SQLite's write lock for the whole batch, so the new messageIds
+                    // are consecutive and end at last_insert_rowid()
+                    long lastId;
+                    try(Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")){
+                        rs.next();
+                        lastId = rs.getLong(1);
+                    }
+
+                    connection.commit();
+                    connection.setAutoCommit(true);
+
+                    List<Message> inserted = new ArrayList<>(msgs.size());
+                    long firstId = lastId - msgs.size() + 1;
+                    for(int i = 0; i < msgs.size(); i++){
+                        Message msg = msgs.get(i);
+                        inserted.add(new Message((int) (firstId + i), msg.getPostedBy(), msg.getMessageText(), msg.getTimePostedEpoch()));
+                    }
+
+                    return inserted;
+                });
+            }
+            catch(SQLException e){
+                System.out.println("Failed to insert batch of Messages");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return new ArrayList<>();
+        }
+
         /*
          * Select Message by ID Method
          * INPUT: 1 int
@@ -53,21 +127,19 @@ public class MessageDaoImpl implements MessageDAO {
          * Returns null if unsuccessful
         */
         public Message selectMessageById(int id){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             // SQL Logic
-            try{
+            try(Connection connection = ConnectionUtil.getConnection()){
                 String sql = "SELECT * FROM messages WHERE messageId = ?";
 
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setInt(1, id);
-
-                ResultSet rs = ps.executeQuery();
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, id);
 
-                // Check if ResultSet is empty
-                if(rs.next()){
-                    return extractMessageFromResultSet(rs);
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Check if ResultSet is empty
+                        if(rs.next()){
+                            return extractMessageFromResultSet(rs);
+                        }
+                    }
                 }
             }
             catch(SQLException e){
@@ -80,6 +152,50 @@ public class MessageDaoImpl implements MessageDAO {
             return null;
         }
 
+        /*
+         * Select Messages by IDs Method
+         * INPUT: 1 int array
+         * OUTPUT: List of Message objects
+         * Retrieves the Messages with the given IDs from the DB with one query per MAX_IDS_PER_QUERY IDs
+         * Returns them in no particular order, skipping IDs that have none
+        */
+        public List<Message> selectMessagesByIds(int[] ids){
+            List<Message> messages = new ArrayList<>(ids.length);
+            if(ids.length == 0){
+                return messages;
+            }
+
+            // SQL Logic
+            try(Connection connection = ConnectionUtil.getConnection()){
+                for(int from = 0; from < ids.length; from += MAX_IDS_PER_QUERY){
+                    int count = Math.min(MAX_IDS_PER_QUERY, ids.length - from);
+
+                    // Lists are padded to a power of two by repeating the last id, so only a few distinct statements get cached
+                    int slots = (count == 1) ? 1 : Integer.highestOneBit(count - 1) << 1;
+                    String sql = "SELECT * FROM messages WHERE messageId IN (" + "?, ".repeat(slots - 1) + "?)";
+
+                    try(PreparedStatement ps = connection.prepareStatement(sql)){
+                        for(int i = 0; i < slots; i++){
+                            ps.setInt(i + 1, ids[from + Math.min(i, count - 1)]);
+                        }
+
+                        try(ResultSet rs = ps.executeQuery()){
+                            while(rs.next()){
+                                messages.add(extractMessageFromResultSet(rs));
+                            }
+                        }
+                    }
+                }
+            }
+            catch(SQLException e){
+                System.out.println("Failed to retrieve Messages by ID");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return messages;
+        }
+
         /*
          * Select Message by Data Method
          * INPUT: 1 Message object
@@ -88,23 +204,21 @@ public class MessageDaoImpl implements MessageDAO {
          * Returns null if unsuccessful
         */
         public Message selectMessageByData(Message msg){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             // SQL Logic
-            try{
+            try(Connection connection = ConnectionUtil.getConnection()){
                 String sql = "SELECT * FROM messages WHERE postedBy = ? AND messageText = ? AND timePostedEpoch = ?";
 
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setInt(1, msg.getPostedBy());
-                ps.setString(2, msg.getMessageText());
-                ps.setLong(3, msg.getTimePostedEpoch());
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, msg.getPostedBy());
+                    ps.setString(2, msg.getMessageText());
+                    ps.setLong(3, msg.getTimePostedEpoch());
 
-                ResultSet rs = ps.executeQuery();
-
-                // Check if ResultSet is empty
-                if(rs.next()){
-                    return extractMessageFromResultSet(rs);
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Check if ResultSet is empty
+                        if(rs.next()){
+                            return extractMessageFromResultSet(rs);
+                        }
+                    }
                 }
             }
             catch(SQLException e){
@@ -125,23 +239,21 @@ public class MessageDaoImpl implements MessageDAO {
          * Returns an empty List if unsuccessful, or if no Messages exist
         */
         public List<Message> selectAllMessagesFromUser(int accountId){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             List<Message> messages = new ArrayList<>();
 
             // SQL Logic
-            try{
+            try(Connection connection = ConnectionUtil.getConnection()){
                 String sql = "SELECT * FROM messages WHERE postedBy = ?";
 
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setInt(1, accountId);
-
-                ResultSet rs = ps.executeQuery();
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, accountId);
 
-                // Loop through ResultSet
-                while(rs.next()){
-                    messages.add(extractMessageFromResultSet(rs));
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Loop through ResultSet
+                        while(rs.next()){
+                            messages.add(extractMessageFromResultSet(rs));
+                        }
+                    }
                 }
             }
             catch(SQLException e){
@@ -152,7 +264,39 @@ public class MessageDaoImpl implements MessageDAO {
 
             return messages;
         }
-    
+
+        /*
+         * Select Message List Version Method
+         * INPUT: 1 int
+         * OUTPUT: 1 long
+         * Retrieves the version of a user's Message list, which the message_list_versions triggers bump in the
+         * same transaction as every write to their Messages
+         * Returns 0 if unsuccessful, or if the user never posted
+        */
+        public long selectMessageListVersion(int accountId){
+            // SQL Logic
+            try(Connection connection = ConnectionUtil.getConnection()){
+                String sql = "SELECT version FROM message_list_versions WHERE accountId = ?";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, accountId);
+
+                    try(ResultSet rs = ps.executeQuery()){
+                        if(rs.next()){
+                            return rs.getLong(1);
+                        }
+                    }
+                }
+            }
+            catch(SQLException e){
+                System.out.println("Failed to retrieve Message list version");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return 0;
+        }
+
         /*
          * Select all Messages Method
          * INPUT: N/A
@@ -161,22 +305,19 @@ public class MessageDaoImpl implements MessageDAO {
          * Returns an empty List if unsuccessful, or if no Messages exist
         */
         public List<Message> selectAllMessages(){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             List<Message> messages = new ArrayList<>();
 
             // SQL Logic
-            try{
+            try(Connection connection = ConnectionUtil.getConnection()){
                 String sql = "SELECT * FROM messages";
 
-                PreparedStatement ps = connection.prepareStatement(sql);
-
-                ResultSet rs = ps.executeQuery();
-
-                // Loop through ResultSet
-                while(rs.next()){
-                    messages.add(extractMessageFromResultSet(rs));
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Loop through ResultSet
+                        while(rs.next()){
+                            messages.add(extractMessageFromResultSet(rs));
+                        }
+                    }
                 }
             }
             catch(SQLException e){
@@ -188,29 +329,196 @@ public class MessageDaoImpl implements MessageDAO {
             return messages;
         }
     
+        /*
+         * For Each Message Method
+         * INPUT: 1 MessageVisitor
+         * OUTPUT: 1 int
+         * Streams every Message to the visitor through a forward-only, read-only cursor
+         * One Message object is reused for every row, so memory stays flat regardless of table size
+         * Stops as soon as the visitor returns false, and returns the number of Messages visited
+        */
+        public int forEachMessage(MessageVisitor visitor){
+            int visited = 0;
+
+            // SQL Logic
+            try(Connection connection = ConnectionUtil.getConnection()){
+                String sql = "SELECT * FROM messages ORDER BY messageId";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)){
+                    ps.setFetchSize(STREAM_FETCH_SIZE);
+
+                    try(ResultSet rs = ps.executeQuery()){
+                        Message msg = new Message();
+
+                        // Loop through ResultSet until it ends or the visitor stops
+                        while(rs.next()){
+                            fillMessageFromResultSet(rs, msg);
+                            visited++;
+
+                            if(!visitor.visit(msg)){
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+            catch(SQLException e){
+                System.out.println("Failed to stream Messages");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return visited;
+        }
+
+        /*
+         * Select Messages After Method
+         * INPUT: 1 long, 2 int
+         * OUTPUT: List of Message objects
+         * Retrieves the next page of Messages after the given (timePostedEpoch, messageId) position
+         * Uses a keyset (seek) predicate so each page costs the same no matter how deep it is
+         * Returns an empty List if unsuccessful, or if no Messages remain
+        */
+        public List<Message> selectMessagesAfter(long afterTimePostedEpoch, int afterMessageId, int limit){
+            List<Message> messages = new ArrayList<>();
+
+            // SQL Logic
+            try(Connection connection = ConnectionUtil.getConnection()){
+                String sql = "SELECT * FROM messages WHERE (timePostedEpoch, messageId) > (?, ?) "
+                    + "ORDER BY timePostedEpoch, messageId LIMIT ?";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setLong(1, afterTimePostedEpoch);
+                    ps.setInt(2, afterMessageId);
+                    ps.setInt(3, limit);
+
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Loop through ResultSet
+                        while(rs.next()){
+                            messages.add(extractMessageFromResultSet(rs));
+                        }
+                    }
+                }
+            }
+            catch(SQLException e){
+                System.out.println("Failed to retrieve page of Messages");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return messages;
+        }
+
+        /*
+         * Select Messages from User After Method
+         * INPUT: 1 int, 1 long, 2 int
+         * OUTPUT: List of Message objects
+         * Retrieves the next page of a user's Messages after the given (timePostedEpoch, messageId) position
+         * Returns an empty List if unsuccessful, or if no Messages remain
+        */
+        public List<Message> selectMessagesFromUserAfter(int accountId, long afterTimePostedEpoch, int afterMessageId, int limit){
+            List<Message> messages = new ArrayList<>();
+
+            // SQL Logic
+            try(Connection connection = ConnectionUtil.getConnection()){
+                String sql = "SELECT * FROM messages WHERE postedBy = ? AND (timePostedEpoch, messageId) > (?, ?) "
+                    + "ORDER BY timePostedEpoch, messageId LIMIT ?";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setInt(1, accountId);
+                    ps.setLong(2, afterTimePostedEpoch);
+                    ps.setInt(3, afterMessageId);
+                    ps.setInt(4, limit);
+
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Loop through ResultSet
+                        while(rs.next()){
+                            messages.add(extractMessageFromResultSet(rs));
+                        }
+                    }
+                }
+            }
+            catch(SQLException e){
+                System.out.println("Failed to retrieve page of Messages from user");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return messages;
+        }
+
+        /*
+         * Search Messages Method
+         * INPUT: 1 String, 2 int
+         * OUTPUT: List of Message objects
+         * Retrieves up to limit Messages containing every term of the query from the messages_fts index,
+         * ordered by FTS5 rank (bm25, best match first) and then messageId, after skipping offset matches
+         * Returns an empty List if the query has no terms, if unsuccessful, or if no Messages match
+        */
+        public List<Message> searchMessages(String query, int offset, int limit){
+            List<Message> messages = new ArrayList<>();
+
+            List<String> terms = SearchQuery.terms(query);
+            if(terms.isEmpty()){
+                return messages;
+            }
+
+            // SQL Logic
+            try(Connection connection = ConnectionUtil.getConnection()){
+                String sql = "SELECT messages.* FROM messages_fts JOIN messages ON messages.messageId = messages_fts.rowid "
+                    + "WHERE messages_fts MATCH ? ORDER BY messages_fts.rank, messages.messageId LIMIT ? OFFSET ?";
+
+                try(PreparedStatement ps = connection.prepareStatement(sql)){
+                    ps.setString(1, SearchQuery.toMatchExpression(terms));
+                    ps.setInt(2, limit);
+                    ps.setInt(3, offset);
+
+                    try(ResultSet rs = ps.executeQuery()){
+                        // Loop through ResultSet
+                        while(rs.next()){
+                            messages.add(extractMessageFromResultSet(rs));
+                        }
+                    }
+                }
+            }
+            catch(SQLException e){
+                System.out.println("Failed to search Messages");
+                System.out.println(e.getMessage());
+                e.printStackTrace();
+            }
+
+            return messages;
+        }
+
         /*
          * Update Message Method
          * INPUT: 1 Message object
          * OUTPUT: Message object
-         * Updates the given Message in the DB with the input data
+         * Updates the given Message in the DB with the input data and bumps its version
          * Returns null if unsuccessful
         */
         public Message updateMessage(int id, String newText){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             // SQL Logic
             try{
-                String sql = "UPDATE messages SET messageText = ? WHERE messageId = ?";
-
-                PreparedStatement ps = connection.prepareStatement(sql);
-                ps.setString(1, newText);
-                ps.setInt(2, id);
+                return ConnectionUtil.write(connection -> {
+                    // RETURNING hands back the updated row, with its bumped version, in the same round trip
+                    String sql = "UPDATE messages SET messageText = ?, version = version + 1 WHERE messageId = ? RETURNING *";
+
+                    try(PreparedStatement ps = connection.prepareStatement(sql)){
+                        ps.setString(1, newText);
+                        ps.setInt(2, id);
+
+                        // Check if successful
+                        try(ResultSet rs = ps.executeQuery()){
+                            if(rs.next()){
+                                return extractMessageFromResultSet(rs);
+                            }
+                        }
+                    }
 
-                // Check if successful
-                if(ps.executeUpdate() > 0){
-                    return selectMessageById(id);
-                }
+                    // Return null if unsuccessful
+                    return null;
+                });
             }
             catch(SQLException e){
                 System.out.println("Failed to update Message");
@@ -230,26 +538,26 @@ public class MessageDaoImpl implements MessageDAO {
          * Returns null if unsuccessful
         */
         public Message deleteMessage(int id){
-            // Establish connection to DB
-            Connection connection = ConnectionUtil.getConnection();
-
             // SQL Logic
             try{
-                // Acquire Message data before deletion
-                Message deletedMsg = selectMessageById(id);
-
-                // Check if message exists
-                if(deletedMsg != null){
-                    String sql = "DELETE FROM messages WHERE messageId = ?";
-
-                    PreparedStatement ps = connection.prepareStatement(sql);
-                    ps.setInt(1, id);
-
-                    // Check if successful
-                    if(ps.executeUpdate() > 0){
-                        return deletedMsg;
+                return ConnectionUtil.write(connection -> {
+                    // RETURNING hands back the deleted row, so no select is needed beforehand
+                    String sql = "DELETE FROM messages WHERE messageId = ? RETURNING *";
+
+                    try(PreparedStatement ps = connection.prepareStatement(sql)){
+                        ps.setInt(1, id);
+
+                        // Check if successful (no row means the Message did not exist)
+                        try(ResultSet rs = ps.executeQuery()){
+                            if(rs.next()){
+                                return extractMessageFromResultSet(rs);
+                            }
+                        }
                     }
-                }
+
+                    // Return null if unsuccessful
+                    return null;
+                });
             }
             catch(SQLException e){
                 System.out.println("Failed to delete Message");
@@ -270,11 +578,22 @@ public class MessageDaoImpl implements MessageDAO {
         private Message extractMessageFromResultSet(ResultSet rs) throws SQLException{
             Message msg = new Message();
 
+            fillMessageFromResultSet(rs, msg);
+
+            return msg;
+        }
+
+        /*
+         * Fill Message from ResultSet Helper Method
+         * INPUT: 1 ResultSet object, 1 Message object
+         * OUTPUT: N/A
+         * Copies the current row of a ResultSet into an existing Message
+        */
+        private void fillMessageFromResultSet(ResultSet rs, Message msg) throws SQLException{
             msg.setMessageId(rs.getInt("messageId"));
             msg.setPostedBy(rs.getInt("postedBy"));
             msg.setMessageText(rs.getString("messageText"));
             msg.setTimePostedEpoch(rs.getLong("timePostedEpoch"));
-
-            return msg;
+            msg.setVersion(rs.getInt("version"));
         }
 }
@@ -0,0 +1,15 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: MessageVisitor.java
+/* FILE DESCRIPTION: Interface for callbacks that receive Messages one at a time while a query streams
+*/
+
+package DAO.Message;
+
+import Model.Message;
+
+@FunctionalInterface
+public interface MessageVisitor {
+    // Handle one Message; return false to stop the scan early
+    // The Message may be reused for the next row, so copy anything that must outlive the call
+    public boolean visit(Message msg);
+}
@@ -0,0 +1,199 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: TimedMessageDao.java
+/* FILE DESCRIPTION: MessageDAO decorator that times every call to the wrapped DAO into a per-method LatencyHistogram,
+ * exported by /metrics as db_query_duration_seconds. The timers are looked up once here, so each call only
+ * reads the clock twice and records without locking or allocating.
+*/
+
+package DAO.Message;
+
+import Model.Message;
+import Utility.LatencyHistogram;
+import Utility.Metrics;
+
+import java.util.List;
+
+public class TimedMessageDao extends ForwardingMessageDao {
+    // Timers by method
+    private final LatencyHistogram insertMessageTimer;
+    private final LatencyHistogram insertMessagesTimer;
+    private final LatencyHistogram selectMessageByIdTimer;
+    private final LatencyHistogram selectMessagesByIdsTimer;
+    private final LatencyHistogram selectMessageByDataTimer;
+    private final LatencyHistogram selectAllMessagesFromUserTimer;
+    private final LatencyHistogram selectMessageListVersionTimer;
+    private final LatencyHistogram selectAllMessagesTimer;
+    private final LatencyHistogram forEachMessageTimer;
+    private final LatencyHistogram selectMessagesAfterTimer;
+    private final LatencyHistogram selectMessagesFromUserAfterTimer;
+    private final LatencyHistogram searchMessagesTimer;
+    private final LatencyHistogram updateMessageTimer;
+    private final LatencyHistogram deleteMessageTimer;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 MessageDAO
+     * Times the given DAO, labelling its timers with its class name (e.g. MessageDaoImpl)
+    */
+    public TimedMessageDao(MessageDAO delegate){
+        super(delegate);
+
+        String dao = delegate.getClass().getSimpleName();
+        this.insertMessageTimer = Metrics.queryTimer(dao, "insertMessage");
+        this.insertMessagesTimer = Metrics.queryTimer(dao, "insertMessages");
+        this.selectMessageByIdTimer = Metrics.queryTimer(dao, "selectMessageById");
+        this.selectMessagesByIdsTimer = Metrics.queryTimer(dao, "selectMessagesByIds");
+        this.selectMessageByDataTimer = Metrics.queryTimer(dao, "selectMessageByData");
+        this.selectAllMessagesFromUserTimer = Metrics.queryTimer(dao, "selectAllMessagesFromUser");
+        this.selectMessageListVersionTimer = Metrics.queryTimer(dao, "selectMessageListVersion");
+        this.selectAllMessagesTimer = Metrics.queryTimer(dao, "selectAllMessages");
+        this.forEachMessageTimer = Metrics.queryTimer(dao, "forEachMessage");
+        this.selectMessagesAfterTimer = Metrics.queryTimer(dao, "selectMessagesAfter");
+        this.selectMessagesFromUserAfterTimer = Metrics.queryTimer(dao, "selectMessagesFromUserAfter");
+        this.searchMessagesTimer = Metrics.queryTimer(dao, "searchMessages");
+        this.updateMessageTimer = Metrics.queryTimer(dao, "updateMessage");
+        this.deleteMessageTimer = Metrics.queryTimer(dao, "deleteMessage");
+    }
+
+    // Methods
+    public Message insertMessage(Message msg){
+        long start = System.nanoTime();
+        try{
+            return delegate.insertMessage(msg);
+        }
+        finally{
+            insertMessageTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> insertMessages(List<Message> msgs){
+        long start = System.nanoTime();
+        try{
+            return delegate.insertMessages(msgs);
+        }
+        finally{
+            insertMessagesTimer.recordSince(start);
+        }
+    }
+
+    public Message selectMessageById(int id){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectMessageById(id);
+        }
+        finally{
+            selectMessageByIdTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> selectMessagesByIds(int[] ids){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectMessagesByIds(ids);
+        }
+        finally{
+            selectMessagesByIdsTimer.recordSince(start);
+        }
+    }
+
+    public Message selectMessageByData(Message msg){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectMessageByData(msg);
+        }
+        finally{
+            selectMessageByDataTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> selectAllMessagesFromUser(int accountId){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectAllMessagesFromUser(accountId);
+        }
+        finally{
+            selectAllMessagesFromUserTimer.recordSince(start);
+        }
+    }
+
+    public long selectMessageListVersion(int accountId){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectMessageListVersion(accountId);
+        }
+        finally{
+            selectMessageListVersionTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> selectAllMessages(){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectAllMessages();
+        }
+        finally{
+            selectAllMessagesTimer.recordSince(start);
+        }
+    }
+
+    public int forEachMessage(MessageVisitor visitor){
+        long start = System.nanoTime();
+        try{
+            return delegate.forEachMessage(visitor);
+        }
+        finally{
+            forEachMessageTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> selectMessagesAfter(long afterTimePostedEpoch, int afterMessageId, int limit){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectMessagesAfter(afterTimePostedEpoch, afterMessageId, limit);
+        }
+        finally{
+            selectMessagesAfterTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> selectMessagesFromUserAfter(int accountId, long afterTimePostedEpoch, int afterMessageId, int limit){
+        long start = System.nanoTime();
+        try{
+            return delegate.selectMessagesFromUserAfter(accountId, afterTimePostedEpoch, afterMessageId, limit);
+        }
+        finally{
+            selectMessagesFromUserAfterTimer.recordSince(start);
+        }
+    }
+
+    public List<Message> searchMessages(String query, int offset, int limit){
+        long start = System.nanoTime();
+        try{
+            return delegate.searchMessages(query, offset, limit);
+        }
+        finally{
+            searchMessagesTimer.recordSince(start);
+        }
+    }
+
+    public Message updateMessage(int id, String newText){
+        long start = System.nanoTime();
+        try{
+            return delegate.updateMessage(id, newText);
+        }
+        finally{
+            updateMessageTimer.recordSince(start);
+        }
+    }
+
+    public Message deleteMessage(int id){
+        long start = System.nanoTime();
+        try{
+            return delegate.deleteMessage(id);
+        }
+        finally{
+            deleteMessageTimer.recordSince(start);
+        }
+    }
+}
@@ -5,12 +5,16 @@
 
 package Model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Message {
     // Variables
     private int messageId;
     private int postedBy;   // Represents accountId of poster
     private String messageText;
     private long timePostedEpoch;   // Time when message was posted in num. secs since Jan. 1, 1978
+    @JsonIgnore
+    private int version = 1;    // Starts at 1 and goes up on every update; exposed only through ETags
 
 
     // Constructors
@@ -38,6 +42,15 @@ public class Message {
         this.timePostedEpoch = timePostedEpoch;
     }
 
+    /*
+     * Parameterized Constructor
+     * INPUT: 2 int, 1 String, 1 long, 1 int
+    */
+    public Message(int messageId, int postedBy, String messageText, long timePostedEpoch, int version){
+        this(messageId, postedBy, messageText, timePostedEpoch);
+        this.version = version;
+    }
+
 
     // Methods
     // messageId Getter Method
@@ -60,6 +73,14 @@ public class Message {
     // timePostedEpoch Setter Method
     public void setTimePostedEpoch(long timePostedEpoch){ this.timePostedEpoch = timePostedEpoch; }
 
+    // version Getter Method
+    @JsonIgnore
+    public int getVersion(){ return this.version; }
+
+    // version Setter Method
+    @JsonIgnore
+    public void setVersion(int version){ this.version = version; }
+
     /*
      * toString() Method Override
      * INPUT: N/A
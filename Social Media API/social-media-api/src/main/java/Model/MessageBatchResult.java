@@ -0,0 +1,79 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: MessageBatchResult.java
+/* FILE DESCRIPTION: Class that represents the outcome of a batch Message create:
+ * the Messages that were stored plus one error per rejected item
+*/
+
+package Model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MessageBatchResult {
+    // Variables
+    private List<Message> created = new ArrayList<>();
+    private List<ItemError> errors = new ArrayList<>();
+
+
+    // Constructors
+    // No-arg Constructor
+    public MessageBatchResult(){ }
+
+
+    // Methods
+    // created Getter Method
+    public List<Message> getCreated(){ return this.created; }
+
+    // errors Getter Method
+    public List<ItemError> getErrors(){ return this.errors; }
+
+    // Record a stored Message
+    public void addCreated(Message msg){ this.created.add(msg); }
+
+    // Record a rejected item by its position in the request
+    public void addError(int index, String error){ this.errors.add(new ItemError(index, error)); }
+
+    /*
+     * toString() Method Override
+     * INPUT: N/A
+     * OUTPUT: 1 String
+     * Returns the class instance's data in a String
+    */
+    @Override
+    public String toString(){
+        return "MessageBatchResult{" +
+            "created = " + this.created +
+            ", errors = " + this.errors +
+            "}";
+    }
+
+    /*
+     * Item Error Class
+     * Represents why the item at a given index of the request was not created
+    */
+    public static class ItemError {
+        // Variables
+        private int index;
+        private String error;
+
+        /*
+         * Parameterized Constructor
+         * INPUT: 1 int, 1 String
+        */
+        public ItemError(int index, String error){
+            this.index = index;
+            this.error = error;
+        }
+
+        // index Getter Method
+        public int getIndex(){ return this.index; }
+
+        // error Getter Method
+        public String getError(){ return this.error; }
+
+        @Override
+        public String toString(){
+            return "ItemError{index = " + this.index + ", error = " + this.error + "}";
+        }
+    }
+}
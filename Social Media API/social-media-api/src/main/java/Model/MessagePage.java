@@ -0,0 +1,50 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: MessagePage.java
+/* FILE DESCRIPTION: Class that represents one page of Messages plus the cursor for the next page
+*/
+
+package Model;
+
+import java.util.List;
+
+public class MessagePage {
+    // Variables
+    private List<Message> messages;
+    private String nextCursor;  // Opaque cursor for the following page, null on the last page
+
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 List of Message objects, 1 String
+    */
+    public MessagePage(List<Message> messages, String nextCursor){
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+
+    // Methods
+    // messages Getter Method
+    public List<Message> getMessages(){ return this.messages; }
+
+    // nextCursor Getter Method
+    public String getNextCursor(){ return this.nextCursor; }
+
+    // Returns true if there is another page after this one
+    public boolean hasNext(){ return this.nextCursor != null; }
+
+    /*
+     * toString() Method Override
+     * INPUT: N/A
+     * OUTPUT: 1 String
+     * Returns the class instance's data in a String
+    */
+    @Override
+    public String toString(){
+        return "MessagePage{" +
+            "messages = " + this.messages +
+            ", nextCursor = " + this.nextCursor +
+            "}";
+    }
+}
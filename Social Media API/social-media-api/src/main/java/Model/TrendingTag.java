@@ -0,0 +1,48 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: TrendingTag.java
+/* FILE DESCRIPTION: Class that represents a #hashtag or @mention and about how many times it was used in a time window
+*/
+
+package Model;
+
+public class TrendingTag {
+    // Variables
+    private String tag;
+    private int count;
+
+
+    // Constructors
+    // No-arg Constructor
+    public TrendingTag(){ }
+
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 String, 1 int
+    */
+    public TrendingTag(String tag, int count){
+        this.tag = tag;
+        this.count = count;
+    }
+
+
+    // Methods
+    // tag Getter Method
+    public String getTag(){ return this.tag; }
+
+    // count Getter Method
+    public int getCount(){ return this.count; }
+
+    /*
+     * toString() Method Override
+     * INPUT: N/A
+     * OUTPUT: 1 String
+     * Returns the class instance's data in a String
+    */
+    @Override
+    public String toString(){
+        return "TrendingTag{" +
+            "tag = " + this.tag +
+            ", count = " + this.count +
+            "}";
+    }
+}
@@ -0,0 +1,386 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: FeedService.java
+/* FILE DESCRIPTION: Class that builds each account's home feed (the newest Messages from the accounts it follows)
+ * with hybrid fan-out.
+ * Fan-out on write: a Message from an account with fewer than fanoutThreshold followers is pushed into a bounded
+ * in-memory buffer for each follower, so reading the feed is a copy of the newest buffer entries.
+ * Fan-out on read: a Message from an account with fanoutThreshold followers or more is not pushed (that would be
+ * one write per follower); each feed read merges the newest entries of those accounts' timelines instead.
+ * A buffer is built on its owner's first feed read from the timeline index, so nothing is materialized
+ * for accounts that never read their feed and nothing needs rebuilding at startup.
+ * When an account drops below fanoutThreshold, the buffers of its followers are backfilled from its timeline,
+ * since the Messages it posted while merged on read were never pushed.
+*/
+
+package Service;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import DAO.Follow.FollowDAO;
+
+public class FeedService {
+    private final FollowDAO followDao;
+    private final TimelineIndex timelineIndex;
+
+    // Accounts with at least this many followers are merged on read instead of pushed on write
+    private final int fanoutThreshold;
+
+    // Entries kept in each follower's buffer
+    private final int bufferSize;
+
+    // Feed buffers by follower accountId
+    private final ConcurrentHashMap<Integer, FeedBuffer> feeds = new ConcurrentHashMap<>();
+
+    // Follower counts by accountId, counted on first use and recounted whenever the account gains or loses a follower
+    private final ConcurrentHashMap<Integer, Integer> followerCounts = new ConcurrentHashMap<>();
+
+    // For each followee, the followers that have a buffer; posts are pushed to these without asking the DB
+    private final ConcurrentHashMap<Integer, Set<Integer>> bufferedFollowers = new ConcurrentHashMap<>();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 FollowDAO, 1 TimelineIndex, 2 int
+     * Creates a feed service over the follow graph and the service's timeline index
+    */
+    public FeedService(FollowDAO followDao, TimelineIndex timelineIndex, int fanoutThreshold, int bufferSize){
+        if(fanoutThreshold < 1 || bufferSize < 1){
+            throw new IllegalArgumentException("fanoutThreshold and bufferSize must be at least 1");
+        }
+
+        this.followDao = followDao;
+        this.timelineIndex = timelineIndex;
+        this.fanoutThreshold = fanoutThreshold;
+        this.bufferSize = bufferSize;
+    }
+
+    // Methods
+    /*
+     * Follow Method
+     * INPUT: 2 int
+     * OUTPUT: 1 boolean
+     * Stores the follow, then copies the followee's recent Messages into the follower's buffer if it has one
+     * Returns false if the follow could not be stored
+    */
+    public boolean follow(int followerId, int followeeId){
+        if(!followDao.insertFollow(followerId, followeeId)){
+            return false;
+        }
+
+        FeedBuffer buffer = feeds.get(followerId);
+        if(buffer != null){
+            followersWithBuffer(followeeId).add(followerId);
+        }
+
+        recount(followeeId);
+        if(buffer != null && !isFanoutOnRead(followeeId)){
+            backfill(buffer, followeeId);
+        }
+
+        return true;
+    }
+
+    /*
+     * Unfollow Method
+     * INPUT: 2 int
+     * OUTPUT: 1 boolean
+     * Removes the follow and the followee's Messages from the follower's buffer
+     * Returns false if followerId was not following followeeId
+    */
+    public boolean unfollow(int followerId, int followeeId){
+        if(!followDao.deleteFollow(followerId, followeeId)){
+            return false;
+        }
+
+        FeedBuffer buffer = feeds.get(followerId);
+        if(buffer != null){
+            followersWithBuffer(followeeId).remove(followerId);
+            buffer.removeAuthor(followeeId);
+        }
+
+        recount(followeeId);
+        return true;
+    }
+
+    /*
+     * On Post Method
+     * INPUT: 1 int, 1 long, 1 int
+     * OUTPUT: 1 int
+     * Pushes a new Message into the buffers of its poster's followers, unless the poster is merged on read
+     * Followers without a buffer pick the Message up when theirs is built
+     * Returns the number of buffers written
+    */
+    public int onPost(int postedBy, long timePostedEpoch, int messageId){
+        Set<Integer> followerIds = bufferedFollowers.get(postedBy);
+        if(followerIds == null || isFanoutOnRead(postedBy)){
+            return 0;
+        }
+
+        int pushed = 0;
+        for(int followerId : followerIds){
+            FeedBuffer buffer = feeds.get(followerId);
+
+            if(buffer != null){
+                buffer.add(timePostedEpoch, messageId, postedBy);
+                pushed++;
+            }
+        }
+
+        return pushed;
+    }
+
+    /*
+     * Feed Method
+     * INPUT: 2 int
+     * OUTPUT: 1 int array
+     * Returns the ids of up to limit of the newest Messages from the accounts followerId follows, newest first
+     * Deleted Messages are not removed from buffers; callers skip ids that no longer resolve
+    */
+    public int[] feed(int followerId, int limit){
+        int[] followeeIds = followDao.selectFolloweeIds(followerId);
+        FeedMerge merge = new FeedMerge(limit);
+
+        // Pushed Messages
+        load(followerId, followeeIds).newest(limit, merge::add);
+
+        // Pulled Messages
+        for(int followeeId : followeeIds){
+            if(isFanoutOnRead(followeeId)){
+                timelineIndex.newest(followeeId, limit, merge::add);
+            }
+        }
+
+        return merge.top(limit);
+    }
+
+    /*
+     * Is Fan-out on Read Method
+     * INPUT: 1 int
+     * OUTPUT: 1 boolean
+     * Returns true if the account has enough followers that its Messages are merged on read
+    */
+    public boolean isFanoutOnRead(int accountId){
+        return followerCount(accountId) >= fanoutThreshold;
+    }
+
+    // Number of accounts following accountId, counted once and cached; follow and unfollow recount it
+    public int followerCount(int accountId){
+        return followerCounts.computeIfAbsent(accountId, followDao::countFollowers);
+    }
+
+    /*
+     * Recount Helper Method
+     * INPUT: 1 int
+     * OUTPUT: N/A
+     * Recounts the account's followers after a follow or unfollow has been stored
+     * The count is replaced atomically, so a count read before the change can never overwrite it
+     * If the account drops below fanoutThreshold, its followers' buffers are backfilled with what it posted meanwhile
+    */
+    private void recount(int accountId){
+        int[] before = new int[1];
+        int after = followerCounts.compute(accountId, (id, old) -> {
+            before[0] = (old == null) ? -1 : old;
+            return followDao.countFollowers(id);
+        });
+
+        // A count never read before means no buffer has relied on the account's mode yet
+        if(before[0] >= fanoutThreshold && after < fanoutThreshold){
+            for(int followerId : followersWithBuffer(accountId)){
+                FeedBuffer buffer = feeds.get(followerId);
+                if(buffer != null){
+                    backfill(buffer, accountId);
+                }
+            }
+        }
+    }
+
+    /*
+     * Load Helper Method
+     * INPUT: 1 int, 1 int array
+     * OUTPUT: FeedBuffer object
+     * Returns the follower's buffer, filling it from its pushed followees' timelines the first time
+    */
+    private FeedBuffer load(int followerId, int[] followeeIds){
+        FeedBuffer buffer = feeds.computeIfAbsent(followerId, id -> new FeedBuffer(bufferSize));
+
+        buffer.loadOnce(() -> {
+            for(int followeeId : followeeIds){
+                // Registered before the mode is read, so a followee dropping into push mode from here on backfills this buffer
+                followersWithBuffer(followeeId).add(followerId);
+
+                if(!isFanoutOnRead(followeeId)){
+                    backfill(buffer, followeeId);
+                }
+            }
+        });
+
+        return buffer;
+    }
+
+    // Copies the followee's newest Messages into the buffer; entries already there are skipped
+    private void backfill(FeedBuffer buffer, int followeeId){
+        timelineIndex.newest(followeeId, bufferSize, (time, messageId) -> buffer.add(time, messageId, followeeId));
+    }
+
+    // The followers of followeeId that have a buffer
+    private Set<Integer> followersWithBuffer(int followeeId){
+        return bufferedFollowers.computeIfAbsent(followeeId, id -> ConcurrentHashMap.newKeySet());
+    }
+
+    /*
+     * Feed Buffer Class
+     * One follower's pushed entries as parallel arrays sorted by (timePostedEpoch, messageId)
+     * Holds up to a quarter more than its capacity before dropping the oldest, so trimming is not paid on every push
+    */
+    private static class FeedBuffer {
+        private final int capacity;
+        private final long[] times;
+        private final int[] ids;
+        private final int[] authors;
+        private int size = 0;
+        private boolean loaded = false;
+
+        private FeedBuffer(int capacity){
+            int slack = Math.max(1, capacity / 4);
+
+            this.capacity = capacity;
+            this.times = new long[capacity + slack];
+            this.ids = new int[capacity + slack];
+            this.authors = new int[capacity + slack];
+        }
+
+        private synchronized void loadOnce(Runnable loader){
+            if(!loaded){
+                loader.run();
+                loaded = true;
+            }
+        }
+
+        private synchronized void add(long time, int id, int author){
+            int at = search(time, id);
+            if(at >= 0){
+                return;
+            }
+            at = -(at + 1);
+
+            // Older than everything kept in a full buffer
+            if(at == 0 && size >= capacity){
+                return;
+            }
+
+            if(size == ids.length){
+                int drop = size - capacity;
+                System.arraycopy(times, drop, times, 0, capacity);
+                System.arraycopy(ids, drop, ids, 0, capacity);
+                System.arraycopy(authors, drop, authors, 0, capacity);
+                size = capacity;
+                at -= drop;
+
+                if(at <= 0){
+                    return;
+                }
+            }
+
+            System.arraycopy(times, at, times, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(authors, at, authors, at + 1, size - at);
+            times[at] = time;
+            ids[at] = id;
+            authors[at] = author;
+            size++;
+        }
+
+        private synchronized void removeAuthor(int author){
+            int kept = 0;
+
+            for(int i = 0; i < size; i++){
+                if(authors[i] != author){
+                    times[kept] = times[i];
+                    ids[kept] = ids[i];
+                    authors[kept] = authors[i];
+                    kept++;
+                }
+            }
+
+            size = kept;
+        }
+
+        private synchronized void newest(int limit, TimelineIndex.EntryVisitor visitor){
+            for(int i = size - 1; i >= Math.max(0, size - limit); i--){
+                visitor.visit(times[i], ids[i]);
+            }
+        }
+
+        // Binary search for (time, id); returns its index, or -(insertion point) - 1 if it is absent
+        private int search(long time, int id){
+            int low = 0;
+            int high = size - 1;
+
+            while(low <= high){
+                int mid = (low + high) >>> 1;
+                int cmp = (times[mid] != time) ? Long.compare(times[mid], time) : Integer.compare(ids[mid], id);
+
+                if(cmp < 0){
+                    low = mid + 1;
+                }
+                else if(cmp > 0){
+                    high = mid - 1;
+                }
+                else{
+                    return mid;
+                }
+            }
+
+            return -(low + 1);
+        }
+    }
+
+    /*
+     * Feed Merge Class
+     * Collects candidate entries from the buffer and the pulled timelines, then keeps the newest distinct ids
+    */
+    private static class FeedMerge {
+        private long[] times;
+        private int[] ids;
+        private int size = 0;
+
+        private FeedMerge(int expected){
+            times = new long[Math.max(8, expected)];
+            ids = new int[Math.max(8, expected)];
+        }
+
+        private void add(long time, int id){
+            if(size == ids.length){
+                times = Arrays.copyOf(times, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            times[size] = time;
+            ids[size] = id;
+            size++;
+        }
+
+        private int[] top(int limit){
+            Integer[] order = new Integer[size];
+            for(int i = 0; i < size; i++){
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> (times[a] != times[b]) ? Long.compare(times[b], times[a]) : Integer.compare(ids[b], ids[a]));
+
+            // A Message can arrive both ways if its poster crossed the threshold
+            Set<Integer> seen = new HashSet<>();
+            int[] result = new int[Math.min(limit, size)];
+            int count = 0;
+            for(int i = 0; i < size && count < result.length; i++){
+                if(seen.add(ids[order[i]])){
+                    result[count++] = ids[order[i]];
+                }
+            }
+
+            return Arrays.copyOf(result, count);
+        }
+    }
+}
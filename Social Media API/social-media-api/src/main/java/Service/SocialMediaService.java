@@ -6,29 +6,105 @@
 
 package Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
 
-import DAO.Account.AccountDaoImpl;
-import DAO.Message.MessageDaoImpl;
+import DAO.DaoFactory;
+import DAO.Account.AccountDAO;
+import DAO.Account.CachingAccountDao;
+import DAO.Follow.FollowDAO;
+import DAO.Message.CachingMessageDao;
+import DAO.Message.MessageDAO;
+import DAO.Message.MessageVisitor;
 import Model.Account;
 import Model.Message;
+import Model.MessageBatchResult;
+import Model.MessagePage;
+import Model.TrendingTag;
+import Utility.AppConfig;
+import Utility.BoundedCache;
+import Utility.DbExecutor;
+import Utility.ETags;
+import Utility.PageCursor;
+import Utility.SearchQuery;
+import Utility.SingleFlight;
 
 public class SocialMediaService {
+    // Largest page a client may request
+    public static final int MAX_PAGE_SIZE = 1000;
+
     // DAO Implementations
-    private AccountDaoImpl accountDao;
-    private MessageDaoImpl messageDao;
+    private AccountDAO accountDao;
+    private MessageDAO messageDao;
+
+    // Runs the DAO calls behind the *Async methods
+    private final DbExecutor dbExecutor = DbExecutor.shared();
+
+    // Per-account Message ids sorted by time, for time-range queries
+    private final TimelineIndex timelineIndex = new TimelineIndex();
+
+    // Identical reads running at the same time share one query; writes forget the keys they change
+    // Listings are keyed by the collection ETag their callers read, so only callers that saw the same version share one
+    // The Message reads are only shared by the *Async methods, so a blocking caller on a DB thread never waits for a queued task
+    private final SingleFlight<Integer, Message> messageByIdFlights = new SingleFlight<>();
+    private final SingleFlight<Integer, Account> accountByIdFlights = new SingleFlight<>();
+    private final SingleFlight<String, List<Message>> userMessagesFlights = new SingleFlight<>();
+    private final SingleFlight<String, MessagePage> userPageFlights = new SingleFlight<>();
+
+    // Message list versions by accountId, so an unchanged listing poll is answered without a DB task
+    // Writes through this service invalidate their account; the TTL bounds how long a write by another server goes unseen
+    // Null when caching is off
+    private final BoundedCache<Integer, Long> listVersions = AppConfig.getBoolean("cache.enabled", true)
+        ? new BoundedCache<>(AppConfig.getInt("cache.listVersions.maxSize", 100_000), AppConfig.getLong("cache.listVersions.ttlMs", 5000))
+        : null;
+
+    // Told the accountId after each change to that account's Messages (e.g. to drop cached responses)
+    private final List<IntConsumer> messageChangeListeners = new CopyOnWriteArrayList<>();
+
+    // Home feeds built from the follow graph
+    private final FeedService feedService;
+
+    // Most used #hashtags and @mentions over recent time windows
+    private final TrendingTracker trendingTracker = new TrendingTracker(
+        AppConfig.getInt("trending.buckets", 1440),
+        AppConfig.getLong("trending.bucketSeconds", 60) * 1000,
+        AppConfig.getInt("trending.sketchDepth", 4),
+        AppConfig.getInt("trending.sketchWidth", 256),
+        AppConfig.getInt("trending.candidates", 64),
+        AppConfig.getInt("trending.queueCapacity", 10_000),
+        System::currentTimeMillis
+    );
 
     // Constructors
-    // No-arg constructor
+    // No-arg constructor, uses the DAOs selected by configuration
     public SocialMediaService(){
-        this.accountDao = new AccountDaoImpl();
-        this.messageDao = new MessageDaoImpl();
+        this(DaoFactory.createAccountDao(), DaoFactory.createMessageDao());
+    }
+
+    // Parameterized constructor, takes any DAO implementation (e.g. the in-memory ones)
+    // Uses the follow graph DAO selected by configuration
+    public SocialMediaService(AccountDAO accountDao, MessageDAO messageDao){
+        this(accountDao, messageDao, DaoFactory.createFollowDao());
     }
 
-    // Parameterized constructor
-    public SocialMediaService(AccountDaoImpl accountDao, MessageDaoImpl messageDao){
+    // Parameterized constructor, takes any DAO implementation including the follow graph
+    // Builds the timeline index from the Messages already stored
+    public SocialMediaService(AccountDAO accountDao, MessageDAO messageDao, FollowDAO followDao){
         this.accountDao = accountDao;
         this.messageDao = messageDao;
+        this.timelineIndex.rebuild(messageDao);
+        this.feedService = new FeedService(
+            followDao,
+            timelineIndex,
+            AppConfig.getInt("feed.fanoutThreshold", 10_000),
+            AppConfig.getInt("feed.bufferSize", 800)
+        );
     }
 
     // Methods
@@ -77,7 +153,12 @@ public class SocialMediaService {
             return null;
         }
 
-        return accountDao.updateAccount(user);
+        Account updated = accountDao.updateAccount(user);
+        if(updated != null){
+            accountByIdFlights.forget(updated.getAccountId());
+        }
+
+        return updated;
     }
 
     /*
@@ -88,7 +169,83 @@ public class SocialMediaService {
      * Returns null if unsuccessful
     */
     public Account userDelete(int id){
-        return accountDao.deleteAccount(id);
+        Account deleted = accountDao.deleteAccount(id);
+        if(deleted != null){
+            accountByIdFlights.forget(id);
+        }
+
+        return deleted;
+    }
+
+    /*
+     * User Retrieve by ID Method
+     * INPUT: 1 int
+     * OUTPUT: Account object
+     * Retrieves the account with the given accountId, sharing the query with concurrent callers asking for the same one
+     * Returns null if it does not exist
+    */
+    public Account userRetrieveById(int id){
+        return accountByIdFlights.execute(id, () -> accountDao.selectAccountById(id));
+    }
+
+    /*
+     * User Follow Method
+     * INPUT: 2 int
+     * OUTPUT: Account object
+     * Makes followerId follow followeeId and returns the followed Account
+     * Returns null if either Account does not exist, they are the same Account, or unsuccessful
+    */
+    public Account userFollow(int followerId, int followeeId){
+        if(followerId == followeeId || userRetrieveById(followerId) == null){
+            return null;
+        }
+
+        // Many accounts following one popular account at once share this lookup
+        Account followee = userRetrieveById(followeeId);
+        if(followee == null || !feedService.follow(followerId, followeeId)){
+            return null;
+        }
+
+        return followee;
+    }
+
+    /*
+     * User Unfollow Method
+     * INPUT: 2 int
+     * OUTPUT: Account object
+     * Makes followerId stop following followeeId and returns the unfollowed Account
+     * Returns null if followerId was not following followeeId or the followee does not exist
+    */
+    public Account userUnfollow(int followerId, int followeeId){
+        Account followee = userRetrieveById(followeeId);
+        if(followee == null || !feedService.unfollow(followerId, followeeId)){
+            return null;
+        }
+
+        return followee;
+    }
+
+    /*
+     * Feed Retrieve Method
+     * INPUT: 2 int
+     * OUTPUT: List of Message objects
+     * Retrieves up to limit of the newest messages from the accounts a given accountId follows, newest first
+     * Throws IllegalArgumentException if the limit is invalid
+    */
+    public List<Message> feedRetrieve(int id, int limit){
+        return resolve(feedService.feed(id, checkPageSize(limit)));
+    }
+
+    /*
+     * Trending Retrieve Method
+     * INPUT: 1 long, 1 int
+     * OUTPUT: List of TrendingTag objects
+     * Retrieves up to limit of the most used #hashtags and @mentions in Messages created over the last windowMillis
+     * Reads only in-memory counters, so it does not touch the database
+     * Throws IllegalArgumentException if the window or limit is invalid
+    */
+    public List<TrendingTag> trendingRetrieve(long windowMillis, int limit){
+        return trendingTracker.top(windowMillis, checkPageSize(limit));
     }
 
     /*
@@ -100,11 +257,58 @@ public class SocialMediaService {
     */
     public Message messageCreate(Message msg){
         // Ensure messageText is valid
-        if(msg.getMessageText().isBlank()){
+        if(validateMessage(msg) != null){
             return null;
         }
 
-        return messageDao.insertMessage(msg);
+        Message inserted = messageDao.insertMessage(msg);
+        if(inserted != null){
+            index(inserted);
+        }
+
+        return inserted;
+    }
+
+    /*
+     * Message Create Batch Method
+     * INPUT: 1 List of Message objects
+     * OUTPUT: MessageBatchResult object
+     * Validates each message with the same rules as messageCreate, then inserts the valid ones together
+     * Returns the created messages plus an error for every item (by index) that was not created
+    */
+    public MessageBatchResult messageCreateBatch(List<Message> msgs){
+        MessageBatchResult result = new MessageBatchResult();
+        List<Message> valid = new ArrayList<>(msgs.size());
+        List<Integer> validIndexes = new ArrayList<>(msgs.size());
+
+        // Validate every item
+        for(int i = 0; i < msgs.size(); i++){
+            String error = validateMessage(msgs.get(i));
+
+            if(error != null){
+                result.addError(i, error);
+            }
+            else{
+                valid.add(msgs.get(i));
+                validIndexes.add(i);
+            }
+        }
+
+        // Insert the valid items as one batch
+        List<Message> created = messageDao.insertMessages(valid);
+
+        if(created.size() == valid.size()){
+            for(Message msg : created){
+                index(msg);
+                result.addCreated(msg);
+            }
+        }
+        else{
+            // The batch is all-or-nothing, so every valid item failed
+            validIndexes.forEach(i -> result.addError(i, "Failed to store message"));
+        }
+
+        return result;
     }
 
     /*
@@ -129,6 +333,79 @@ public class SocialMediaService {
         return messageDao.selectAllMessagesFromUser(id);
     }
 
+    /*
+     * Close Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Stops the service's background work (trending counts) and closes the Message DAO, flushing any inserts still
+     * queued for group commit; the DB executor is shared and left open
+    */
+    public void close(){
+        trendingTracker.close();
+        messageDao.close();
+    }
+
+    /*
+     * Get Read Flights Method
+     * INPUT: N/A
+     * OUTPUT: Map of String to SingleFlight
+     * Returns the coalesced reads by the DAO query they share, e.g. for metrics
+    */
+    public Map<String, SingleFlight<?, ?>> getReadFlights(){
+        Map<String, SingleFlight<?, ?>> flights = new LinkedHashMap<>();
+        flights.put("selectMessageById", messageByIdFlights);
+        flights.put("selectAccountById", accountByIdFlights);
+        flights.put("selectAllMessagesFromUser", userMessagesFlights);
+        flights.put("selectMessagesFromUserAfter", userPageFlights);
+        return flights;
+    }
+
+    /*
+     * Get Row Caches Method
+     * INPUT: N/A
+     * OUTPUT: Map of String to BoundedCache
+     * Returns the read-through caches in front of the DAOs by what they hold ("message", "account", "listVersion"), e.g. for metrics
+     * Empty when caching is off
+    */
+    public Map<String, BoundedCache<?, ?>> getRowCaches(){
+        Map<String, BoundedCache<?, ?>> caches = new LinkedHashMap<>();
+        if(messageDao instanceof CachingMessageDao){
+            caches.put("message", ((CachingMessageDao) messageDao).getCache());
+        }
+        if(accountDao instanceof CachingAccountDao){
+            caches.put("account", ((CachingAccountDao) accountDao).getCache());
+        }
+        if(listVersions != null){
+            caches.put("listVersion", listVersions);
+        }
+        return caches;
+    }
+
+    /*
+     * Add Message Change Listener Method
+     * INPUT: 1 IntConsumer
+     * OUTPUT: N/A
+     * Calls the listener with the accountId after each Message of that account is created, updated or deleted
+     * It runs on the writing thread once the change is stored, so it should be quick
+    */
+    public void addMessageChangeListener(IntConsumer listener){
+        messageChangeListeners.add(listener);
+    }
+
+    /*
+     * Message ETag from User Method
+     * INPUT: 1 int
+     * OUTPUT: 1 String
+     * Returns the ETag shared by every listing of the account's Messages (all, paged or time-range)
+     * Read it before running the query it tags; it changes whenever one of the account's Messages is created, updated or deleted
+     * It comes from the stored Message list version, so every server on the same database hands out the same tag
+     * The version is cached until this service changes one of the account's Messages or cache.listVersions.ttlMs passes
+    */
+    public String messageETagFromUser(int id){
+        long version = (listVersions == null) ? messageDao.selectMessageListVersion(id) : listVersions.get(id, messageDao::selectMessageListVersion);
+        return listETag(id, version);
+    }
+
     /*
      * Message Retrieve All Method
      * INPUT: N/A
@@ -140,6 +417,73 @@ public class SocialMediaService {
         return messageDao.selectAllMessages();
     }
 
+    /*
+     * Message Export Method
+     * INPUT: 1 MessageVisitor
+     * OUTPUT: 1 int
+     * Streams every message to the visitor without loading them all into memory
+     * Returns the number of messages visited
+    */
+    public int messageExport(MessageVisitor visitor){
+        return messageDao.forEachMessage(visitor);
+    }
+
+    /*
+     * Message Retrieve Page Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: MessagePage object
+     * Retrieves up to limit messages after the given cursor (null for the first page)
+     * Throws IllegalArgumentException if the cursor or limit is invalid
+    */
+    public MessagePage messageRetrievePage(String after, int limit){
+        PageCursor cursor = PageCursor.decode(after);
+        int pageSize = checkPageSize(limit);
+
+        // Fetch one extra row to learn whether another page exists
+        return toPage(messageDao.selectMessagesAfter(cursor.getTimePostedEpoch(), cursor.getMessageId(), pageSize + 1), pageSize);
+    }
+
+    /*
+     * Message Retrieve Page from User Method
+     * INPUT: 1 int, 1 String, 1 int
+     * OUTPUT: MessagePage object
+     * Retrieves up to limit messages from a given accountId after the given cursor (null for the first page)
+     * Throws IllegalArgumentException if the cursor or limit is invalid
+    */
+    public MessagePage messageRetrievePageFromUser(int id, String after, int limit){
+        PageCursor cursor = PageCursor.decode(after);
+        int pageSize = checkPageSize(limit);
+
+        return toPage(messageDao.selectMessagesFromUserAfter(id, cursor.getTimePostedEpoch(), cursor.getMessageId(), pageSize + 1), pageSize);
+    }
+
+    /*
+     * Message Retrieve Timeline Method
+     * INPUT: 1 int, 2 long, 1 int
+     * OUTPUT: List of Message objects
+     * Retrieves up to limit messages from a given accountId posted in [since, until), newest first
+     * The ids come from the timeline index, so no query scans the user's history
+     * Throws IllegalArgumentException if the limit is invalid
+    */
+    public List<Message> messageRetrieveTimeline(int id, long since, long until, int limit){
+        return resolve(timelineIndex.range(id, since, until, checkPageSize(limit)));
+    }
+
+    /*
+     * Message Search Method
+     * INPUT: 2 String, 1 int
+     * OUTPUT: MessagePage object
+     * Retrieves up to limit messages containing every word of the query, best match first, after the given cursor
+     * Throws IllegalArgumentException if the query has no words or too many, or if the cursor or limit is invalid
+    */
+    public MessagePage messageSearch(String query, String after, int limit){
+        checkSearchQuery(query);
+        int offset = PageCursor.decodeOffset(after);
+        int pageSize = checkPageSize(limit);
+
+        return toSearchPage(messageDao.searchMessages(query, offset, pageSize + 1), offset, pageSize);
+    }
+
     /*
      * Message Update Method
      * INPUT: 1 Message object
@@ -148,7 +492,14 @@ public class SocialMediaService {
      * Returns null if unsuccessful
     */
     public Message messageUpdate(int id, String newText){
-        return messageDao.updateMessage(id, newText);
+        // Only the text changes, so the timeline index is unaffected
+        Message updated = messageDao.updateMessage(id, newText);
+        if(updated != null){
+            messageByIdFlights.forget(id);
+            touch(updated.getPostedBy());
+        }
+
+        return updated;
     }
 
     /*
@@ -159,6 +510,406 @@ public class SocialMediaService {
      * Returns null if unsuccessful
     */
     public Message messageDelete(int id){
-        return messageDao.deleteMessage(id);
+        Message deleted = messageDao.deleteMessage(id);
+        if(deleted != null){
+            timelineIndex.remove(deleted.getPostedBy(), deleted.getTimePostedEpoch(), deleted.getMessageId());
+            messageByIdFlights.forget(id);
+            touch(deleted.getPostedBy());
+        }
+
+        return deleted;
+    }
+
+    // Asynchronous Methods
+    // Each runs its synchronous counterpart on the DB executor; a full executor throws OverloadedException
+    /*
+     * User Register Async Method
+     * INPUT: 1 Account object
+     * OUTPUT: CompletableFuture of Account object
+     * Asynchronous userRegister
+    */
+    public CompletableFuture<Account> userRegisterAsync(Account user){
+        return dbExecutor.supply(() -> userRegister(user));
+    }
+
+    /*
+     * User Login Async Method
+     * INPUT: 1 Account object
+     * OUTPUT: CompletableFuture of Account object
+     * Asynchronous userLogin
+    */
+    public CompletableFuture<Account> userLoginAsync(Account user){
+        return dbExecutor.supply(() -> userLogin(user));
+    }
+
+    /*
+     * User Update Async Method
+     * INPUT: 1 Account object
+     * OUTPUT: CompletableFuture of Account object
+     * Asynchronous userUpdate
+    */
+    public CompletableFuture<Account> userUpdateAsync(Account user){
+        return dbExecutor.supply(() -> userUpdate(user));
+    }
+
+    /*
+     * User Delete Async Method
+     * INPUT: 1 int
+     * OUTPUT: CompletableFuture of Account object
+     * Asynchronous userDelete
+    */
+    public CompletableFuture<Account> userDeleteAsync(int id){
+        return dbExecutor.supply(() -> userDelete(id));
+    }
+
+    /*
+     * User Follow Async Method
+     * INPUT: 2 int
+     * OUTPUT: CompletableFuture of Account object
+     * Asynchronous userFollow
+    */
+    public CompletableFuture<Account> userFollowAsync(int followerId, int followeeId){
+        return dbExecutor.supply(() -> userFollow(followerId, followeeId));
+    }
+
+    /*
+     * User Unfollow Async Method
+     * INPUT: 2 int
+     * OUTPUT: CompletableFuture of Account object
+     * Asynchronous userUnfollow
+    */
+    public CompletableFuture<Account> userUnfollowAsync(int followerId, int followeeId){
+        return dbExecutor.supply(() -> userUnfollow(followerId, followeeId));
+    }
+
+    /*
+     * Feed Retrieve Async Method
+     * INPUT: 2 int
+     * OUTPUT: CompletableFuture of List of Message objects
+     * Asynchronous feedRetrieve
+     * The limit is checked before the feed is queued, so IllegalArgumentException is thrown to the caller
+    */
+    public CompletableFuture<List<Message>> feedRetrieveAsync(int id, int limit){
+        checkPageSize(limit);
+
+        return dbExecutor.supply(() -> feedRetrieve(id, limit));
+    }
+
+    /*
+     * Message Create Async Method
+     * INPUT: 1 Message object
+     * OUTPUT: CompletableFuture of Message object
+     * Asynchronous messageCreate
+     * With group commit the insert is queued straight for the writer, so no database thread waits on its batch;
+     * the new Message is then indexed on the thread that completes the insert
+    */
+    public CompletableFuture<Message> messageCreateAsync(Message msg){
+        // Ensure messageText is valid
+        if(validateMessage(msg) != null){
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return messageDao.insertMessageAsync(msg, dbExecutor).thenApply(inserted -> {
+            if(inserted != null){
+                index(inserted);
+            }
+
+            return inserted;
+        });
+    }
+
+    /*
+     * Message Create Batch Async Method
+     * INPUT: 1 List of Message objects
+     * OUTPUT: CompletableFuture of MessageBatchResult object
+     * Asynchronous messageCreateBatch
+    */
+    public CompletableFuture<MessageBatchResult> messageCreateBatchAsync(List<Message> msgs){
+        return dbExecutor.supply(() -> messageCreateBatch(msgs));
+    }
+
+    /*
+     * Message Retrieve by ID Async Method
+     * INPUT: 1 int
+     * OUTPUT: CompletableFuture of Message object
+     * Asynchronous messageRetrieveById
+     * Callers joining a query in flight share its future and queue no work of their own
+     * The future completes on the DB thread for every caller sharing it, so continue on another executor (see SingleFlight)
+    */
+    public CompletableFuture<Message> messageRetrieveByIdAsync(int id){
+        return messageByIdFlights.executeAsync(id, () -> dbExecutor.supply(() -> messageDao.selectMessageById(id)));
+    }
+
+    /*
+     * Message ETag from User Async Method
+     * INPUT: 1 int
+     * OUTPUT: CompletableFuture of 1 String
+     * Asynchronous messageETagFromUser
+     * A cached list version is returned as a completed future, queueing no DB task
+    */
+    public CompletableFuture<String> messageETagFromUserAsync(int id){
+        Long version = (listVersions == null) ? null : listVersions.getIfPresent(id);
+        if(version != null){
+            return CompletableFuture.completedFuture(listETag(id, version));
+        }
+
+        return dbExecutor.supply(() -> messageETagFromUser(id));
+    }
+
+    /*
+     * Message Retrieve All from User Async Method
+     * INPUT: 1 int, 1 String
+     * OUTPUT: CompletableFuture of List of Message objects
+     * Asynchronous messageRetrieveAllFromUser
+     * listETag is the messageETagFromUser the caller read for this account before asking; callers holding the same
+     * listETag share a query in flight and queue no work of their own
+     * The future completes on the DB thread for every caller sharing it, so continue on another executor (see SingleFlight)
+    */
+    public CompletableFuture<List<Message>> messageRetrieveAllFromUserAsync(int id, String listETag){
+        return userMessagesFlights.executeAsync(listETag, () -> dbExecutor.supply(() -> messageDao.selectAllMessagesFromUser(id)));
+    }
+
+    /*
+     * Message Retrieve All Async Method
+     * INPUT: N/A
+     * OUTPUT: CompletableFuture of List of Message objects
+     * Asynchronous messageRetrieveAll
+    */
+    public CompletableFuture<List<Message>> messageRetrieveAllAsync(){
+        return dbExecutor.supply(() -> messageRetrieveAll());
+    }
+
+    /*
+     * Message Export Async Method
+     * INPUT: 1 MessageVisitor
+     * OUTPUT: CompletableFuture of 1 Integer
+     * Asynchronous messageExport
+    */
+    public CompletableFuture<Integer> messageExportAsync(MessageVisitor visitor){
+        return dbExecutor.supply(() -> messageExport(visitor));
+    }
+
+    /*
+     * Message Retrieve Page Async Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: CompletableFuture of MessagePage object
+     * Asynchronous messageRetrievePage
+     * The cursor and limit are checked before the query is queued, so IllegalArgumentException is thrown to the caller
+    */
+    public CompletableFuture<MessagePage> messageRetrievePageAsync(String after, int limit){
+        PageCursor cursor = PageCursor.decode(after);
+        int pageSize = checkPageSize(limit);
+
+        return dbExecutor.supply(() -> toPage(messageDao.selectMessagesAfter(cursor.getTimePostedEpoch(), cursor.getMessageId(), pageSize + 1), pageSize));
+    }
+
+    /*
+     * Message Retrieve Page from User Async Method
+     * INPUT: 1 int, 2 String, 1 int
+     * OUTPUT: CompletableFuture of MessagePage object
+     * Asynchronous messageRetrievePageFromUser
+     * The cursor and limit are checked before the query is queued, so IllegalArgumentException is thrown to the caller
+     * listETag is as in messageRetrieveAllFromUserAsync; callers holding it share a query in flight for the same page,
+     * and continue on another executor as there
+    */
+    public CompletableFuture<MessagePage> messageRetrievePageFromUserAsync(int id, String listETag, String after, int limit){
+        PageCursor cursor = PageCursor.decode(after);
+        int pageSize = checkPageSize(limit);
+
+        return userPageFlights.executeAsync(userPageKey(listETag, after, pageSize),
+            () -> dbExecutor.supply(() -> toPage(messageDao.selectMessagesFromUserAfter(id, cursor.getTimePostedEpoch(), cursor.getMessageId(), pageSize + 1), pageSize)));
+    }
+
+    /*
+     * Message Retrieve Timeline Async Method
+     * INPUT: 1 int, 2 long, 1 int
+     * OUTPUT: CompletableFuture of List of Message objects
+     * Asynchronous messageRetrieveTimeline
+     * The limit is checked before the lookups are queued, so IllegalArgumentException is thrown to the caller
+    */
+    public CompletableFuture<List<Message>> messageRetrieveTimelineAsync(int id, long since, long until, int limit){
+        checkPageSize(limit);
+
+        return dbExecutor.supply(() -> messageRetrieveTimeline(id, since, until, limit));
+    }
+
+    /*
+     * Message Search Async Method
+     * INPUT: 2 String, 1 int
+     * OUTPUT: CompletableFuture of MessagePage object
+     * Asynchronous messageSearch
+     * The query, cursor and limit are checked before the search is queued, so IllegalArgumentException is thrown to the caller
+    */
+    public CompletableFuture<MessagePage> messageSearchAsync(String query, String after, int limit){
+        checkSearchQuery(query);
+        int offset = PageCursor.decodeOffset(after);
+        int pageSize = checkPageSize(limit);
+
+        return dbExecutor.supply(() -> toSearchPage(messageDao.searchMessages(query, offset, pageSize + 1), offset, pageSize));
+    }
+
+    /*
+     * Message Update Async Method
+     * INPUT: 1 int, 1 String
+     * OUTPUT: CompletableFuture of Message object
+     * Asynchronous messageUpdate
+    */
+    public CompletableFuture<Message> messageUpdateAsync(int id, String newText){
+        return dbExecutor.supply(() -> messageUpdate(id, newText));
+    }
+
+    /*
+     * Message Delete Async Method
+     * INPUT: 1 int
+     * OUTPUT: CompletableFuture of Message object
+     * Asynchronous messageDelete
+    */
+    public CompletableFuture<Message> messageDeleteAsync(int id){
+        return dbExecutor.supply(() -> messageDelete(id));
+    }
+
+    /*
+     * Check Page Size Helper Method
+     * INPUT: 1 int
+     * OUTPUT: 1 int
+     * Returns the limit if it is between 1 and MAX_PAGE_SIZE
+     * Throws IllegalArgumentException otherwise
+    */
+    private int checkPageSize(int limit){
+        if(limit < 1 || limit > MAX_PAGE_SIZE){
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        return limit;
+    }
+
+    /*
+     * To Page Helper Method
+     * INPUT: 1 List of Message objects, 1 int
+     * OUTPUT: MessagePage object
+     * Trims the over-fetched row and builds the next cursor from the last Message kept
+    */
+    private MessagePage toPage(List<Message> rows, int pageSize){
+        if(rows.size() <= pageSize){
+            return new MessagePage(rows, null);
+        }
+
+        List<Message> messages = rows.subList(0, pageSize);
+        return new MessagePage(messages, PageCursor.encode(messages.get(pageSize - 1)));
+    }
+
+    /*
+     * Check Search Query Helper Method
+     * INPUT: 1 String
+     * OUTPUT: N/A
+     * Throws IllegalArgumentException if the query has no words or more than SearchQuery.MAX_TERMS
+    */
+    private void checkSearchQuery(String query){
+        int terms = SearchQuery.terms(query).size();
+
+        if(terms == 0 || terms > SearchQuery.MAX_TERMS){
+            throw new IllegalArgumentException("q must contain between 1 and " + SearchQuery.MAX_TERMS + " words");
+        }
+    }
+
+    /*
+     * To Search Page Helper Method
+     * INPUT: 1 List of Message objects, 2 int
+     * OUTPUT: MessagePage object
+     * Trims the over-fetched row and points the next cursor at the following position
+    */
+    private MessagePage toSearchPage(List<Message> rows, int offset, int pageSize){
+        if(rows.size() <= pageSize){
+            return new MessagePage(rows, null);
+        }
+
+        return new MessagePage(rows.subList(0, pageSize), PageCursor.encodeOffset(offset + pageSize));
+    }
+
+    /*
+     * Resolve Helper Method
+     * INPUT: 1 int array
+     * OUTPUT: List of Message objects
+     * Looks up the Messages for the given ids with one batched query, in the order of the ids
+     * Skips a Message deleted since the ids were read
+    */
+    private List<Message> resolve(int[] ids){
+        Map<Integer, Message> byId = new HashMap<>();
+        for(Message msg : messageDao.selectMessagesByIds(ids)){
+            byId.put(msg.getMessageId(), msg);
+        }
+
+        List<Message> messages = new ArrayList<>(ids.length);
+        for(int messageId : ids){
+            Message msg = byId.get(messageId);
+
+            if(msg != null){
+                messages.add(msg);
+            }
+        }
+
+        return messages;
+    }
+
+    /*
+     * Index Helper Method
+     * INPUT: 1 Message object
+     * OUTPUT: N/A
+     * Adds a newly stored Message to its poster's timeline, pushes it to its followers' feeds,
+     * queues its text for trending (counted on the trending thread, never on the caller's) and stamps the poster
+    */
+    private void index(Message msg){
+        timelineIndex.add(msg.getPostedBy(), msg.getTimePostedEpoch(), msg.getMessageId());
+        feedService.onPost(msg.getPostedBy(), msg.getTimePostedEpoch(), msg.getMessageId());
+        trendingTracker.submit(msg.getMessageText());
+        touch(msg.getPostedBy());
+    }
+
+    /*
+     * Touch Helper Method
+     * INPUT: 1 int
+     * OUTPUT: N/A
+     * Tells the listeners about a change to the account's Messages; called only after the write is stored
+     * The write's own transaction already moved the stored list version, so only the cached copy is dropped
+    */
+    private void touch(int accountId){
+        if(listVersions != null){
+            listVersions.invalidate(accountId);
+        }
+        for(IntConsumer listener : messageChangeListeners){
+            listener.accept(accountId);
+        }
+    }
+
+    // The collection ETag of the account's Messages at the given list version
+    private static String listETag(int accountId, long version){
+        return ETags.quote("a" + accountId + "." + version);
+    }
+
+    /*
+     * User Page Key Helper Method
+     * INPUT: 1 String, 1 String, 1 int
+     * OUTPUT: 1 String
+     * Identifies one page of an account's Messages, as of the list version in the ETag, for userPageFlights
+    */
+    private static String userPageKey(String listETag, String after, int pageSize){
+        return listETag + "/" + pageSize + "/" + after;
+    }
+
+    /*
+     * Validate Message Helper Method
+     * INPUT: 1 Message object
+     * OUTPUT: 1 String
+     * Returns why the message cannot be created, or null if it is valid
+    */
+    private String validateMessage(Message msg){
+        if(msg == null || msg.getMessageText() == null){
+            return "messageText is required";
+        }
+        if(msg.getMessageText().isBlank()){
+            return "messageText must not be blank";
+        }
+
+        return null;
     }
 }
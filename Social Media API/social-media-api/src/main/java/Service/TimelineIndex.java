@@ -0,0 +1,190 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: TimelineIndex.java
+/* FILE DESCRIPTION: Class that keeps, for every account, the ids of its Messages sorted by (timePostedEpoch, messageId).
+ * Each account's timeline is a pair of parallel primitive arrays, so a time-range query is two binary searches
+ * and a copy instead of a scan of the user's history. The service updates it as Messages are created and deleted,
+ * and it is rebuilt from the DAO at startup.
+*/
+
+package Service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import DAO.Message.MessageDAO;
+
+public class TimelineIndex {
+    // Timelines by accountId
+    private final ConcurrentHashMap<Integer, Timeline> timelines = new ConcurrentHashMap<>();
+
+    // Methods
+    /*
+     * Rebuild Method
+     * INPUT: 1 MessageDAO
+     * OUTPUT: 1 int
+     * Replaces the index with every Message currently stored and returns the number indexed
+    */
+    public int rebuild(MessageDAO messageDao){
+        timelines.clear();
+
+        return messageDao.forEachMessage(msg -> {
+            add(msg.getPostedBy(), msg.getTimePostedEpoch(), msg.getMessageId());
+            return true;
+        });
+    }
+
+    /*
+     * Add Method
+     * INPUT: 2 int, 1 long
+     * OUTPUT: N/A
+     * Records a new Message on its poster's timeline
+    */
+    public void add(int accountId, long timePostedEpoch, int messageId){
+        timelines.computeIfAbsent(accountId, id -> new Timeline()).add(timePostedEpoch, messageId);
+    }
+
+    /*
+     * Remove Method
+     * INPUT: 2 int, 1 long
+     * OUTPUT: N/A
+     * Drops a deleted Message from its poster's timeline
+    */
+    public void remove(int accountId, long timePostedEpoch, int messageId){
+        Timeline timeline = timelines.get(accountId);
+
+        if(timeline != null){
+            timeline.remove(timePostedEpoch, messageId);
+        }
+    }
+
+    /*
+     * Range Method
+     * INPUT: 1 int, 2 long, 1 int
+     * OUTPUT: 1 int array
+     * Returns the ids of up to limit of the account's Messages posted in [since, until), newest first
+    */
+    public int[] range(int accountId, long since, long until, int limit){
+        Timeline timeline = timelines.get(accountId);
+
+        return (timeline == null) ? new int[0] : timeline.range(since, until, limit);
+    }
+
+    /*
+     * Newest Method
+     * INPUT: 2 int, 1 EntryVisitor
+     * OUTPUT: N/A
+     * Passes the (timePostedEpoch, messageId) of up to limit of the account's newest Messages to the visitor, newest first
+     * The visitor runs while the timeline is locked, so it should only copy the values
+    */
+    public void newest(int accountId, int limit, EntryVisitor visitor){
+        Timeline timeline = timelines.get(accountId);
+
+        if(timeline != null){
+            timeline.newest(limit, visitor);
+        }
+    }
+
+    // Number of Messages on the account's timeline
+    public int size(int accountId){
+        Timeline timeline = timelines.get(accountId);
+
+        return (timeline == null) ? 0 : timeline.size();
+    }
+
+    // Receives timeline entries from newest()
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long timePostedEpoch, int messageId);
+    }
+
+    /*
+     * Timeline Class
+     * One account's Messages as parallel arrays sorted by (timePostedEpoch, messageId)
+     * New Messages are usually the newest, so adding is almost always an append
+    */
+    private static class Timeline {
+        private long[] times = new long[8];
+        private int[] ids = new int[8];
+        private int size = 0;
+
+        private synchronized void add(long time, int id){
+            int at = search(time, id);
+            if(at >= 0){
+                return;
+            }
+            at = -(at + 1);
+
+            if(size == ids.length){
+                times = Arrays.copyOf(times, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+
+            System.arraycopy(times, at, times, at + 1, size - at);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            times[at] = time;
+            ids[at] = id;
+            size++;
+        }
+
+        private synchronized void remove(long time, int id){
+            int at = search(time, id);
+            if(at < 0){
+                return;
+            }
+
+            System.arraycopy(times, at + 1, times, at, size - at - 1);
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+        }
+
+        private synchronized int[] range(long since, long until, int limit){
+            // Rows from the first time >= since up to, not including, the first time >= until
+            int from = -(search(since, Integer.MIN_VALUE) + 1);
+            int to = -(search(until, Integer.MIN_VALUE) + 1);
+
+            int count = Math.max(0, Math.min(limit, to - from));
+            int[] result = new int[count];
+            for(int i = 0; i < count; i++){
+                result[i] = ids[to - 1 - i];
+            }
+
+            return result;
+        }
+
+        private synchronized void newest(int limit, EntryVisitor visitor){
+            for(int i = size - 1; i >= Math.max(0, size - limit); i--){
+                visitor.visit(times[i], ids[i]);
+            }
+        }
+
+        private synchronized int size(){
+            return size;
+        }
+
+        /*
+         * Search Method
+         * Binary search for (time, id); returns its index, or -(insertion point) - 1 if it is absent
+        */
+        private int search(long time, int id){
+            int low = 0;
+            int high = size - 1;
+
+            while(low <= high){
+                int mid = (low + high) >>> 1;
+                int cmp = (times[mid] != time) ? Long.compare(times[mid], time) : Integer.compare(ids[mid], id);
+
+                if(cmp < 0){
+                    low = mid + 1;
+                }
+                else if(cmp > 0){
+                    high = mid - 1;
+                }
+                else{
+                    return mid;
+                }
+            }
+
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: TrendingTracker.java
+/* FILE DESCRIPTION: Class that tracks the most used #hashtags and @mentions over a sliding time window in constant memory.
+ * Time is cut into a ring of fixed-width buckets. Each bucket has a CountMinSketch of every tag seen in it plus a
+ * small set of candidate heavy hitters (the tags with the highest estimates in that bucket).
+ * Every bucket's sketch shares one hash seed, so a window query merges the sketches it covers into one and
+ * estimates each candidate once against it, outside the lock.
+ * Memory is fixed by the bucket count, sketch size and candidate count, however many distinct tags are posted.
+ * Tags are extracted and counted on a single background thread fed by a bounded queue; when the queue is full
+ * the Message is skipped for trending rather than slowing its creation.
+*/
+
+package Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import Model.TrendingTag;
+import Utility.CountMinSketch;
+
+public class TrendingTracker {
+    // Longest tag kept; longer ones are cut
+    private static final int MAX_TAG_LENGTH = 64;
+
+    private final Bucket[] buckets;
+    private final long bucketMillis;
+    private final int sketchDepth;
+    private final int sketchWidth;
+    private final int candidatesPerBucket;
+    private final LongSupplier clock;
+
+    // Hash seed of every bucket's sketch, so covered buckets can be merged
+    private final long sketchSeed = ThreadLocalRandom.current().nextLong();
+
+    // Background counting
+    private final ThreadPoolExecutor worker;
+    private final LongAdder droppedCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 int, 1 long, 4 int, 1 LongSupplier
+     * Creates a tracker covering bucketCount * bucketMillis of history, reading the time in millis from the clock
+    */
+    public TrendingTracker(int bucketCount, long bucketMillis, int sketchDepth, int sketchWidth, int candidatesPerBucket,
+            int queueCapacity, LongSupplier clock){
+        if(bucketCount < 1 || bucketMillis < 1 || candidatesPerBucket < 1){
+            throw new IllegalArgumentException("bucketCount, bucketMillis and candidatesPerBucket must be at least 1");
+        }
+
+        this.buckets = new Bucket[bucketCount];
+        this.bucketMillis = bucketMillis;
+        this.sketchDepth = sketchDepth;
+        this.sketchWidth = sketchWidth;
+        this.candidatesPerBucket = candidatesPerBucket;
+        this.clock = clock;
+
+        // The thread exits after a minute without Messages, so an idle tracker holds none
+        this.worker = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "trending");
+                t.setDaemon(true);
+                return t;
+            });
+        this.worker.allowCoreThreadTimeOut(true);
+    }
+
+    // Methods
+    /*
+     * Submit Method
+     * INPUT: 1 String
+     * OUTPUT: 1 boolean
+     * Queues the Message text to be counted on the background thread
+     * Returns false (and counts a drop) if the queue is full
+    */
+    public boolean submit(String messageText){
+        try{
+            worker.execute(() -> record(messageText));
+            return true;
+        }
+        catch(RejectedExecutionException e){
+            droppedCount.increment();
+            return false;
+        }
+    }
+
+    /*
+     * Close Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Stops accepting Messages; those already queued are still counted, then the background thread exits
+    */
+    public void close(){
+        worker.shutdown();
+    }
+
+    /*
+     * Record Method
+     * INPUT: 1 String
+     * OUTPUT: N/A
+     * Counts every tag of the Message text in the current bucket, on the calling thread
+    */
+    public void record(String messageText){
+        List<String> tags = extractTags(messageText);
+        if(tags.isEmpty()){
+            return;
+        }
+
+        synchronized(this){
+            Bucket bucket = current(clock.getAsLong() / bucketMillis);
+
+            for(String tag : tags){
+                bucket.add(tag, candidatesPerBucket);
+            }
+        }
+    }
+
+    /*
+     * Top Method
+     * INPUT: 1 long, 1 int
+     * OUTPUT: List of TrendingTag objects
+     * Returns up to limit of the most used tags over the last windowMillis, most used first
+     * The window is rounded up to whole buckets, and counts may be slightly high where tags collide in a sketch
+     * Throws IllegalArgumentException if the window is not positive or is longer than the tracked history
+    */
+    public List<TrendingTag> top(long windowMillis, int limit){
+        if(windowMillis < 1 || windowMillis > getMaxWindowMillis()){
+            throw new IllegalArgumentException("window must be between 1 ms and " + getMaxWindowMillis() + " ms");
+        }
+
+        long now = clock.getAsLong() / bucketMillis;
+        long span = (windowMillis + bucketMillis - 1) / bucketMillis;
+        CountMinSketch merged = new CountMinSketch(sketchDepth, sketchWidth, sketchSeed);
+        Set<String> candidates = new HashSet<>();
+
+        // Merging costs depth * width per bucket however many candidates there are
+        synchronized(this){
+            for(long epoch = now - span + 1; epoch <= now; epoch++){
+                Bucket bucket = buckets[slot(epoch)];
+                if(bucket != null && bucket.epoch == epoch){
+                    merged.merge(bucket.sketch);
+                    candidates.addAll(bucket.candidates.keySet());
+                }
+            }
+        }
+
+        List<TrendingTag> top = new ArrayList<>(candidates.size());
+        for(String tag : candidates){
+            top.add(new TrendingTag(tag, merged.estimate(tag)));
+        }
+        top.sort((a, b) -> (a.getCount() != b.getCount()) ? Integer.compare(b.getCount(), a.getCount()) : a.getTag().compareTo(b.getTag()));
+
+        return (top.size() <= limit) ? top : new ArrayList<>(top.subList(0, limit));
+    }
+
+    // Longest window top() accepts
+    public long getMaxWindowMillis(){ return buckets.length * bucketMillis; }
+
+    // Messages skipped because the counting queue was full
+    public long getDroppedCount(){ return droppedCount.sum(); }
+
+    // Messages waiting to be counted
+    public int getQueueDepth(){ return worker.getQueue().size(); }
+
+    /*
+     * Extract Tags Method
+     * INPUT: 1 String
+     * OUTPUT: List of String
+     * Returns the #hashtags and @mentions in the text, lowercased and with their prefix, e.g. "#java" and "@bob"
+     * A tag is the prefix followed by letters, digits or underscores, and must not follow a letter or digit (so no emails)
+    */
+    public static List<String> extractTags(String text){
+        List<String> tags = new ArrayList<>();
+        if(text == null){
+            return tags;
+        }
+
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if((c != '#' && c != '@') || (i > 0 && Character.isLetterOrDigit(text.charAt(i - 1)))){
+                continue;
+            }
+
+            int end = i + 1;
+            while(end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')){
+                end++;
+            }
+
+            if(end > i + 1){
+                tags.add(text.substring(i, Math.min(end, i + 1 + MAX_TAG_LENGTH)).toLowerCase(Locale.ROOT));
+            }
+            i = end - 1;
+        }
+
+        return tags;
+    }
+
+    /*
+     * Current Helper Method
+     * INPUT: 1 long
+     * OUTPUT: Bucket object
+     * Returns the bucket for the given bucket epoch, resetting the ring slot if it still holds an older bucket
+    */
+    private Bucket current(long epoch){
+        int slot = slot(epoch);
+        Bucket bucket = buckets[slot];
+
+        if(bucket == null){
+            bucket = new Bucket(new CountMinSketch(sketchDepth, sketchWidth, sketchSeed));
+            buckets[slot] = bucket;
+        }
+        if(bucket.epoch != epoch){
+            bucket.sketch.clear();
+            bucket.candidates.clear();
+            bucket.epoch = epoch;
+        }
+
+        return bucket;
+    }
+
+    private int slot(long epoch){
+        return (int) Math.floorMod(epoch, (long) buckets.length);
+    }
+
+    /*
+     * Bucket Class
+     * One time slice: a sketch of every tag plus the estimates of its current heavy hitters
+    */
+    private static class Bucket {
+        private final CountMinSketch sketch;
+        private final Map<String, Integer> candidates = new HashMap<>();
+        private long epoch = Long.MIN_VALUE;
+
+        private Bucket(CountMinSketch sketch){
+            this.sketch = sketch;
+        }
+
+        private void add(String tag, int maxCandidates){
+            int estimate = sketch.add(tag);
+
+            if(candidates.containsKey(tag) || candidates.size() < maxCandidates){
+                candidates.put(tag, estimate);
+                return;
+            }
+
+            // Replace the weakest candidate if this tag now beats it
+            String weakest = null;
+            int weakestCount = Integer.MAX_VALUE;
+            for(Map.Entry<String, Integer> entry : candidates.entrySet()){
+                if(entry.getValue() < weakestCount){
+                    weakest = entry.getKey();
+                    weakestCount = entry.getValue();
+                }
+            }
+
+            if(estimate > weakestCount){
+                candidates.remove(weakest);
+                candidates.put(tag, estimate);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: AcceptEncoding.java
+/* FILE DESCRIPTION: Class that reads an Accept-Encoding request header (RFC 9110 section 12.5.3).
+ * A coding is acceptable when the header lists it, or failing that "*", with a q-value above 0;
+ * so "gzip;q=0" refuses gzip even though the header mentions it.
+*/
+
+package Utility;
+
+public class AcceptEncoding {
+    // Methods
+    /*
+     * Accepts Method
+     * INPUT: 2 String
+     * OUTPUT: 1 boolean
+     * Returns true if the Accept-Encoding header value allows the given content-coding (e.g. "gzip")
+     * A missing header allows no coding here, so callers fall back to identity; entries with a malformed q-value are ignored
+    */
+    public static boolean accepts(String acceptEncoding, String coding){
+        if(acceptEncoding == null){
+            return false;
+        }
+
+        float codingQ = -1;
+        float wildcardQ = -1;
+
+        for(String entry : acceptEncoding.split(",")){
+            String[] parts = entry.split(";");
+            String name = parts[0].trim();
+
+            float q = qValue(parts);
+            if(q < 0){
+                continue;
+            }
+
+            if(name.equalsIgnoreCase(coding) || name.equalsIgnoreCase("x-" + coding)){
+                codingQ = Math.max(codingQ, q);
+            }
+            else if(name.equals("*")){
+                wildcardQ = Math.max(wildcardQ, q);
+            }
+        }
+
+        // A coding named outright overrides the wildcard
+        return (codingQ >= 0) ? codingQ > 0 : wildcardQ > 0;
+    }
+
+    /*
+     * Q Value Helper Method
+     * INPUT: 1 String array
+     * OUTPUT: 1 float
+     * Returns the q parameter of one header entry (1 when absent), or -1 if it is not a number from 0 to 1
+    */
+    private static float qValue(String[] parts){
+        for(int i = 1; i < parts.length; i++){
+            String param = parts[i].trim();
+            if(param.length() < 2 || Character.toLowerCase(param.charAt(0)) != 'q' || param.charAt(1) != '='){
+                continue;
+            }
+
+            try{
+                float q = Float.parseFloat(param.substring(2).trim());
+                return (q >= 0 && q <= 1) ? q : -1;
+            }
+            catch(NumberFormatException e){
+                return -1;
+            }
+        }
+
+        return 1;
+    }
+}
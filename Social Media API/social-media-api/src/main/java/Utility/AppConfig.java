@@ -0,0 +1,79 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: AppConfig.java
+/* FILE DESCRIPTION: Class that reads application settings from JVM system properties or environment variables
+*/
+
+package Utility;
+
+public class AppConfig {
+    /*
+     * Get String Setting Method
+     * INPUT: 2 Strings
+     * OUTPUT: 1 String
+     * Looks up the given key as a system property (e.g. -Ddb.pool.maxSize=8), then as an
+     * environment variable (e.g. DB_POOL_MAXSIZE), and returns the default if neither is set
+    */
+    public static String getString(String key, String defaultValue){
+        String value = System.getProperty(key);
+
+        if(value == null){
+            value = System.getenv(key.replace('.', '_').toUpperCase());
+        }
+
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    /*
+     * Get int Setting Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: 1 int
+     * Returns the setting parsed as an int, or the default if it is missing or malformed
+    */
+    public static int getInt(String key, int defaultValue){
+        String value = getString(key, null);
+
+        if(value != null){
+            try{
+                return Integer.parseInt(value);
+            }
+            catch(NumberFormatException e){
+                System.out.println("Invalid int value for setting " + key + ": " + value);
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /*
+     * Get long Setting Method
+     * INPUT: 1 String, 1 long
+     * OUTPUT: 1 long
+     * Returns the setting parsed as a long, or the default if it is missing or malformed
+    */
+    public static long getLong(String key, long defaultValue){
+        String value = getString(key, null);
+
+        if(value != null){
+            try{
+                return Long.parseLong(value);
+            }
+            catch(NumberFormatException e){
+                System.out.println("Invalid long value for setting " + key + ": " + value);
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /*
+     * Get boolean Setting Method
+     * INPUT: 1 String, 1 boolean
+     * OUTPUT: 1 boolean
+     * Returns the setting parsed as a boolean, or the default if it is missing
+    */
+    public static boolean getBoolean(String key, boolean defaultValue){
+        String value = getString(key, null);
+
+        return (value == null) ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
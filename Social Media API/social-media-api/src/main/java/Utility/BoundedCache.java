@@ -0,0 +1,290 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: BoundedCache.java
+/* FILE DESCRIPTION: Class that implements a size-bounded, thread-safe LRU cache with optional TTL.
+ * Keys are spread over independently locked segments so concurrent readers rarely contend,
+ * and each segment evicts its least recently used entry once it is full.
+*/
+
+package Utility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BoundedCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    // Settings
+    private final long ttlNanos;
+
+    // Cache state
+    private final Segment[] segments;
+
+    // Statistics
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 int, 1 long
+     * Creates a cache holding about maxSize entries, each expiring ttlMillis after it is loaded (0 = never)
+    */
+    @SuppressWarnings("unchecked")
+    public BoundedCache(int maxSize, long ttlMillis){
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.segments = new BoundedCache.Segment[SEGMENTS];
+
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for(int i = 0; i < SEGMENTS; i++){
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    // Methods
+    /*
+     * Get Method
+     * INPUT: 1 key, 1 Function
+     * OUTPUT: 1 value
+     * Returns the cached value for the key, or loads it with the loader and caches it
+     * Null values are returned but not cached
+     * A load that races with invalidate() for the same segment is returned but not cached,
+     * so a stale row read before an update can never overwrite the invalidation
+    */
+    public V get(K key, Function<K, V> loader){
+        Segment segment = segmentFor(key);
+        long stamp;
+
+        synchronized(segment){
+            Entry<V> entry = segment.map.get(key);
+
+            if(entry != null && !isExpired(entry)){
+                hitCount.increment();
+                return entry.value;
+            }
+            if(entry != null){
+                segment.map.remove(key);
+                evictionCount.increment();
+            }
+            stamp = segment.invalidations;
+        }
+
+        missCount.increment();
+        V value = loader.apply(key);
+
+        if(value != null){
+            synchronized(segment){
+                if(segment.invalidations == stamp){
+                    segment.map.put(key, new Entry<>(value, expiresAt()));
+                }
+            }
+        }
+
+        return value;
+    }
+
+    /*
+     * Get If Present Method
+     * INPUT: 1 key
+     * OUTPUT: 1 value
+     * Returns the cached value for the key, or null without loading it
+     * Only hits are counted; a caller that falls back to get() on null has the miss counted there
+    */
+    public V getIfPresent(K key){
+        Segment segment = segmentFor(key);
+
+        synchronized(segment){
+            Entry<V> entry = segment.map.get(key);
+
+            if(entry != null && !isExpired(entry)){
+                hitCount.increment();
+                return entry.value;
+            }
+        }
+
+        return null;
+    }
+
+    /*
+     * Get All Method
+     * INPUT: 1 List of keys, 1 Function
+     * OUTPUT: Map of keys to values
+     * Returns the cached values for the keys and loads all the missing ones with a single loader call, caching them
+     * Keys the loader has no value for are left out; as with get(), a load that races with invalidate() is returned but not cached
+    */
+    public Map<K, V> getAll(List<K> keys, Function<List<K>, Map<K, V>> loader){
+        Map<K, V> values = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        long[] stamps = new long[keys.size()];
+
+        for(K key : keys){
+            Segment segment = segmentFor(key);
+
+            synchronized(segment){
+                Entry<V> entry = segment.map.get(key);
+
+                if(entry != null && !isExpired(entry)){
+                    hitCount.increment();
+                    values.put(key, entry.value);
+                    continue;
+                }
+                if(entry != null){
+                    segment.map.remove(key);
+                    evictionCount.increment();
+                }
+                stamps[missing.size()] = segment.invalidations;
+            }
+
+            missCount.increment();
+            missing.add(key);
+        }
+
+        if(missing.isEmpty()){
+            return values;
+        }
+
+        Map<K, V> loaded = loader.apply(missing);
+        for(int i = 0; i < missing.size(); i++){
+            K key = missing.get(i);
+            V value = loaded.get(key);
+            if(value == null){
+                continue;
+            }
+
+            values.put(key, value);
+            Segment segment = segmentFor(key);
+            synchronized(segment){
+                if(segment.invalidations == stamps[i]){
+                    segment.map.put(key, new Entry<>(value, expiresAt()));
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /*
+     * Put Method
+     * INPUT: 1 key, 1 value
+     * OUTPUT: N/A
+     * Caches a value known to be current, e.g. a freshly inserted row
+    */
+    public void put(K key, V value){
+        Segment segment = segmentFor(key);
+
+        synchronized(segment){
+            segment.map.put(key, new Entry<>(value, expiresAt()));
+        }
+    }
+
+    /*
+     * Invalidate Method
+     * INPUT: 1 key
+     * OUTPUT: N/A
+     * Removes the key so the next get() reloads it
+    */
+    public void invalidate(K key){
+        Segment segment = segmentFor(key);
+
+        synchronized(segment){
+            segment.invalidations++;
+            segment.map.remove(key);
+        }
+    }
+
+    /*
+     * Invalidate All Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Empties the cache
+    */
+    public void invalidateAll(){
+        for(Segment segment : segments){
+            synchronized(segment){
+                segment.invalidations++;
+                segment.map.clear();
+            }
+        }
+    }
+
+    // Statistics Getter Methods
+    // Number of lookups served from the cache
+    public long getHitCount(){ return hitCount.sum(); }
+    // Number of lookups that went to the loader
+    public long getMissCount(){ return missCount.sum(); }
+    // Number of entries dropped for space or because they expired
+    public long getEvictionCount(){ return evictionCount.sum(); }
+
+    /*
+     * Size Method
+     * INPUT: N/A
+     * OUTPUT: 1 int
+     * Returns the number of cached entries
+    */
+    public int size(){
+        int size = 0;
+
+        for(Segment segment : segments){
+            synchronized(segment){
+                size += segment.map.size();
+            }
+        }
+
+        return size;
+    }
+
+    // Helper Methods
+    private Segment segmentFor(K key){
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private long expiresAt(){
+        return (ttlNanos == 0) ? Long.MAX_VALUE : System.nanoTime() + ttlNanos;
+    }
+
+    private boolean isExpired(Entry<V> entry){
+        return entry.expiresAt != Long.MAX_VALUE && System.nanoTime() - entry.expiresAt > 0;
+    }
+
+    /*
+     * Entry Class
+     * A cached value and when it expires
+    */
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt){
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /*
+     * Segment Class
+     * An access-ordered map that drops its least recently used entry once it passes capacity
+    */
+    private class Segment {
+        private final LinkedHashMap<K, Entry<V>> map;
+        private long invalidations = 0;
+
+        private Segment(int capacity){
+            this.map = new LinkedHashMap<>(capacity * 2, 0.75f, true){
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest){
+                    if(size() > capacity){
+                        evictionCount.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
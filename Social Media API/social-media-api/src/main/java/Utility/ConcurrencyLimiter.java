@@ -0,0 +1,65 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ConcurrencyLimiter.java
+/* FILE DESCRIPTION: Class that caps how many requests are in progress at once, without locks.
+ * Unlike a Semaphore it never queues: a request over the limit is refused at once so the caller can shed it,
+ * which keeps the latency of the admitted requests bounded instead of letting a backlog build up.
+*/
+
+package Utility;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrencyLimiter {
+    private final int limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Statistics
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 int
+     * Allows up to limit requests in progress at once
+    */
+    public ConcurrencyLimiter(int limit){
+        if(limit < 1){
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        this.limit = limit;
+    }
+
+    // Methods
+    /*
+     * Try Acquire Method
+     * INPUT: N/A
+     * OUTPUT: 1 boolean
+     * Counts a new request in progress and returns true, or returns false if the limit is reached
+     * Every true must be followed by exactly one release()
+    */
+    public boolean tryAcquire(){
+        while(true){
+            int current = inFlight.get();
+            if(current >= limit){
+                rejectedCount.increment();
+                return false;
+            }
+
+            if(inFlight.compareAndSet(current, current + 1)){
+                return true;
+            }
+        }
+    }
+
+    // Marks an acquired request as finished
+    public void release(){
+        inFlight.decrementAndGet();
+    }
+
+    // Getter Methods
+    public int getLimit(){ return this.limit; }
+    public int getInFlight(){ return inFlight.get(); }
+    public long getRejectedCount(){ return rejectedCount.sum(); }
+}
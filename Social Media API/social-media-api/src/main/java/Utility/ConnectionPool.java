@@ -0,0 +1,589 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ConnectionPool.java
+/* FILE DESCRIPTION: Class that implements a bounded JDBC connection pool tuned for SQLite.
+ * Callers borrow a connection in try-with-resources; closing it returns it to the pool instead of closing it.
+ * Connections are validated on borrow, configured with per-connection pragmas when opened,
+ * keep a cache of their PreparedStatements, and are watched for leaks by a background housekeeping thread.
+ * An optional admission limit caps how many callers may queue for a connection; beyond it callers are
+ * turned away at once with an OverloadedException instead of parking until the connection timeout.
+*/
+
+package Utility;
+
+import javax.sql.DataSource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+public class ConnectionPool implements DataSource {
+    // Settings
+    private final String url;
+    private final int minSize;
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final int validationTimeoutSecs;
+    private final long validationIntervalMs;
+    private final long idleTimeoutMs;
+    private final long leakDetectionThresholdMs;
+    private final boolean leakTraces;
+    private final int statementCacheSize;
+    private final int maxWaiting;
+    private final List<String> pragmas;
+
+    // Pool state
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final Semaphore admission;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // Statistics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder discardCount = new LongAdder();
+    private final LongAdder statementHitCount = new LongAdder();
+    private final LongAdder statementMissCount = new LongAdder();
+    private final LongAdder statementEvictionCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 Builder
+     * Creates the pool and eagerly opens minSize connections
+    */
+    private ConnectionPool(Builder builder){
+        this.url = builder.url;
+        this.minSize = builder.minSize;
+        this.maxSize = builder.maxSize;
+        this.connectionTimeoutMs = builder.connectionTimeoutMs;
+        this.validationTimeoutSecs = builder.validationTimeoutSecs;
+        this.validationIntervalMs = builder.validationIntervalMs;
+        this.idleTimeoutMs = builder.idleTimeoutMs;
+        this.leakDetectionThresholdMs = builder.leakDetectionThresholdMs;
+        this.leakTraces = builder.leakTraces;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.maxWaiting = builder.maxWaiting;
+        this.pragmas = List.copyOf(builder.pragmas);
+        this.permits = new Semaphore(maxSize, true);
+        this.admission = (maxWaiting < 0) ? null : new Semaphore(maxSize + maxWaiting);
+
+        // Warm up the pool
+        for(int i = 0; i < minSize; i++){
+            try{
+                idle.offerLast(open());
+            }
+            catch(SQLException e){
+                System.out.println("Failed to open initial pooled connection");
+                System.out.println(e.getMessage());
+                break;
+            }
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 5, 5, TimeUnit.SECONDS);
+    }
+
+    /*
+     * Builder Factory Method
+     * INPUT: 1 String
+     * OUTPUT: 1 Builder
+     * Returns a Builder for a pool of connections to the given JDBC URL
+    */
+    public static Builder builder(String url){
+        return new Builder(url);
+    }
+
+    // Methods
+    /*
+     * Get Connection Method
+     * INPUT: N/A
+     * OUTPUT: Connection object
+     * Borrows a connection from the pool, waiting up to connectionTimeoutMs for one to free up
+     * Closing the returned Connection hands it back to the pool instead of closing it
+     * Throws OverloadedException without waiting if maxWaiting callers are already queued
+    */
+    @Override
+    public Connection getConnection() throws SQLException{
+        if(closed){
+            throw new SQLException("Connection pool is closed");
+        }
+
+        // Turn the caller away if the queue for connections is already full
+        if(admission != null && !admission.tryAcquire()){
+            rejectedCount.increment();
+            throw new OverloadedException("Too many requests waiting for a database connection (max waiting = " + maxWaiting + ")", 1);
+        }
+
+        // Wait for a free slot
+        long start = System.nanoTime();
+        try{
+            if(!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)){
+                timeoutCount.increment();
+                releaseAdmission();
+                throw new SQLTransientConnectionException("Timed out after " + connectionTimeoutMs
+                    + "ms waiting for a pooled connection (active = " + getActiveCount() + ", max = " + maxSize + ")");
+            }
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            releaseAdmission();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a pooled connection", e);
+        }
+        waitNanos.add(System.nanoTime() - start);
+        borrowCount.increment();
+
+        // Reuse a healthy idle connection, or open a new one
+        try{
+            PooledConnection pooled;
+            while((pooled = idle.pollFirst()) != null){
+                if(isUsable(pooled)){
+                    break;
+                }
+                discard(pooled);
+            }
+            if(pooled == null){
+                pooled = open();
+            }
+
+            pooled.borrowedAt = System.currentTimeMillis();
+            // A stack trace costs far more than the borrow itself, so only the thread name is kept unless traces are asked for
+            pooled.borrowThread = Thread.currentThread().getName();
+            pooled.borrowTrace = (leakDetectionThresholdMs > 0 && leakTraces) ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{ Connection.class },
+                new ConnectionHandle(pooled)
+            );
+        }
+        catch(SQLException | RuntimeException e){
+            permits.release();
+            releaseAdmission();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException{
+        throw new SQLFeatureNotSupportedException("SQLite connections do not take credentials");
+    }
+
+    /*
+     * Close Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Stops the housekeeper and closes every idle connection
+     * Borrowed connections are closed as they are returned
+    */
+    public void close(){
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while((pooled = idle.pollFirst()) != null){
+            discard(pooled);
+        }
+    }
+
+    // Statistics Getter Methods
+    // Number of connections currently borrowed
+    public int getActiveCount(){ return borrowed.size(); }
+    // Number of open connections waiting in the pool
+    public int getIdleCount(){ return idle.size(); }
+    // Number of physical connections currently open
+    public int getTotalCount(){ return totalConnections.get(); }
+    // Number of threads currently waiting for a connection
+    public int getWaitingCount(){ return permits.getQueueLength(); }
+    // Maximum number of connections
+    public int getMaxSize(){ return maxSize; }
+    // Number of successful borrows
+    public long getBorrowCount(){ return borrowCount.sum(); }
+    // Total time spent waiting for a connection, in nanoseconds
+    public long getTotalWaitNanos(){ return waitNanos.sum(); }
+    // Number of borrows that timed out
+    public long getTimeoutCount(){ return timeoutCount.sum(); }
+    // Number of borrows turned away because maxWaiting callers were already queued
+    public long getRejectedCount(){ return rejectedCount.sum(); }
+    // Number of connections held longer than the leak detection threshold
+    public long getLeakCount(){ return leakCount.sum(); }
+    // Number of connections closed because they failed validation or sat idle too long
+    public long getDiscardCount(){ return discardCount.sum(); }
+    // Number of prepareStatement calls served from a connection's statement cache
+    public long getStatementCacheHitCount(){ return statementHitCount.sum(); }
+    // Number of prepareStatement calls that had to prepare a new statement
+    public long getStatementCacheMissCount(){ return statementMissCount.sum(); }
+    // Number of cached statements closed to make room for others
+    public long getStatementCacheEvictionCount(){ return statementEvictionCount.sum(); }
+
+    /*
+     * Statement Cache Hit Rate Method
+     * INPUT: N/A
+     * OUTPUT: 1 double
+     * Returns the fraction (0 to 1) of prepareStatement calls served from the statement caches
+    */
+    public double getStatementCacheHitRate(){
+        long hits = statementHitCount.sum();
+        long total = hits + statementMissCount.sum();
+        return (total == 0) ? 0.0 : (double) hits / total;
+    }
+
+    /*
+     * Average Wait Method
+     * INPUT: N/A
+     * OUTPUT: 1 double
+     * Returns the mean time in milliseconds a caller waited to borrow a connection
+    */
+    public double getAverageWaitMillis(){
+        long borrows = borrowCount.sum();
+        return (borrows == 0) ? 0.0 : (waitNanos.sum() / 1_000_000.0) / borrows;
+    }
+
+    /*
+     * Open Connection Helper Method
+     * INPUT: N/A
+     * OUTPUT: PooledConnection object
+     * Opens a new physical connection and applies the configured pragmas to it
+    */
+    private PooledConnection open() throws SQLException{
+        Connection physical = DriverManager.getConnection(url);
+
+        try(Statement st = physical.createStatement()){
+            for(String pragma : pragmas){
+                st.execute("PRAGMA " + pragma);
+            }
+        }
+        catch(SQLException e){
+            physical.close();
+            throw e;
+        }
+
+        totalConnections.incrementAndGet();
+
+        StatementCache statementCache = (statementCacheSize > 0)
+            ? new StatementCache(statementCacheSize, statementHitCount, statementMissCount, statementEvictionCount)
+            : null;
+        return new PooledConnection(physical, statementCache);
+    }
+
+    /*
+     * Is Usable Helper Method
+     * INPUT: 1 PooledConnection object
+     * OUTPUT: 1 boolean
+     * Checks an idle connection before handing it out
+     * Connections used recently are trusted, older ones are validated with isValid()
+    */
+    private boolean isUsable(PooledConnection pooled){
+        try{
+            if(pooled.physical.isClosed()){
+                return false;
+            }
+            if(System.currentTimeMillis() - pooled.lastReturnedAt < validationIntervalMs){
+                return true;
+            }
+            return pooled.physical.isValid(validationTimeoutSecs);
+        }
+        catch(SQLException e){
+            return false;
+        }
+    }
+
+    /*
+     * Return Connection Helper Method
+     * INPUT: 1 PooledConnection object
+     * OUTPUT: N/A
+     * Resets the connection state and puts it back into the pool, or discards it if it is broken
+    */
+    private void release(PooledConnection pooled){
+        borrowed.remove(pooled);
+
+        try{
+            // Take back statements the caller did not close
+            if(pooled.statementCache != null){
+                pooled.statementCache.reclaim();
+            }
+
+            boolean healthy = !pooled.physical.isClosed();
+
+            // Roll back anything a caller left uncommitted
+            if(healthy && !pooled.physical.getAutoCommit()){
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+
+            if(healthy && !closed){
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+            else{
+                discard(pooled);
+            }
+        }
+        catch(SQLException e){
+            System.out.println("Failed to reset pooled connection, discarding it");
+            System.out.println(e.getMessage());
+            discard(pooled);
+        }
+        finally{
+            permits.release();
+            releaseAdmission();
+        }
+    }
+
+    /*
+     * Release Admission Helper Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Frees the caller's place under the maxWaiting limit
+    */
+    private void releaseAdmission(){
+        if(admission != null){
+            admission.release();
+        }
+    }
+
+    /*
+     * Discard Connection Helper Method
+     * INPUT: 1 PooledConnection object
+     * OUTPUT: N/A
+     * Closes the physical connection
+    */
+    private void discard(PooledConnection pooled){
+        discardCount.increment();
+        totalConnections.decrementAndGet();
+
+        try{
+            pooled.physical.close();
+        }
+        catch(SQLException e){
+            System.out.println("Failed to close pooled connection");
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /*
+     * Housekeeping Helper Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Reports leaked connections, trims idle connections above minSize and tops the pool back up to minSize
+    */
+    private void housekeep(){
+        long now = System.currentTimeMillis();
+
+        // Leak detection
+        if(leakDetectionThresholdMs > 0){
+            for(PooledConnection pooled : borrowed){
+                if(!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdMs){
+                    pooled.leakReported = true;
+                    leakCount.increment();
+                    System.out.println("Possible connection leak: connection held for " + (now - pooled.borrowedAt) + "ms by thread " + pooled.borrowThread);
+                    if(pooled.borrowTrace != null){
+                        pooled.borrowTrace.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        // Trim idle connections, oldest first
+        if(idleTimeoutMs > 0){
+            List<PooledConnection> expired = new ArrayList<>();
+            for(PooledConnection pooled : idle){
+                if(totalConnections.get() - expired.size() > minSize && now - pooled.lastReturnedAt > idleTimeoutMs){
+                    expired.add(pooled);
+                }
+            }
+            for(PooledConnection pooled : expired){
+                if(idle.remove(pooled)){
+                    discard(pooled);
+                }
+            }
+        }
+
+        // Refill to the minimum size
+        while(!closed && totalConnections.get() < minSize){
+            try{
+                idle.offerLast(open());
+            }
+            catch(SQLException e){
+                System.out.println("Failed to refill connection pool");
+                System.out.println(e.getMessage());
+                break;
+            }
+        }
+    }
+
+    // DataSource boilerplate
+    @Override
+    public PrintWriter getLogWriter(){ return null; }
+    @Override
+    public void setLogWriter(PrintWriter out){ }
+    @Override
+    public void setLoginTimeout(int seconds){ }
+    @Override
+    public int getLoginTimeout(){ return (int) (connectionTimeoutMs / 1000); }
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException{ throw new SQLFeatureNotSupportedException(); }
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException{
+        if(iface.isInstance(this)){
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+    @Override
+    public boolean isWrapperFor(Class<?> iface){ return iface.isInstance(this); }
+
+    /*
+     * Pooled Connection Class
+     * Holds a physical connection together with its bookkeeping data
+    */
+    private static class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt = System.currentTimeMillis();
+        private volatile String borrowThread;
+        private volatile Throwable borrowTrace;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical, StatementCache statementCache){
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    /*
+     * Connection Handle Class
+     * The Connection handed to callers; close() returns the connection to the pool
+     * and any use after close() fails instead of touching a connection someone else now holds
+    */
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned = false;
+
+        private ConnectionHandle(PooledConnection pooled){
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+            switch(method.getName()){
+                case "close":
+                    if(!returned){
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "prepareStatement":
+                    if(!returned && pooled.statementCache != null){
+                        return pooled.statementCache.prepare(pooled.physical, (Connection) proxy, method, args);
+                    }
+                    break;
+                case "unwrap":
+                    if(((Class<?>) args[0]).isInstance(proxy)){
+                        return proxy;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+
+            if(returned){
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try{
+                return method.invoke(pooled.physical, args);
+            }
+            catch(InvocationTargetException e){
+                throw e.getCause();
+            }
+        }
+    }
+
+    /*
+     * Builder Class
+     * Collects the pool settings; defaults suit a single-file SQLite database
+    */
+    public static class Builder {
+        private final String url;
+        private int minSize = 2;
+        private int maxSize = 8;
+        private long connectionTimeoutMs = 30_000;
+        private int validationTimeoutSecs = 2;
+        private long validationIntervalMs = 30_000;
+        private long idleTimeoutMs = 600_000;
+        private long leakDetectionThresholdMs = 0;
+        private boolean leakTraces = false;
+        private int statementCacheSize = 64;
+        private int maxWaiting = -1;
+        private final List<String> pragmas = new ArrayList<>();
+
+        private Builder(String url){
+            this.url = url;
+        }
+
+        public Builder minSize(int minSize){ this.minSize = minSize; return this; }
+        public Builder maxSize(int maxSize){ this.maxSize = maxSize; return this; }
+        public Builder connectionTimeoutMs(long connectionTimeoutMs){ this.connectionTimeoutMs = connectionTimeoutMs; return this; }
+        public Builder validationTimeoutSecs(int validationTimeoutSecs){ this.validationTimeoutSecs = validationTimeoutSecs; return this; }
+        public Builder validationIntervalMs(long validationIntervalMs){ this.validationIntervalMs = validationIntervalMs; return this; }
+        public Builder idleTimeoutMs(long idleTimeoutMs){ this.idleTimeoutMs = idleTimeoutMs; return this; }
+        public Builder leakDetectionThresholdMs(long leakDetectionThresholdMs){ this.leakDetectionThresholdMs = leakDetectionThresholdMs; return this; }
+        // Captures a stack trace on every borrow so a leak report can show where it was borrowed (costly; for debugging)
+        public Builder leakTraces(boolean leakTraces){ this.leakTraces = leakTraces; return this; }
+        // PreparedStatements cached per connection (0 disables caching)
+        public Builder statementCacheSize(int statementCacheSize){ this.statementCacheSize = statementCacheSize; return this; }
+        // Callers allowed to queue for a connection before borrows are rejected (-1 means unbounded)
+        public Builder maxWaiting(int maxWaiting){ this.maxWaiting = maxWaiting; return this; }
+        // Adds a pragma to run on every new connection, e.g. "journal_mode = WAL"
+        public Builder pragma(String pragma){ this.pragmas.add(pragma); return this; }
+
+        public ConnectionPool build(){
+            if(maxSize < 1 || minSize < 0 || minSize > maxSize){
+                throw new IllegalArgumentException("Invalid pool size: min = " + minSize + ", max = " + maxSize);
+            }
+            return new ConnectionPool(this);
+        }
+    }
+}
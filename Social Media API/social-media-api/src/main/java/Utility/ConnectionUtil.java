@@ -1,29 +1,164 @@
 // AUTHOR: Sebastien Yokoyama
 // FILE NAME: ConnectionUtil.java
 /* FILE DESCRIPTION: Class that connects to database via JDBC
+ * Connections are borrowed from a shared ConnectionPool; closing a borrowed connection returns it
+ * With db.mode=split, reads use a pool of read-only connections and every write goes through write(),
+ * which runs it on the single SqlWriter thread and connection; with db.mode=pooled (the default)
+ * reads and writes share one pool
 */
 
 package Utility;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class ConnectionUtil {
-    private static String url = "jdbc:sqlite:D:\\Programs\\SQLite\\Databases\\SocialMediaApi\\SocialMediaDB.db";
-    private static Connection connection = null;
+    // Storage modes
+    public static final String POOLED = "pooled";
+    public static final String SPLIT = "split";
 
-    public static Connection getConnection(){
-        if(connection == null){
-            try{
-                connection = DriverManager.getConnection(url);
+    private static volatile ConnectionPool pool = null;
+    private static volatile SqlWriter writer = null;
+
+    /*
+     * Get URL Method
+     * INPUT: N/A
+     * OUTPUT: 1 String
+     * Returns the JDBC URL from db.url, or builds one from the db.path file location
+    */
+    public static String getUrl(){
+        return AppConfig.getString("db.url", "jdbc:sqlite:" + AppConfig.getString("db.path", "SocialMediaDB.db"));
+    }
+
+    /*
+     * Get Connection Method
+     * INPUT: N/A
+     * OUTPUT: Connection object
+     * Borrows a connection from the pool (read-only in split mode; use write() for changes)
+     * Callers must close the connection (try-with-resources) to return it to the pool
+     * Throws OverloadedException if db.pool.maxWaiting callers are already queued for a connection
+    */
+    public static Connection getConnection() throws SQLException{
+        return getPool().getConnection();
+    }
+
+    /*
+     * Write Method
+     * INPUT: 1 SqlWork
+     * OUTPUT: T
+     * Runs a write against the database and returns its result
+     * In split mode the work is queued for the single writer thread and connection and the caller waits for it;
+     * in pooled mode it runs right away on a pooled connection
+     * Writes run in auto-commit, so a statement read through a ResultSet (e.g. INSERT ... RETURNING) only commits
+     * once that ResultSet is closed; work must close it before returning
+     * Throws the work's SQLException, or OverloadedException if the write queue is full
+    */
+    public static <T> T write(SqlWork<T> work) throws SQLException{
+        if(isSplitMode()){
+            return getWriter().execute(work);
+        }
+
+        try(Connection connection = getConnection()){
+            return work.run(connection);
+        }
+    }
+
+    /*
+     * Is Split Mode Method
+     * INPUT: N/A
+     * OUTPUT: 1 boolean
+     * Returns true if db.mode is split (single writer, read-only reader pool)
+    */
+    public static boolean isSplitMode(){
+        return SPLIT.equalsIgnoreCase(AppConfig.getString("db.mode", POOLED));
+    }
+
+    /*
+     * Get Pool Method
+     * INPUT: N/A
+     * OUTPUT: ConnectionPool object
+     * Returns the shared pool, creating it from the db.pool.* settings on first use
+     * In split mode its connections are read-only (PRAGMA query_only)
+    */
+    public static ConnectionPool getPool(){
+        if(pool == null){
+            synchronized(ConnectionUtil.class){
+                if(pool == null){
+                    ConnectionPool.Builder builder = configure(ConnectionPool.builder(getUrl()))
+                        .minSize(AppConfig.getInt("db.pool.minSize", 2))
+                        .maxSize(AppConfig.getInt("db.pool.maxSize", 8))
+                        .maxWaiting(AppConfig.getInt("db.pool.maxWaiting", 256));
+
+                    if(isSplitMode()){
+                        builder.pragma("query_only = ON");
+                    }
+
+                    pool = builder.build();
+                }
             }
-            catch(SQLException e){
-                System.out.println("Database failed to connect!");
-                e.printStackTrace();   
+        }
+
+        return pool;
+    }
+
+    /*
+     * Get Writer Method
+     * INPUT: N/A
+     * OUTPUT: SqlWriter object
+     * Returns the single writer used in split mode, creating it and its one connection on first use
+    */
+    public static SqlWriter getWriter(){
+        if(writer == null){
+            synchronized(ConnectionUtil.class){
+                if(writer == null){
+                    ConnectionPool writeConnection = configure(ConnectionPool.builder(getUrl()))
+                        .minSize(1)
+                        .maxSize(1)
+                        .build();
+
+                    writer = new SqlWriter(writeConnection, AppConfig.getInt("db.writer.queueCapacity", 10_000));
+                }
             }
         }
 
-        return connection;
+        return writer;
+    }
+
+    /*
+     * Shutdown Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Closes the shared pool and writer; the next getConnection() or write() call creates fresh ones
+    */
+    public static synchronized void shutdown(){
+        if(writer != null){
+            writer.close();
+            writer = null;
+        }
+        if(pool != null){
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /*
+     * Configure Helper Method
+     * INPUT: 1 ConnectionPool.Builder
+     * OUTPUT: 1 ConnectionPool.Builder
+     * Applies the connection settings and pragmas shared by the reader pool and the write connection
+    */
+    private static ConnectionPool.Builder configure(ConnectionPool.Builder builder){
+        return builder
+            .connectionTimeoutMs(AppConfig.getLong("db.pool.connectionTimeoutMs", 30_000))
+            .validationTimeoutSecs(AppConfig.getInt("db.pool.validationTimeoutSecs", 2))
+            .idleTimeoutMs(AppConfig.getLong("db.pool.idleTimeoutMs", 600_000))
+            .leakDetectionThresholdMs(AppConfig.getLong("db.pool.leakDetectionThresholdMs", 10_000))
+            .leakTraces(AppConfig.getBoolean("db.pool.leakTraces", false))
+            .statementCacheSize(AppConfig.getInt("db.pool.statementCacheSize", 64))
+            .pragma("journal_mode = " + AppConfig.getString("db.sqlite.journalMode", "WAL"))
+            .pragma("synchronous = " + AppConfig.getString("db.sqlite.synchronous", "NORMAL"))
+            .pragma("busy_timeout = " + AppConfig.getInt("db.sqlite.busyTimeoutMs", 5_000))
+            .pragma("cache_size = " + AppConfig.getInt("db.sqlite.cacheSize", -16_000))
+            .pragma("mmap_size = " + AppConfig.getLong("db.sqlite.mmapSize", 268_435_456L));
     }
 }
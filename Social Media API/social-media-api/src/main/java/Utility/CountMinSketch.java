@@ -0,0 +1,151 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: CountMinSketch.java
+/* FILE DESCRIPTION: Class that estimates how often each key was seen in a fixed amount of memory.
+ * depth rows of width int counters; a key increments one counter per row and its estimate is the smallest of them,
+ * so estimates are never low and only overcount when every row collides.
+ * Uses conservative update (only the counters at the current minimum are raised), which cuts the overcount
+ * on skewed streams such as hashtags. Not thread-safe; callers guard it with their own lock.
+ * Keys are hashed once to 64 bits with a per-sketch random seed, and row i uses h1 + i * h2 from its two halves
+ * (Kirsch-Mitzenmacher), so rows are independent and colliding String.hashCode() values do not share counters.
+*/
+
+package Utility;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class CountMinSketch {
+    private final int depth;
+    private final int mask;
+    private final int[] counters;
+    private final long seed;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 2 int
+     * Creates a sketch of depth rows, each rounded up to a power-of-two width, with a random hash seed
+    */
+    public CountMinSketch(int depth, int width){
+        this(depth, width, ThreadLocalRandom.current().nextLong());
+    }
+
+    /*
+     * Parameterized Constructor
+     * INPUT: 2 int, 1 long
+     * Creates a sketch of depth rows, each rounded up to a power-of-two width, hashing keys with the given seed
+    */
+    public CountMinSketch(int depth, int width, long seed){
+        if(depth < 1 || width < 1){
+            throw new IllegalArgumentException("depth and width must be at least 1");
+        }
+
+        int rowWidth = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = rowWidth - 1;
+        this.counters = new int[depth * rowWidth];
+        this.seed = seed;
+    }
+
+    // Methods
+    /*
+     * Add Method
+     * INPUT: 1 String
+     * OUTPUT: 1 int
+     * Counts one occurrence of the key and returns its new estimate
+    */
+    public int add(String key){
+        long hash = hash(key);
+        int estimate = estimate(hash) + 1;
+
+        for(int row = 0; row < depth; row++){
+            int at = index(hash, row);
+            if(counters[at] < estimate){
+                counters[at] = estimate;
+            }
+        }
+
+        return estimate;
+    }
+
+    /*
+     * Estimate Method
+     * INPUT: 1 String
+     * OUTPUT: 1 int
+     * Returns an upper bound on how many times the key was added
+    */
+    public int estimate(String key){
+        return estimate(hash(key));
+    }
+
+    /*
+     * Merge Method
+     * INPUT: 1 CountMinSketch object
+     * OUTPUT: N/A
+     * Adds the other sketch's counters to this one, so estimates cover the keys added to both
+     * Every row still bounds each key's count from above, so merged estimates are never low
+     * Throws IllegalArgumentException unless both sketches have the same depth, width and seed
+    */
+    public void merge(CountMinSketch other){
+        if(other.depth != depth || other.mask != mask || other.seed != seed){
+            throw new IllegalArgumentException("only sketches with the same depth, width and seed can be merged");
+        }
+
+        for(int i = 0; i < counters.length; i++){
+            counters[i] += other.counters[i];
+        }
+    }
+
+    // Forget every count
+    public void clear(){
+        Arrays.fill(counters, 0);
+    }
+
+    private int estimate(long hash){
+        int min = Integer.MAX_VALUE;
+
+        for(int row = 0; row < depth; row++){
+            min = Math.min(min, counters[index(hash, row)]);
+        }
+
+        return min;
+    }
+
+    /*
+     * Hash Helper Method
+     * INPUT: 1 String
+     * OUTPUT: 1 long
+     * Seeded 64-bit hash of the key's chars, mixed as in MurmurHash3 and finished with its fmix64 step
+    */
+    private long hash(String key){
+        long h = seed;
+
+        for(int i = 0; i < key.length(); i++){
+            long k = key.charAt(i) * 0x87C37B91114253D5L;
+            k = Long.rotateLeft(k, 31) * 0x4CF5AD432745937FL;
+            h ^= k;
+            h = Long.rotateLeft(h, 27) * 5 + 0x52DCE729;
+        }
+        h ^= key.length();
+
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /*
+     * Index Helper Method
+     * INPUT: 1 long, 1 int
+     * OUTPUT: 1 int
+     * Position of the key's counter in the given row: h1 + row * h2, with h2 odd so every row gets a different slot
+    */
+    private int index(long hash, int row){
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+
+        return (row * (mask + 1)) + ((h1 + row * h2) & mask);
+    }
+}
@@ -0,0 +1,206 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: DbExecutor.java
+/* FILE DESCRIPTION: Class that runs blocking database work on a fixed set of threads sized to the connection pool.
+ * HTTP threads hand their DAO calls to it and are released while the queries run.
+ * The queue is bounded; when it is full new work is turned away with an OverloadedException (503).
+ * Time spent queued and running is recorded so the executor can be sized from real numbers,
+ * and the wait of the oldest queued task is available for admission control.
+*/
+
+package Utility;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class DbExecutor implements Executor {
+    private static volatile DbExecutor shared = null;
+
+    // Worker threads and their bounded queue
+    private final ThreadPoolExecutor workers;
+    private final int queueCapacity;
+
+    // Statistics
+    private final LongAdder submittedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 2 int
+     * Creates an executor with the given number of threads and queue capacity
+    */
+    public DbExecutor(int threads, int queueCapacity){
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "db-executor-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    }
+
+    /*
+     * Shared Executor Method
+     * INPUT: N/A
+     * OUTPUT: DbExecutor object
+     * Returns the executor shared by the services, creating it from the db.executor.* settings on first use
+     * The thread count defaults to the connection pool size, since more threads would only wait for connections
+    */
+    public static DbExecutor shared(){
+        if(shared == null){
+            synchronized(DbExecutor.class){
+                if(shared == null){
+                    shared = new DbExecutor(
+                        AppConfig.getInt("db.executor.threads", AppConfig.getInt("db.pool.maxSize", 8)),
+                        AppConfig.getInt("db.executor.queueCapacity", 10_000)
+                    );
+                }
+            }
+        }
+
+        return shared;
+    }
+
+    // Methods
+    /*
+     * Supply Method
+     * INPUT: 1 Supplier
+     * OUTPUT: CompletableFuture
+     * Runs the work on a database thread and completes the returned future with its result
+     * Throws OverloadedException if the queue is full
+    */
+    public <T> CompletableFuture<T> supply(Supplier<T> work){
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+
+        execute(() -> {
+            long startedAt = System.nanoTime();
+            queueNanos.add(startedAt - queuedAt);
+
+            try{
+                future.complete(work.get());
+            }
+            catch(Throwable e){
+                future.completeExceptionally(e);
+            }
+            finally{
+                runNanos.add(System.nanoTime() - startedAt);
+                completedCount.increment();
+            }
+        });
+
+        return future;
+    }
+
+    /*
+     * Execute Method
+     * INPUT: 1 Runnable
+     * OUTPUT: N/A
+     * Queues the task for a database thread
+     * Throws OverloadedException if the queue is full
+    */
+    @Override
+    public void execute(Runnable task){
+        try{
+            workers.execute(new QueuedTask(task, System.nanoTime()));
+            submittedCount.increment();
+        }
+        catch(RejectedExecutionException e){
+            rejectedCount.increment();
+            throw new OverloadedException("Database work queue is full (capacity = " + queueCapacity + ")", 1);
+        }
+    }
+
+    /*
+     * Shutdown Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Stops accepting work and lets queued work finish
+    */
+    public void shutdown(){
+        workers.shutdown();
+    }
+
+    // Statistics Getter Methods
+    // Number of worker threads
+    public int getThreadCount(){ return workers.getMaximumPoolSize(); }
+    // Number of workers currently running a task
+    public int getActiveCount(){ return workers.getActiveCount(); }
+    // Number of tasks waiting for a worker
+    public int getQueueDepth(){ return workers.getQueue().size(); }
+    // Number of tasks accepted
+    public long getSubmittedCount(){ return submittedCount.sum(); }
+    // Number of tasks finished, successfully or not
+    public long getCompletedCount(){ return completedCount.sum(); }
+    // Number of tasks turned away because the queue was full
+    public long getRejectedCount(){ return rejectedCount.sum(); }
+    // Total time tasks spent queued, in nanoseconds
+    public long getTotalQueueNanos(){ return queueNanos.sum(); }
+    // Total time tasks spent running, in nanoseconds
+    public long getTotalRunNanos(){ return runNanos.sum(); }
+
+    /*
+     * Oldest Queue Wait Method
+     * INPUT: N/A
+     * OUTPUT: 1 long
+     * Returns how long, in nanoseconds, the task at the head of the queue has been waiting, or 0 if none is
+     * Unlike the averages this reacts at once when the workers fall behind, and drops back as soon as they catch up
+    */
+    public long getOldestQueueWaitNanos(){
+        Runnable head = workers.getQueue().peek();
+
+        return (head instanceof QueuedTask) ? Math.max(0, System.nanoTime() - ((QueuedTask) head).queuedAt) : 0;
+    }
+
+    /*
+     * Average Queue Time Method
+     * INPUT: N/A
+     * OUTPUT: 1 double
+     * Returns the mean time in milliseconds a task waited for a worker
+    */
+    public double getAverageQueueMillis(){
+        long completed = completedCount.sum();
+        return (completed == 0) ? 0.0 : (queueNanos.sum() / 1_000_000.0) / completed;
+    }
+
+    /*
+     * Average Run Time Method
+     * INPUT: N/A
+     * OUTPUT: 1 double
+     * Returns the mean time in milliseconds a task took to run
+    */
+    public double getAverageRunMillis(){
+        long completed = completedCount.sum();
+        return (completed == 0) ? 0.0 : (runNanos.sum() / 1_000_000.0) / completed;
+    }
+
+    /*
+     * Queued Task Class
+     * A task with the time it was queued, so the age of the head of the queue can be read
+    */
+    private static class QueuedTask implements Runnable {
+        private final Runnable task;
+        private final long queuedAt;
+
+        private QueuedTask(Runnable task, long queuedAt){
+            this.task = task;
+            this.queuedAt = queuedAt;
+        }
+
+        @Override
+        public void run(){ task.run(); }
+    }
+}
@@ -0,0 +1,71 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ETags.java
+/* FILE DESCRIPTION: Class that builds strong entity tags and checks them against If-None-Match.
+ * A single Message is tagged by (messageId, version); ids are never reused and every update bumps the version,
+ * so the tag changes exactly when the representation does. Collections are tagged by a list version stored with
+ * the Messages, so checking a collection's tag takes one key lookup instead of running and serializing the listing.
+*/
+
+package Utility;
+
+import Model.Message;
+
+public class ETags {
+    // Methods
+    /*
+     * For Message Method
+     * INPUT: 1 Message object
+     * OUTPUT: 1 String
+     * Returns the strong ETag of the given Message
+    */
+    public static String forMessage(Message msg){
+        return quote("m" + msg.getMessageId() + "." + msg.getVersion());
+    }
+
+    /*
+     * For Content Coding Method
+     * INPUT: 2 String
+     * OUTPUT: 1 String
+     * Returns the strong ETag of the same entity sent with the given content-coding (e.g. "a1.7" becomes "a1.7-gzip"),
+     * since a strong tag must change whenever the bytes sent do
+    */
+    public static String forContentCoding(String etag, String coding){
+        return etag.substring(0, etag.length() - 1) + "-" + coding + "\"";
+    }
+
+    /*
+     * Quote Method
+     * INPUT: 1 String
+     * OUTPUT: 1 String
+     * Returns the opaque value as a strong ETag; the value must not contain a double quote
+    */
+    public static String quote(String opaque){
+        return "\"" + opaque + "\"";
+    }
+
+    /*
+     * Matches Method
+     * INPUT: 2 String
+     * OUTPUT: 1 boolean
+     * Returns true if the If-None-Match header value lists the given ETag or is "*"
+     * Uses the weak comparison RFC 9110 requires for If-None-Match, so a W/ prefix is ignored
+    */
+    public static boolean matches(String ifNoneMatch, String etag){
+        if(ifNoneMatch == null || etag == null){
+            return false;
+        }
+
+        for(String candidate : ifNoneMatch.split(",")){
+            candidate = candidate.trim();
+            if(candidate.startsWith("W/")){
+                candidate = candidate.substring(2);
+            }
+
+            if(candidate.equals("*") || candidate.equals(etag)){
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
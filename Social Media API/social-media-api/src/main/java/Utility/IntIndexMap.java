@@ -0,0 +1,180 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: IntIndexMap.java
+/* FILE DESCRIPTION: Class that maps int keys to int values (e.g. an id to its row in a column array)
+ * with open addressing and linear probing over two plain int arrays, so no Integer boxing or entry objects.
+ * Removal shifts the following entries back instead of leaving tombstones, so lookups stay short.
+ * Not thread-safe; callers guard it with their own lock.
+*/
+
+package Utility;
+
+import java.util.Arrays;
+
+public class IntIndexMap {
+    // Returned by get() and remove() when the key is absent
+    public static final int NO_VALUE = -1;
+
+    // Marks a free slot, so it cannot be used as a key
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private int[] values;
+    private int size = 0;
+    private int resizeAt;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 int
+     * Creates a map that holds expectedSize entries before it has to grow
+    */
+    public IntIndexMap(int expectedSize){
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    // Methods
+    /*
+     * Get Method
+     * INPUT: 1 int
+     * OUTPUT: 1 int
+     * Returns the value stored for the key, or NO_VALUE if there is none
+     * Never loops more than once around the table, so it is safe to call inside an optimistic read
+    */
+    public int get(int key){
+        int[] keys = this.keys;
+        int[] values = this.values;
+        int mask = keys.length - 1;
+
+        int slot = slot(key, mask);
+        for(int probes = 0; probes < keys.length; probes++){
+            int k = keys[slot];
+            if(k == key){
+                return values[slot];
+            }
+            if(k == EMPTY){
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return NO_VALUE;
+    }
+
+    /*
+     * Put Method
+     * INPUT: 2 int
+     * OUTPUT: 1 int
+     * Stores the value for the key and returns the previous value, or NO_VALUE if there was none
+    */
+    public int put(int key, int value){
+        if(key == EMPTY){
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while(keys[slot] != EMPTY){
+            if(keys[slot] == key){
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        if(++size > resizeAt){
+            grow();
+        }
+
+        return NO_VALUE;
+    }
+
+    /*
+     * Remove Method
+     * INPUT: 1 int
+     * OUTPUT: 1 int
+     * Removes the key and returns its value, or NO_VALUE if it was absent
+    */
+    public int remove(int key){
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+
+        while(keys[slot] != key){
+            if(keys[slot] == EMPTY){
+                return NO_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int removed = values[slot];
+
+        // Shift back later entries of the probe run that can no longer be reached past the gap
+        int gap = slot;
+        int next = slot;
+        while(true){
+            next = (next + 1) & mask;
+            int k = keys[next];
+            if(k == EMPTY){
+                break;
+            }
+
+            int home = slot(k, mask);
+            boolean reachable = (next > gap) ? (home > gap && home <= next) : (home > gap || home <= next);
+            if(!reachable){
+                keys[gap] = k;
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+
+        size--;
+        return removed;
+    }
+
+    // Number of entries
+    public int size(){ return size; }
+
+    /*
+     * Slot Helper Method
+     * INPUT: 2 int
+     * OUTPUT: 1 int
+     * Spreads the key bits (Fibonacci hashing) so sequential ids do not cluster
+    */
+    private static int slot(int key, int mask){
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /*
+     * Grow Helper Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Doubles the table and reinserts every entry
+    */
+    private void grow(){
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+
+        allocate(oldKeys.length * 2);
+        size = 0;
+
+        for(int i = 0; i < oldKeys.length; i++){
+            if(oldKeys[i] != EMPTY){
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity){
+        int[] newKeys = new int[capacity];
+        Arrays.fill(newKeys, EMPTY);
+        values = new int[capacity];
+        keys = newKeys;
+        resizeAt = capacity / 4 * 3;
+    }
+}
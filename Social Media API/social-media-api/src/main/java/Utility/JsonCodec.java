@@ -0,0 +1,86 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: JsonCodec.java
+/* FILE DESCRIPTION: Class that holds the shared, preconfigured Jackson readers and writers for the models.
+ * ObjectReader/ObjectWriter are immutable and thread-safe, so one instance of each serves every request.
+*/
+
+package Utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import Model.Account;
+import Model.Message;
+import Model.MessageBatchResult;
+import Model.TrendingTag;
+
+public class JsonCodec {
+    // Shared mapper; streams passed in belong to the caller, so Jackson must not close them
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    // Cached readers
+    private static final ObjectReader ACCOUNT_READER = MAPPER.readerFor(Account.class);
+    private static final ObjectReader MESSAGE_READER = MAPPER.readerFor(Message.class);
+    private static final ObjectReader MESSAGE_LIST_READER = MAPPER.readerFor(MAPPER.getTypeFactory().constructCollectionType(List.class, Message.class));
+
+    // Cached writers
+    private static final ObjectWriter ACCOUNT_WRITER = MAPPER.writerFor(Account.class);
+    private static final ObjectWriter MESSAGE_WRITER = MAPPER.writerFor(Message.class);
+    // Writes one value per line into a generator that the caller flushes
+    private static final ObjectWriter MESSAGE_LINE_WRITER = MESSAGE_WRITER.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    private static final ObjectWriter MESSAGE_LIST_WRITER = MAPPER.writerFor(MAPPER.getTypeFactory().constructCollectionType(List.class, Message.class));
+    private static final ObjectWriter BATCH_RESULT_WRITER = MAPPER.writerFor(MessageBatchResult.class);
+    private static final ObjectWriter TRENDING_LIST_WRITER = MAPPER.writerFor(MAPPER.getTypeFactory().constructCollectionType(List.class, TrendingTag.class));
+
+    // Methods
+    // Shared ObjectMapper Getter Method
+    public static ObjectMapper mapper(){ return MAPPER; }
+
+    // Read Account from JSON stream
+    public static Account readAccount(InputStream in) throws IOException{ return ACCOUNT_READER.readValue(in); }
+
+    // Read Message from JSON stream
+    public static Message readMessage(InputStream in) throws IOException{ return MESSAGE_READER.readValue(in); }
+
+    // Read JSON array of Messages from stream
+    public static List<Message> readMessages(InputStream in) throws IOException{ return MESSAGE_LIST_READER.readValue(in); }
+
+    // Write Account as JSON to stream
+    public static void writeAccount(OutputStream out, Account user) throws IOException{ ACCOUNT_WRITER.writeValue(out, user); }
+
+    // Write Message as JSON to stream
+    public static void writeMessage(OutputStream out, Message msg) throws IOException{ MESSAGE_WRITER.writeValue(out, msg); }
+
+    // Write List of Messages as a JSON array to stream
+    public static void writeMessages(OutputStream out, List<Message> messages) throws IOException{ MESSAGE_LIST_WRITER.writeValue(out, messages); }
+
+    // Write MessageBatchResult as JSON to stream
+    public static void writeBatchResult(OutputStream out, MessageBatchResult result) throws IOException{ BATCH_RESULT_WRITER.writeValue(out, result); }
+
+    // Write List of TrendingTags as a JSON array to stream
+    public static void writeTrending(OutputStream out, List<TrendingTag> tags) throws IOException{ TRENDING_LIST_WRITER.writeValue(out, tags); }
+
+    // Open a generator for newline-delimited JSON; callers flush or close it when done
+    public static JsonGenerator createNdjsonGenerator(OutputStream out) throws IOException{
+        JsonGenerator gen = MAPPER.getFactory().createGenerator(out);
+        gen.setRootValueSeparator(null);
+        return gen;
+    }
+
+    // Write Message as one line of newline-delimited JSON
+    public static void writeMessageLine(JsonGenerator gen, Message msg) throws IOException{
+        MESSAGE_LINE_WRITER.writeValue(gen, msg);
+        gen.writeRaw('\n');
+    }
+}
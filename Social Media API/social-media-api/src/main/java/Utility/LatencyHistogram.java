@@ -0,0 +1,138 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: LatencyHistogram.java
+/* FILE DESCRIPTION: Class that records latencies into fixed log-linear buckets, in the style of HdrHistogram.
+ * Every power of two of microseconds is split into 8 equal sub-buckets, so a recorded value is known to within
+ * 12.5% from 1 microsecond up to about 71 minutes, in under 2,000 counters.
+ * Recording is one array increment plus one adder, with no locks and no allocation, so it is safe on every request.
+ * Reads (counts, percentiles) walk the counters without stopping writers and may be a few records behind.
+*/
+
+package Utility;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    // Sub-buckets per power of two, as a number of bits
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values from 2^MAX_MAGNITUDE microseconds up all land in the last bucket
+    private static final int MAX_MAGNITUDE = 32;
+    private static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+
+    // Methods
+    /*
+     * Record Method
+     * INPUT: 1 long
+     * OUTPUT: N/A
+     * Counts one latency given in nanoseconds
+    */
+    public void record(long nanos){
+        long micros = Math.max(0, nanos / 1_000);
+
+        counts.incrementAndGet(indexOf(micros));
+        totalNanos.add(Math.max(0, nanos));
+    }
+
+    // Record the time elapsed since a System.nanoTime() reading
+    public void recordSince(long startNanos){
+        record(System.nanoTime() - startNanos);
+    }
+
+    // Number of latencies recorded
+    public long getCount(){
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    // Sum of every latency recorded, in nanoseconds
+    public long getTotalNanos(){ return totalNanos.sum(); }
+
+    /*
+     * Count Below Power of Two Method
+     * INPUT: 1 int
+     * OUTPUT: 1 long
+     * Returns how many latencies were below 2^power microseconds
+     * Powers of two are bucket edges, so this count is exact
+    */
+    public long getCountBelowPowerOfTwo(int power){
+        int end = (power >= MAX_MAGNITUDE) ? BUCKETS : indexOf(1L << power);
+
+        long count = 0;
+        for(int i = 0; i < end; i++){
+            count += counts.get(i);
+        }
+
+        return count;
+    }
+
+    /*
+     * Percentile Method
+     * INPUT: 1 double
+     * OUTPUT: 1 long
+     * Returns the latency in nanoseconds that the given fraction (e.g. 0.99) of records were at or below,
+     * reported as the top of its bucket, or 0 if nothing has been recorded
+    */
+    public long getPercentileNanos(double fraction){
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if(total == 0){
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += snapshot[i];
+            if(seen >= target){
+                return (upperBoundMicros(i) - 1) * 1_000;
+            }
+        }
+
+        return (upperBoundMicros(BUCKETS - 1) - 1) * 1_000;
+    }
+
+    /*
+     * Index Of Helper Method
+     * INPUT: 1 long
+     * OUTPUT: 1 int
+     * Bucket for a value in microseconds: values below 8 get a bucket each, larger values one of the
+     * 8 sub-buckets of their power of two
+    */
+    private static int indexOf(long micros){
+        if(micros < SUB_BUCKETS){
+            return (int) micros;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if(magnitude >= MAX_MAGNITUDE){
+            return BUCKETS - 1;
+        }
+
+        int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // First value in microseconds above the given bucket
+    private static long upperBoundMicros(int index){
+        if(index < SUB_BUCKETS){
+            return index + 1;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << shift;
+    }
+}
@@ -0,0 +1,275 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: Metrics.java
+/* FILE DESCRIPTION: Class that holds the process-wide metrics and writes them in the Prometheus text format.
+ * HTTP routes and DAO methods each get a LatencyHistogram (plus per-status counters for routes) that is created
+ * on first use and then found again without allocating, so recording stays lock-free and allocation-free.
+ * Gauges and counters owned by other classes (pools, executors, the JVM) are registered as suppliers and
+ * only read when /metrics is scraped.
+*/
+
+package Utility;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleSupplier;
+
+public class Metrics {
+    // Histogram bucket edges exported to Prometheus, as powers of two microseconds (8us up to about 33.5s)
+    private static final int FIRST_EXPORTED_POWER = 3;
+    private static final int LAST_EXPORTED_POWER = 25;
+
+    // Percentiles exported next to each histogram
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    // HTTP routes by path, then by method
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, RouteMetrics>> routes = new ConcurrentHashMap<>();
+
+    // DAO method timers by DAO, then by method
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, LatencyHistogram>> queries = new ConcurrentHashMap<>();
+
+    // Supplier-backed gauges and counters by metric name
+    private static final Map<String, Family> families = new LinkedHashMap<>();
+
+    static {
+        registerJvmMetrics();
+    }
+
+    // Methods
+    /*
+     * Route Method
+     * INPUT: 2 String
+     * OUTPUT: RouteMetrics object
+     * Returns the metrics of an HTTP route (e.g. "GET", "/messages/{messageId}"), creating them on first use
+    */
+    public static RouteMetrics route(String method, String path){
+        ConcurrentHashMap<String, RouteMetrics> byMethod = routes.get(path);
+        if(byMethod == null){
+            byMethod = routes.computeIfAbsent(path, p -> new ConcurrentHashMap<>());
+        }
+
+        RouteMetrics metrics = byMethod.get(method);
+        if(metrics == null){
+            metrics = byMethod.computeIfAbsent(method, m -> new RouteMetrics());
+        }
+
+        return metrics;
+    }
+
+    /*
+     * Query Timer Method
+     * INPUT: 2 String
+     * OUTPUT: LatencyHistogram object
+     * Returns the timer of a DAO method (e.g. "MessageDaoImpl", "insertMessage"), creating it on first use
+    */
+    public static LatencyHistogram queryTimer(String dao, String method){
+        return queries.computeIfAbsent(dao, d -> new ConcurrentHashMap<>()).computeIfAbsent(method, m -> new LatencyHistogram());
+    }
+
+    /*
+     * Gauge Method
+     * INPUT: 3 String, 1 DoubleSupplier
+     * OUTPUT: N/A
+     * Registers a value that can go up and down, read when metrics are scraped
+     * labels is Prometheus label syntax without braces (e.g. area="heap"), or an empty String
+     * Registering the same name and labels again replaces the supplier
+    */
+    public static void gauge(String name, String labels, String help, DoubleSupplier value){
+        register(name, "gauge", labels, help, value);
+    }
+
+    /*
+     * Counter Method
+     * INPUT: 3 String, 1 DoubleSupplier
+     * OUTPUT: N/A
+     * Registers a total that only goes up, read when metrics are scraped
+     * The name should end in _total
+    */
+    public static void counter(String name, String labels, String help, DoubleSupplier value){
+        register(name, "counter", labels, help, value);
+    }
+
+    /*
+     * Write Prometheus Method
+     * INPUT: N/A
+     * OUTPUT: 1 String
+     * Returns every metric in the Prometheus text exposition format (version 0.0.4)
+    */
+    public static String writePrometheus(){
+        StringBuilder out = new StringBuilder(16_384);
+
+        // HTTP routes, sorted so scrapes are stable
+        Map<String, RouteMetrics> sortedRoutes = new TreeMap<>();
+        routes.forEach((path, byMethod) -> byMethod.forEach((method, metrics) ->
+            sortedRoutes.put("method=\"" + method + "\",route=\"" + escape(path) + "\"", metrics)));
+
+        header(out, "http_requests_total", "counter", "HTTP requests completed, by route and status code");
+        sortedRoutes.forEach((labels, metrics) -> {
+            for(int status = 0; status < RouteMetrics.STATUSES; status++){
+                long count = metrics.statuses.get(status);
+                if(count > 0){
+                    out.append("http_requests_total{").append(labels).append(",status=\"").append(status).append("\"} ")
+                        .append(count).append('\n');
+                }
+            }
+        });
+
+        Map<String, LatencyHistogram> routeLatency = new TreeMap<>();
+        sortedRoutes.forEach((labels, metrics) -> routeLatency.put(labels, metrics.latency));
+        writeHistograms(out, "http_request_duration_seconds", "HTTP request latency, from routing to the response being written", routeLatency);
+
+        // DAO methods
+        Map<String, LatencyHistogram> queryLatency = new TreeMap<>();
+        queries.forEach((dao, byMethod) -> byMethod.forEach((method, histogram) ->
+            queryLatency.put("dao=\"" + dao + "\",method=\"" + method + "\"", histogram)));
+        writeHistograms(out, "db_query_duration_seconds", "Time spent in each DAO method, including waiting for a connection", queryLatency);
+
+        // Registered gauges and counters
+        synchronized(families){
+            for(Map.Entry<String, Family> entry : families.entrySet()){
+                Family family = entry.getValue();
+                header(out, entry.getKey(), family.type, family.help);
+
+                family.series.forEach((labels, value) -> {
+                    out.append(entry.getKey());
+                    if(!labels.isEmpty()){
+                        out.append('{').append(labels).append('}');
+                    }
+                    out.append(' ').append(format(value.getAsDouble())).append('\n');
+                });
+            }
+        }
+
+        return out.toString();
+    }
+
+    /*
+     * Write Histograms Helper Method
+     * INPUT: 1 StringBuilder, 2 String, 1 Map of labels to LatencyHistogram
+     * OUTPUT: N/A
+     * Writes one histogram family (cumulative buckets, sum, count) and a gauge family of its percentiles
+    */
+    private static void writeHistograms(StringBuilder out, String name, String help, Map<String, LatencyHistogram> histograms){
+        header(out, name, "histogram", help);
+        histograms.forEach((labels, histogram) -> {
+            for(int power = FIRST_EXPORTED_POWER; power <= LAST_EXPORTED_POWER; power++){
+                String le = BigDecimal.valueOf(1L << power).movePointLeft(6).toPlainString();
+                out.append(name).append("_bucket{").append(labels).append(",le=\"").append(le).append("\"} ")
+                    .append(histogram.getCountBelowPowerOfTwo(power)).append('\n');
+            }
+
+            long count = histogram.getCount();
+            out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append(name).append("_sum{").append(labels).append("} ").append(format(histogram.getTotalNanos() / 1e9)).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+        });
+
+        String quantileName = name.replace("_seconds", "_quantile_seconds");
+        header(out, quantileName, "gauge", help + ", percentiles since startup");
+        histograms.forEach((labels, histogram) -> {
+            for(double quantile : QUANTILES){
+                out.append(quantileName).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(format(histogram.getPercentileNanos(quantile) / 1e9)).append('\n');
+            }
+        });
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help){
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void register(String name, String type, String labels, String help, DoubleSupplier value){
+        synchronized(families){
+            families.computeIfAbsent(name, n -> new Family(type, help)).series.put(labels, value);
+        }
+    }
+
+    private static String format(double value){
+        if(value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15){
+            return Long.toString((long) value);
+        }
+
+        return Double.toString(value);
+    }
+
+    private static String escape(String value){
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /*
+     * Register JVM Metrics Helper Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Registers memory, garbage collection, thread and uptime metrics read from the JVM's MXBeans
+    */
+    private static void registerJvmMetrics(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        gauge("jvm_memory_used_bytes", "area=\"heap\"", "Memory in use", () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("jvm_memory_used_bytes", "area=\"nonheap\"", "Memory in use", () -> memory.getNonHeapMemoryUsage().getUsed());
+        gauge("jvm_memory_committed_bytes", "area=\"heap\"", "Memory reserved from the OS", () -> memory.getHeapMemoryUsage().getCommitted());
+        gauge("jvm_memory_committed_bytes", "area=\"nonheap\"", "Memory reserved from the OS", () -> memory.getNonHeapMemoryUsage().getCommitted());
+        gauge("jvm_memory_max_bytes", "area=\"heap\"", "Most memory the heap may grow to", () -> memory.getHeapMemoryUsage().getMax());
+
+        List<GarbageCollectorMXBean> collectors = new ArrayList<>(ManagementFactory.getGarbageCollectorMXBeans());
+        for(GarbageCollectorMXBean gc : collectors){
+            String labels = "gc=\"" + escape(gc.getName()) + "\"";
+            counter("jvm_gc_collections_total", labels, "Garbage collections run", () -> gc.getCollectionCount());
+            counter("jvm_gc_collection_seconds_total", labels, "Time spent in garbage collection", () -> gc.getCollectionTime() / 1e3);
+        }
+
+        gauge("jvm_threads_live", "", "Live platform threads", () -> threads.getThreadCount());
+        gauge("jvm_threads_daemon", "", "Live daemon platform threads", () -> threads.getDaemonThreadCount());
+        gauge("process_uptime_seconds", "", "Time since the JVM started", () -> ManagementFactory.getRuntimeMXBean().getUptime() / 1e3);
+        gauge("process_available_processors", "", "Processors available to the JVM", () -> Runtime.getRuntime().availableProcessors());
+    }
+
+    /*
+     * Route Metrics Class
+     * Latency histogram and per-status counts of one HTTP route
+    */
+    public static class RouteMetrics {
+        // Status codes 0 to 599 are counted individually
+        private static final int STATUSES = 600;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLongArray statuses = new AtomicLongArray(STATUSES);
+
+        /*
+         * Record Method
+         * INPUT: 1 int, 1 long
+         * OUTPUT: N/A
+         * Counts one completed request with its status code and latency in nanoseconds
+        */
+        public void record(int status, long nanos){
+            statuses.incrementAndGet((status >= 0 && status < STATUSES) ? status : 0);
+            latency.record(nanos);
+        }
+    }
+
+    /*
+     * Family Class
+     * One registered metric name with its type, help text and series by label set
+    */
+    private static class Family {
+        private final String type;
+        private final String help;
+        private final Map<String, DoubleSupplier> series = new LinkedHashMap<>();
+
+        private Family(String type, String help){
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: OffHeapResponseCache.java
+/* FILE DESCRIPTION: Class that caches already-encoded response bodies per account, outside the Java heap.
+ * All bodies live in one direct ByteBuffer carved into fixed-size blocks; an entry is a list of block numbers,
+ * so caching a body allocates nothing on the heap beyond a small descriptor and the bytes never move during GC.
+ * Each account can hold several variants (e.g. the full listing and a first page, plain or gzip), and whole
+ * accounts are evicted least recently used first when blocks run out.
+ * Every entry carries the ETag it was built for and is only served while that is still the account's ETag,
+ * so a body built from rows read before a write can never be served after it.
+ * Entries are reference counted: a body being written to a socket keeps its blocks until it is released,
+ * even if the entry is invalidated or evicted meanwhile.
+*/
+
+package Utility;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OffHeapResponseCache {
+    // Storage
+    private final ByteBuffer arena;
+    private final int blockSize;
+    private final int maxEntryBytes;
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    // Variants by accountId, least recently used first; guarded by this
+    private final LinkedHashMap<Integer, Map<String, Body>> accounts = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Statistics
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 long, 2 int
+     * Reserves maxBytes (at most 2 GiB) of direct memory in blocks of blockSize, and skips bodies over maxEntryBytes
+    */
+    public OffHeapResponseCache(long maxBytes, int blockSize, int maxEntryBytes){
+        if(blockSize < 1 || maxBytes < blockSize || maxBytes > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("maxBytes must be between blockSize and 2 GiB and blockSize positive");
+        }
+
+        int blocks = (int) (maxBytes / blockSize);
+        this.arena = ByteBuffer.allocateDirect(blocks * blockSize);
+        this.blockSize = blockSize;
+        this.maxEntryBytes = maxEntryBytes;
+        this.freeBlocks = new int[blocks];
+        for(int i = 0; i < blocks; i++){
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        this.freeCount = blocks;
+    }
+
+    // Methods
+    /*
+     * Acquire Method
+     * INPUT: 1 int, 2 String
+     * OUTPUT: Body object
+     * Returns the cached variant for the account if it was built for the given ETag, or null
+     * The caller must release() a returned Body once it has been written
+    */
+    public synchronized Body acquire(int accountId, String variant, String etag){
+        Map<String, Body> variants = accounts.get(accountId);
+        Body body = (variants == null) ? null : variants.get(variant);
+
+        if(body != null && body.etag.equals(etag)){
+            body.refs++;
+            hitCount.increment();
+            return body;
+        }
+
+        // Built for an older ETag; it can never be served again
+        if(body != null){
+            variants.remove(variant);
+            release(body);
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    /*
+     * Put Method
+     * INPUT: 1 int, 2 String, 1 byte array, 2 String
+     * OUTPUT: 1 boolean
+     * Copies the body into the cache as the account's variant for the given ETag, evicting other accounts if needed
+     * contentEncoding (e.g. "gzip") and nextCursor are kept to be sent with it and may be null
+     * Returns false, caching nothing, if the body is larger than maxEntryBytes or the whole cache
+    */
+    public synchronized boolean put(int accountId, String variant, String etag, byte[] bytes, String contentEncoding, String nextCursor){
+        int needed = (bytes.length + blockSize - 1) / blockSize;
+        if(bytes.length > maxEntryBytes || needed > freeBlocks.length){
+            return false;
+        }
+
+        // Drop the variant being replaced first, so its blocks can be reused
+        Map<String, Body> variants = accounts.get(accountId);
+        Body previous = (variants == null) ? null : variants.remove(variant);
+        if(previous != null){
+            release(previous);
+        }
+
+        Iterator<Map.Entry<Integer, Map<String, Body>>> eldest = accounts.entrySet().iterator();
+        while(freeCount < needed && eldest.hasNext()){
+            Map.Entry<Integer, Map<String, Body>> entry = eldest.next();
+            if(entry.getKey() == accountId){
+                continue;
+            }
+            eldest.remove();
+            entry.getValue().values().forEach(this::release);
+            evictionCount.increment();
+        }
+
+        // Bodies still being written hold their blocks, so there may not be room yet
+        if(freeCount < needed){
+            return false;
+        }
+
+        int[] blocks = new int[needed];
+        for(int i = 0; i < needed; i++){
+            blocks[i] = freeBlocks[--freeCount];
+
+            int offset = i * blockSize;
+            arena.put(blocks[i] * blockSize, bytes, offset, Math.min(blockSize, bytes.length - offset));
+        }
+
+        accounts.computeIfAbsent(accountId, id -> new HashMap<>()).put(variant, new Body(etag, contentEncoding, nextCursor, bytes.length, blocks));
+        return true;
+    }
+
+    /*
+     * Invalidate Method
+     * INPUT: 1 int
+     * OUTPUT: N/A
+     * Drops every cached variant of the account
+    */
+    public synchronized void invalidate(int accountId){
+        Map<String, Body> variants = accounts.remove(accountId);
+
+        if(variants != null){
+            variants.values().forEach(this::release);
+        }
+    }
+
+    /*
+     * Release Method
+     * INPUT: 1 Body object
+     * OUTPUT: N/A
+     * Gives back a Body returned by acquire(); its blocks are reused once nothing holds it
+    */
+    public synchronized void release(Body body){
+        if(--body.refs == 0){
+            for(int block : body.blocks){
+                freeBlocks[freeCount++] = block;
+            }
+        }
+    }
+
+    /*
+     * Write To Method
+     * INPUT: 1 Body object, 1 BufferWriter
+     * OUTPUT: N/A
+     * Hands the body to the writer as views of the cached blocks, in order, without copying them
+     * The Body must be acquired, and the writer must be done with each view when it returns
+    */
+    public void writeTo(Body body, BufferWriter writer) throws IOException{
+        int remaining = body.length;
+
+        for(int block : body.blocks){
+            int length = Math.min(blockSize, remaining);
+            writer.write(arena.slice(block * blockSize, length));
+            remaining -= length;
+        }
+    }
+
+    // Statistics Getters
+    public long getHitCount(){ return hitCount.sum(); }
+    public long getMissCount(){ return missCount.sum(); }
+    public long getEvictionCount(){ return evictionCount.sum(); }
+    public synchronized long getUsedBytes(){ return (long) (freeBlocks.length - freeCount) * blockSize; }
+    public long getCapacityBytes(){ return (long) freeBlocks.length * blockSize; }
+
+    /*
+     * Buffer Writer Interface
+     * Sends one view of a cached body, e.g. to a socket
+    */
+    @FunctionalInterface
+    public interface BufferWriter {
+        void write(ByteBuffer buffer) throws IOException;
+    }
+
+    /*
+     * Body Class
+     * One cached response body; the bytes are in the arena, this only records where
+    */
+    public static class Body {
+        private final String etag;
+        private final String contentEncoding;
+        private final String nextCursor;
+        private final int length;
+        private final int[] blocks;
+        private int refs = 1;   // The cache's own reference, plus one per acquire(); guarded by the cache
+
+        private Body(String etag, String contentEncoding, String nextCursor, int length, int[] blocks){
+            this.etag = etag;
+            this.contentEncoding = contentEncoding;
+            this.nextCursor = nextCursor;
+            this.length = length;
+            this.blocks = blocks;
+        }
+
+        // Getter Methods
+        public String getContentEncoding(){ return this.contentEncoding; }
+        public String getNextCursor(){ return this.nextCursor; }
+        public int getLength(){ return this.length; }
+    }
+}
@@ -0,0 +1,24 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: OverloadedException.java
+/* FILE DESCRIPTION: Exception thrown when a request is shed because the server is out of capacity.
+ * The controller turns it into HTTP 503 with a Retry-After header.
+*/
+
+package Utility;
+
+public class OverloadedException extends RuntimeException {
+    // Seconds the client should wait before retrying
+    private final int retryAfterSeconds;
+
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 String, 1 int
+    */
+    public OverloadedException(String message, int retryAfterSeconds){
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    // retryAfterSeconds Getter Method
+    public int getRetryAfterSeconds(){ return this.retryAfterSeconds; }
+}
@@ -0,0 +1,115 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: PageCursor.java
+/* FILE DESCRIPTION: Class that encodes and decodes the opaque keyset pagination cursor.
+ * A cursor is the (timePostedEpoch, messageId) of the last Message on a page, Base64URL-encoded
+ * so clients treat it as a token rather than something to build by hand.
+*/
+
+package Utility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import Model.Message;
+
+public class PageCursor {
+    // Position before the first Message
+    public static final PageCursor START = new PageCursor(Long.MIN_VALUE, Integer.MIN_VALUE);
+
+    // Variables
+    private final long timePostedEpoch;
+    private final int messageId;
+
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 long, 1 int
+    */
+    public PageCursor(long timePostedEpoch, int messageId){
+        this.timePostedEpoch = timePostedEpoch;
+        this.messageId = messageId;
+    }
+
+
+    // Methods
+    // timePostedEpoch Getter Method
+    public long getTimePostedEpoch(){ return this.timePostedEpoch; }
+
+    // messageId Getter Method
+    public int getMessageId(){ return this.messageId; }
+
+    /*
+     * Encode Method
+     * INPUT: 1 Message object
+     * OUTPUT: 1 String
+     * Returns the cursor pointing just after the given Message
+    */
+    public static String encode(Message msg){
+        String raw = msg.getTimePostedEpoch() + ":" + msg.getMessageId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Encode Offset Method
+     * INPUT: 1 int
+     * OUTPUT: 1 String
+     * Returns a cursor for ranked results (e.g. search), which have no keyset and are paged by position instead
+    */
+    public static String encodeOffset(int offset){
+        String raw = "offset:" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*
+     * Decode Offset Method
+     * INPUT: 1 String
+     * OUTPUT: 1 int
+     * Returns 0 for a null or blank cursor
+     * Throws IllegalArgumentException if the cursor is not an offset cursor
+    */
+    public static int decodeOffset(String cursor){
+        if(cursor == null || cursor.isBlank()){
+            return 0;
+        }
+
+        try{
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if(!raw.startsWith("offset:")){
+                throw new IllegalArgumentException("not an offset cursor");
+            }
+
+            int offset = Integer.parseInt(raw.substring("offset:".length()));
+            if(offset < 0){
+                throw new IllegalArgumentException("negative offset");
+            }
+            return offset;
+        }
+        catch(IllegalArgumentException e){
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+        }
+    }
+
+    /*
+     * Decode Method
+     * INPUT: 1 String
+     * OUTPUT: PageCursor object
+     * Returns START for a null or blank cursor
+     * Throws IllegalArgumentException if the cursor is malformed
+    */
+    public static PageCursor decode(String cursor){
+        if(cursor == null || cursor.isBlank()){
+            return START;
+        }
+
+        try{
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+
+            return new PageCursor(Long.parseLong(raw.substring(0, sep)), Integer.parseInt(raw.substring(sep + 1)));
+        }
+        catch(IllegalArgumentException | IndexOutOfBoundsException e){
+            throw new IllegalArgumentException("Invalid page cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: RateLimitRules.java
+/* FILE DESCRIPTION: Class that holds the per-route rate limits and finds the one that applies to a request.
+ * Rules are written as "METHOD /path account=RATE/BURST ip=RATE/BURST", separated by semicolons, where RATE is
+ * requests per second and BURST the most allowed at once, e.g. "POST /messages account=20/40 ip=200/400".
+ * Paths use the same {param} placeholders as the routes; a rule may set an account limit, an IP limit, or both.
+ * Every limit has its own TokenBucketLimiter, keyed by accountId or by client IP.
+*/
+
+package Utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RateLimitRules {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z][A-Za-z0-9]*)\\}");
+
+    private final List<Rule> rules;
+
+    // Constructors
+    private RateLimitRules(List<Rule> rules){
+        this.rules = rules;
+    }
+
+    // Methods
+    /*
+     * Parse Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: RateLimitRules object
+     * Builds the rules from their text form; each limiter tracks up to about maxKeys accounts or IPs
+     * Throws IllegalArgumentException if a rule cannot be read
+    */
+    public static RateLimitRules parse(String spec, int maxKeys){
+        List<Rule> rules = new ArrayList<>();
+
+        for(String entry : spec.split(";")){
+            String[] parts = entry.trim().split("\\s+");
+            if(parts.length == 1 && parts[0].isEmpty()){
+                continue;
+            }
+            if(parts.length < 3){
+                throw new IllegalArgumentException("Rate limit rule \"" + entry.trim() + "\" needs a method, a path and a limit");
+            }
+
+            TokenBucketLimiter account = null;
+            TokenBucketLimiter ip = null;
+            for(int i = 2; i < parts.length; i++){
+                String[] limit = parts[i].split("[=/]");
+                if(limit.length != 3){
+                    throw new IllegalArgumentException("Rate limit \"" + parts[i] + "\" is not account=RATE/BURST or ip=RATE/BURST");
+                }
+
+                TokenBucketLimiter limiter = new TokenBucketLimiter(Double.parseDouble(limit[1]), Integer.parseInt(limit[2]), maxKeys);
+                if(limit[0].equals("account")){
+                    account = limiter;
+                }
+                else if(limit[0].equals("ip")){
+                    ip = limiter;
+                }
+                else{
+                    throw new IllegalArgumentException("Rate limit \"" + parts[i] + "\" must be for account or ip");
+                }
+            }
+
+            rules.add(new Rule(parts[0].toUpperCase(), parts[1], account, ip));
+        }
+
+        return new RateLimitRules(Collections.unmodifiableList(rules));
+    }
+
+    /*
+     * Match Method
+     * INPUT: 2 String
+     * OUTPUT: Rule object
+     * Returns the first rule for the request's method and path, or null if none applies
+    */
+    public Rule match(String method, String path){
+        for(Rule rule : rules){
+            if(rule.method.equals(method) && rule.pattern.matcher(path).matches()){
+                return rule;
+            }
+        }
+
+        return null;
+    }
+
+    // rules Getter Method
+    public List<Rule> getRules(){ return this.rules; }
+
+    /*
+     * Rule Class
+     * The account and IP limits of one route
+    */
+    public static class Rule {
+        private final String method;
+        private final String path;
+        private final Pattern pattern;
+        private final TokenBucketLimiter accountLimiter;
+        private final TokenBucketLimiter ipLimiter;
+
+        private Rule(String method, String path, TokenBucketLimiter accountLimiter, TokenBucketLimiter ipLimiter){
+            this.method = method;
+            this.path = path;
+            this.accountLimiter = accountLimiter;
+            this.ipLimiter = ipLimiter;
+
+            // Literal text is quoted and each {param} becomes a named group for one path segment
+            StringBuilder regex = new StringBuilder();
+            Matcher placeholder = PLACEHOLDER.matcher(path);
+            int end = 0;
+            while(placeholder.find()){
+                regex.append(Pattern.quote(path.substring(end, placeholder.start())));
+                regex.append("(?<").append(placeholder.group(1)).append(">[^/]+)");
+                end = placeholder.end();
+            }
+            regex.append(Pattern.quote(path.substring(end)));
+            this.pattern = Pattern.compile(regex.toString());
+        }
+
+        /*
+         * Check IP Method
+         * INPUT: 1 String
+         * OUTPUT: N/A
+         * Takes one request from the client IP's bucket
+         * Throws RateLimitedException if it is empty
+        */
+        public void checkIp(String ip){
+            if(ipLimiter != null){
+                check(ipLimiter, ip, 1, "client " + ip);
+            }
+        }
+
+        /*
+         * Check Account Method
+         * INPUT: 1 String, 1 int
+         * OUTPUT: N/A
+         * Takes the given number of requests from the account's bucket
+         * Throws RateLimitedException if it does not hold that many
+        */
+        public void checkAccount(String accountId, int permits){
+            if(accountLimiter != null){
+                check(accountLimiter, accountId, permits, "account " + accountId);
+            }
+        }
+
+        /*
+         * Account ID From Method
+         * INPUT: 1 String
+         * OUTPUT: 1 String
+         * Returns the {accountId} segment of a path this rule matches, or null if the route has none
+        */
+        public String accountIdFrom(String requestPath){
+            if(!path.contains("{accountId}")){
+                return null;
+            }
+
+            Matcher matcher = pattern.matcher(requestPath);
+            return matcher.matches() ? matcher.group("accountId") : null;
+        }
+
+        // Getter Methods
+        public String getRoute(){ return method + " " + path; }
+        public TokenBucketLimiter getAccountLimiter(){ return this.accountLimiter; }
+        public TokenBucketLimiter getIpLimiter(){ return this.ipLimiter; }
+
+        private void check(TokenBucketLimiter limiter, String key, int permits, String who){
+            long waitNanos = limiter.tryAcquire(key, permits);
+
+            if(waitNanos > 0){
+                int retryAfterSeconds = (int) Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+                throw new RateLimitedException("Rate limit for " + getRoute() + " reached by " + who, retryAfterSeconds);
+            }
+        }
+    }
+}
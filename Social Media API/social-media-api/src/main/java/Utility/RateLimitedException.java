@@ -0,0 +1,24 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: RateLimitedException.java
+/* FILE DESCRIPTION: Exception thrown when a client has used up its rate limit for a route.
+ * The controller turns it into HTTP 429 with a Retry-After header.
+*/
+
+package Utility;
+
+public class RateLimitedException extends RuntimeException {
+    // Seconds the client should wait before retrying
+    private final int retryAfterSeconds;
+
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 String, 1 int
+    */
+    public RateLimitedException(String message, int retryAfterSeconds){
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    // retryAfterSeconds Getter Method
+    public int getRetryAfterSeconds(){ return this.retryAfterSeconds; }
+}
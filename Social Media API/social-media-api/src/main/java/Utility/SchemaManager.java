@@ -0,0 +1,209 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: SchemaManager.java
+/* FILE DESCRIPTION: Class that creates and migrates the database schema at startup.
+ * Migrations are numbered and applied in order; the current version is kept in PRAGMA user_version,
+ * so running migrate() again only applies the migrations the database has not seen yet.
+*/
+
+package Utility;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class SchemaManager {
+    // Migrations, in order; migration N (1-based) moves the schema from version N-1 to N
+    // Never edit a released migration, append a new one instead
+    private static final List<String[]> MIGRATIONS = List.of(
+        // 1: Base tables
+        new String[]{
+            "CREATE TABLE IF NOT EXISTS accounts ("
+                + "accountId INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "username VARCHAR(255) NOT NULL, "
+                + "password VARCHAR(255) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS messages ("
+                + "messageId INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "postedBy INTEGER NOT NULL, "
+                + "messageText VARCHAR(255) NOT NULL, "
+                + "timePostedEpoch BIGINT NOT NULL)"
+        },
+        // 2: Indexes for login, per-user listing and keyset pagination
+        new String[]{
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_accounts_username ON accounts (username)",
+            "CREATE INDEX IF NOT EXISTS idx_messages_postedBy_time ON messages (postedBy, timePostedEpoch, messageId)",
+            "CREATE INDEX IF NOT EXISTS idx_messages_time ON messages (timePostedEpoch, messageId)"
+        },
+        // 3: Follow graph; the primary key serves "who do I follow", the index serves "who follows me"
+        new String[]{
+            "CREATE TABLE IF NOT EXISTS follows ("
+                + "followerId INTEGER NOT NULL, "
+                + "followeeId INTEGER NOT NULL, "
+                + "PRIMARY KEY (followerId, followeeId)) WITHOUT ROWID",
+            "CREATE INDEX IF NOT EXISTS idx_follows_followee ON follows (followeeId, followerId)"
+        },
+        // 4: Full-text search over messageText; an external-content FTS5 index that triggers keep in step with every write
+        new String[]{
+            "CREATE VIRTUAL TABLE IF NOT EXISTS messages_fts USING fts5("
+                + "messageText, content = 'messages', content_rowid = 'messageId')",
+            "CREATE TRIGGER IF NOT EXISTS messages_fts_insert AFTER INSERT ON messages BEGIN "
+                + "INSERT INTO messages_fts (rowid, messageText) VALUES (new.messageId, new.messageText); END",
+            "CREATE TRIGGER IF NOT EXISTS messages_fts_delete AFTER DELETE ON messages BEGIN "
+                + "INSERT INTO messages_fts (messages_fts, rowid, messageText) VALUES ('delete', old.messageId, old.messageText); END",
+            "CREATE TRIGGER IF NOT EXISTS messages_fts_update AFTER UPDATE OF messageText ON messages BEGIN "
+                + "INSERT INTO messages_fts (messages_fts, rowid, messageText) VALUES ('delete', old.messageId, old.messageText); "
+                + "INSERT INTO messages_fts (rowid, messageText) VALUES (new.messageId, new.messageText); END",
+            // Index the Messages stored before this migration
+            "INSERT INTO messages_fts (messages_fts) VALUES ('rebuild')"
+        },
+        // 5: Per-Message version for ETags; updateMessage bumps it, existing rows start at 1
+        new String[]{
+            "ALTER TABLE messages ADD COLUMN version INTEGER NOT NULL DEFAULT 1"
+        },
+        // 6: Per-account version of the Message list for collection ETags, bumped by triggers in the writing transaction
+        // Versions start at a random value, so a recreated database does not hand out tags an old client still holds
+        new String[]{
+            "CREATE TABLE IF NOT EXISTS message_list_versions ("
+                + "accountId INTEGER PRIMARY KEY, "
+                + "version INTEGER NOT NULL)",
+            "CREATE TRIGGER IF NOT EXISTS message_list_versions_insert AFTER INSERT ON messages BEGIN "
+                + "INSERT INTO message_list_versions (accountId, version) VALUES (new.postedBy, abs(random() % 1000000000000)) "
+                + "ON CONFLICT (accountId) DO UPDATE SET version = version + 1; END",
+            "CREATE TRIGGER IF NOT EXISTS message_list_versions_delete AFTER DELETE ON messages BEGIN "
+                + "UPDATE message_list_versions SET version = version + 1 WHERE accountId = old.postedBy; END",
+            "CREATE TRIGGER IF NOT EXISTS message_list_versions_update AFTER UPDATE ON messages BEGIN "
+                + "INSERT INTO message_list_versions (accountId, version) VALUES (new.postedBy, abs(random() % 1000000000000)) "
+                + "ON CONFLICT (accountId) DO UPDATE SET version = version + 1; "
+                + "UPDATE message_list_versions SET version = version + 1 WHERE accountId = old.postedBy AND old.postedBy <> new.postedBy; END",
+            // Accounts that already have Messages
+            "INSERT INTO message_list_versions (accountId, version) "
+                + "SELECT postedBy, abs(random() % 1000000000000) FROM messages GROUP BY postedBy"
+        }
+    );
+
+    // Checks run inside a migration's transaction before its statements; they fix up or reject existing data it cannot take
+    private static final Map<Integer, MigrationCheck> CHECKS = Map.of(
+        // 2: Accounts created before the unique index may share a username
+        2, SchemaManager::checkUniqueUsernames
+    );
+
+    /*
+     * Migrate Method
+     * INPUT: N/A
+     * OUTPUT: 1 int
+     * Brings the configured database up to the latest schema version and returns that version
+     * Each migration runs in its own IMMEDIATE transaction together with its version bump,
+     * so a failed or concurrent migration never leaves a half-applied version behind
+    */
+    public static int migrate() throws SQLException{
+        // Run as a write, so in split mode migrations use the writer connection
+        return ConnectionUtil.write(connection -> {
+            try(Statement st = connection.createStatement()){
+                int version = getVersion(st);
+
+                for(int target = version + 1; target <= MIGRATIONS.size(); target++){
+                    st.execute("BEGIN IMMEDIATE");
+
+                    try{
+                        // Re-check under the write lock in case another process migrated first
+                        if(getVersion(st) < target){
+                            MigrationCheck check = CHECKS.get(target);
+                            if(check != null){
+                                check.run(st);
+                            }
+                            for(String sql : MIGRATIONS.get(target - 1)){
+                                st.execute(sql);
+                            }
+                            st.execute("PRAGMA user_version = " + target);
+                            System.out.println("Applied schema migration " + target);
+                        }
+                        st.execute("COMMIT");
+                    }
+                    catch(SQLException e){
+                        st.execute("ROLLBACK");
+                        throw new SQLException("Schema migration " + target + " failed: " + e.getMessage(), e);
+                    }
+                }
+
+                return getVersion(st);
+            }
+        });
+    }
+
+    /*
+     * Rebuild Search Index Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Rebuilds the messages_fts index from the messages table and merges it into as few segments as possible
+     * Only needed if the index was damaged or rows were changed with the triggers bypassed (e.g. a bulk import)
+    */
+    public static void rebuildSearchIndex() throws SQLException{
+        ConnectionUtil.write(connection -> {
+            try(Statement st = connection.createStatement()){
+                st.execute("INSERT INTO messages_fts (messages_fts) VALUES ('rebuild')");
+                st.execute("INSERT INTO messages_fts (messages_fts) VALUES ('optimize')");
+            }
+
+            return null;
+        });
+    }
+
+    // Latest schema version this build knows about
+    public static int latestVersion(){ return MIGRATIONS.size(); }
+
+    /*
+     * Check Unique Usernames Helper Method
+     * INPUT: 1 Statement
+     * OUTPUT: N/A
+     * Before migration 2 only a check-then-insert kept usernames unique, so concurrent registrations could store one twice
+     * With db.migrate.renameDuplicateUsernames, the oldest account keeps each name and the others become username#accountId;
+     * otherwise throws SQLException naming the duplicates, so they can be merged or renamed by hand
+    */
+    private static void checkUniqueUsernames(Statement st) throws SQLException{
+        List<String> duplicates = new ArrayList<>();
+        try(ResultSet rs = st.executeQuery("SELECT username, COUNT(*) FROM accounts GROUP BY username HAVING COUNT(*) > 1 ORDER BY username")){
+            while(rs.next()){
+                duplicates.add("'" + rs.getString(1) + "' (" + rs.getInt(2) + " accounts)");
+            }
+        }
+
+        if(duplicates.isEmpty()){
+            return;
+        }
+
+        if(AppConfig.getBoolean("db.migrate.renameDuplicateUsernames", false)){
+            int renamed = st.executeUpdate("UPDATE accounts SET username = username || '#' || accountId "
+                + "WHERE accountId NOT IN (SELECT MIN(accountId) FROM accounts GROUP BY username)");
+            System.out.println("Renamed " + renamed + " accounts with duplicate usernames to username#accountId");
+            return;
+        }
+
+        throw new SQLException(duplicates.size() + " usernames belong to more than one account, so they cannot be made unique: "
+            + String.join(", ", duplicates.subList(0, Math.min(10, duplicates.size()))) + (duplicates.size() > 10 ? ", ..." : "")
+            + ". Merge or rename them, or set db.migrate.renameDuplicateUsernames=true to keep the oldest account under each name"
+            + " and rename the others to username#accountId");
+    }
+
+    /*
+     * Migration Check Interface
+     * Inspects or fixes the data before a migration runs; throwing SQLException rolls the migration back
+    */
+    @FunctionalInterface
+    private interface MigrationCheck {
+        void run(Statement st) throws SQLException;
+    }
+
+    /*
+     * Get Version Helper Method
+     * INPUT: 1 Statement
+     * OUTPUT: 1 int
+     * Returns the schema version stored in the database file
+    */
+    private static int getVersion(Statement st) throws SQLException{
+        try(ResultSet rs = st.executeQuery("PRAGMA user_version")){
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
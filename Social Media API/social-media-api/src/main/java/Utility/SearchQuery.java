@@ -0,0 +1,67 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: SearchQuery.java
+/* FILE DESCRIPTION: Class that turns a user's search text into terms, and the terms into an FTS5 MATCH expression.
+ * Terms are runs of letters and digits, lowercased, so punctuation such as # or @ is ignored like the FTS5 tokenizer does.
+ * Each term is quoted in the MATCH expression, so user input can never be parsed as FTS5 query syntax.
+*/
+
+package Utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class SearchQuery {
+    // Most terms the service accepts in one query
+    public static final int MAX_TERMS = 16;
+
+    /*
+     * Terms Method
+     * INPUT: 1 String
+     * OUTPUT: List of String
+     * Returns the distinct lowercase terms of the text in order, or an empty List if it has none
+    */
+    public static List<String> terms(String text){
+        List<String> terms = new ArrayList<>();
+        if(text == null){
+            return terms;
+        }
+
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++){
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+            if(wordChar && start < 0){
+                start = i;
+            }
+            else if(!wordChar && start >= 0){
+                String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if(!terms.contains(term)){
+                    terms.add(term);
+                }
+                start = -1;
+            }
+        }
+
+        return terms;
+    }
+
+    /*
+     * To Match Expression Method
+     * INPUT: List of String
+     * OUTPUT: 1 String
+     * Returns an FTS5 expression that matches rows containing every term, e.g. "hello" "world"
+    */
+    public static String toMatchExpression(List<String> terms){
+        StringBuilder sb = new StringBuilder();
+
+        for(String term : terms){
+            if(sb.length() > 0){
+                sb.append(' ');
+            }
+            sb.append('"').append(term.replace("\"", "\"\"")).append('"');
+        }
+
+        return sb.toString();
+    }
+}
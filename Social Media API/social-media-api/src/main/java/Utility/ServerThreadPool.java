@@ -0,0 +1,73 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ServerThreadPool.java
+/* FILE DESCRIPTION: Class that builds the Jetty thread pool the API server runs its handlers on.
+ * In platform mode handlers run on a bounded pool of OS threads. In virtual mode Jetty keeps a few
+ * platform threads for its selectors and runs every blocking handler on its own virtual thread,
+ * so a request parked on JDBC no longer ties up an OS thread.
+*/
+
+package Utility;
+
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.concurrent.Executor;
+
+public class ServerThreadPool {
+    // Execution modes
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    /*
+     * Create Method
+     * INPUT: N/A
+     * OUTPUT: QueuedThreadPool object
+     * Builds the pool from the server.threadMode, server.maxThreads and server.minThreads settings
+    */
+    public static QueuedThreadPool create(){
+        return create(
+            AppConfig.getString("server.threadMode", PLATFORM),
+            AppConfig.getInt("server.maxThreads", 200),
+            AppConfig.getInt("server.minThreads", 8)
+        );
+    }
+
+    /*
+     * Create Method
+     * INPUT: 1 String, 2 int
+     * OUTPUT: QueuedThreadPool object
+     * Builds a pool for the given mode ("platform" or "virtual")
+     * Falls back to platform threads if the JVM does not support virtual threads
+    */
+    public static QueuedThreadPool create(String mode, int maxThreads, int minThreads){
+        QueuedThreadPool threadPool = new QueuedThreadPool(maxThreads, minThreads);
+
+        if(VIRTUAL.equalsIgnoreCase(mode)){
+            if(VirtualThreads.areSupported()){
+                threadPool.setName("api-virtual");
+                threadPool.setVirtualThreadsExecutor(VirtualThreads.getDefaultVirtualThreadsExecutor());
+                return threadPool;
+            }
+            System.out.println("Virtual threads are not supported by this JVM, using platform threads");
+        }
+        else if(!PLATFORM.equalsIgnoreCase(mode)){
+            System.out.println("Unknown server.threadMode " + mode + ", using platform threads");
+        }
+
+        threadPool.setName("api-platform");
+        return threadPool;
+    }
+
+    /*
+     * Blocking Executor Method
+     * INPUT: 1 QueuedThreadPool
+     * OUTPUT: 1 Executor
+     * Returns where work that may block (e.g. writing a response) should run outside a handler:
+     * a new virtual thread in virtual mode, otherwise one of the pool's own threads
+    */
+    public static Executor blockingExecutor(QueuedThreadPool threadPool){
+        Executor virtualThreads = threadPool.getVirtualThreadsExecutor();
+
+        return (virtualThreads != null) ? virtualThreads : threadPool;
+    }
+}
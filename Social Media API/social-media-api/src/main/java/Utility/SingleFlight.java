@@ -0,0 +1,121 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: SingleFlight.java
+/* FILE DESCRIPTION: Class that coalesces concurrent identical reads, so callers asking for the same key while a
+ * query for it is running share that query's result instead of each running their own.
+ * Only the query in flight is shared; nothing is kept once it completes, so this is not a cache.
+ * After a write, forget() the keys it touched: callers arriving later then start a fresh query instead of
+ * joining one that may have read the row before the write.
+*/
+
+package Utility;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final LongAdder leaderCount = new LongAdder();
+    private final LongAdder sharedCount = new LongAdder();
+
+    // Methods
+    /*
+     * Execute Async Method
+     * INPUT: 1 key, 1 Supplier of CompletableFuture
+     * OUTPUT: CompletableFuture of 1 value
+     * Returns the future of the query already in flight for the key, or starts one with the supplier
+     * The same future is handed to every caller, so they must not complete or cancel it
+     * It completes on the thread that finished the query, where stages added without an executor run one caller after another;
+     * callers with real work to do on the result (e.g. writing a response) should continue with an *Async stage on their own executor
+    */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> query){
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+
+        if(existing != null){
+            sharedCount.increment();
+            return existing;
+        }
+
+        leaderCount.increment();
+        CompletableFuture<V> started;
+        try{
+            started = query.get();
+        }
+        catch(RuntimeException e){
+            // Nothing was started (e.g. the executor queue is full); joined callers see the same failure
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+
+        started.whenComplete((value, error) -> {
+            // Before completing, so no caller can join a flight that has already finished
+            inFlight.remove(key, flight);
+
+            if(error != null){
+                flight.completeExceptionally(error);
+            }
+            else{
+                flight.complete(value);
+            }
+        });
+        return flight;
+    }
+
+    /*
+     * Execute Method
+     * INPUT: 1 key, 1 Supplier
+     * OUTPUT: 1 value
+     * Blocking form of executeAsync: the first caller runs the query on its own thread and the others wait for it
+    */
+    public V execute(K key, Supplier<V> query){
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+
+        if(existing != null){
+            sharedCount.increment();
+            try{
+                return existing.join();
+            }
+            catch(CompletionException e){
+                throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        leaderCount.increment();
+        try{
+            V value = query.get();
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        }
+        catch(RuntimeException e){
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /*
+     * Forget Method
+     * INPUT: 1 key
+     * OUTPUT: N/A
+     * Stops new callers from joining the key's query in flight; callers already waiting still get its result
+    */
+    public void forget(K key){
+        inFlight.remove(key);
+    }
+
+    // Statistics Getter Methods
+    // Queries actually run
+    public long getLeaderCount(){ return leaderCount.sum(); }
+    // Calls answered by another caller's query instead of their own
+    public long getSharedCount(){ return sharedCount.sum(); }
+    // Queries running now
+    public int getInFlightCount(){ return inFlight.size(); }
+}
@@ -0,0 +1,22 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: SqlWork.java
+/* FILE DESCRIPTION: Interface for a unit of JDBC work that runs against a connection it is handed.
+ * Used for writes, so ConnectionUtil can decide which connection and thread they run on.
+*/
+
+package Utility;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface SqlWork<T> {
+    /*
+     * Run Method
+     * INPUT: 1 Connection object
+     * OUTPUT: T
+     * Does the work on the given connection and returns its result
+     * The connection belongs to the caller of run(); the work must not close it
+    */
+    T run(Connection connection) throws SQLException;
+}
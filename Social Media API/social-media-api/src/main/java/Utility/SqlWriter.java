@@ -0,0 +1,182 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: SqlWriter.java
+/* FILE DESCRIPTION: Class that runs every database write on one dedicated thread and connection.
+ * SQLite only allows one writer at a time, so instead of letting request threads race for the write lock
+ * (and fail with SQLITE_BUSY under load), callers queue their SqlWork here and wait for its result.
+ * The queue is bounded; when it is full new writes are turned away with an OverloadedException (503).
+*/
+
+package Utility;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SqlWriter {
+    // The single write connection and the thread that uses it
+    private final ConnectionPool connection;
+    private final ThreadPoolExecutor thread;
+    private final int queueCapacity;
+    private volatile Thread writerThread = null;
+    // Connection the writer thread is using right now, so nested work shares it (writer thread only)
+    private Connection current = null;
+
+    // Statistics
+    private final LongAdder taskCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 ConnectionPool, 1 int
+     * Creates a writer that runs work on connections from the given pool (which should hold one connection)
+     * and queues at most queueCapacity writes
+    */
+    public SqlWriter(ConnectionPool connection, int queueCapacity){
+        this.connection = connection;
+        this.queueCapacity = queueCapacity;
+        this.thread = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread t = new Thread(r, "sqlite-writer");
+                t.setDaemon(true);
+                writerThread = t;
+                return t;
+            });
+    }
+
+    // Methods
+    /*
+     * Execute Method
+     * INPUT: 1 SqlWork
+     * OUTPUT: T
+     * Queues the work for the writer thread and waits for its result
+     * Work queued from the writer thread itself runs immediately, so writes may be nested
+     * Throws the work's SQLException, or OverloadedException if the queue is full
+    */
+    public <T> T execute(SqlWork<T> work) throws SQLException{
+        if(Thread.currentThread() == writerThread){
+            return runOnWriter(work);
+        }
+
+        long queuedAt = System.nanoTime();
+        FutureTask<T> task = new FutureTask<>(() -> {
+            waitNanos.add(System.nanoTime() - queuedAt);
+            return runOnWriter(work);
+        });
+
+        try{
+            thread.execute(task);
+        }
+        catch(RejectedExecutionException e){
+            rejectedCount.increment();
+            throw new OverloadedException("Database write queue is full (capacity = " + queueCapacity + ")", 1);
+        }
+
+        try{
+            return task.get();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database writer", e);
+        }
+        catch(ExecutionException e){
+            Throwable cause = e.getCause();
+            if(cause instanceof SQLException){
+                throw (SQLException) cause;
+            }
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /*
+     * Close Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Finishes the queued writes, then closes the write connection
+    */
+    public void close(){
+        thread.shutdown();
+
+        try{
+            thread.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        connection.close();
+    }
+
+    // Statistics Getter Methods
+    // Number of writes waiting for the writer thread
+    public int getQueueDepth(){ return thread.getQueue().size(); }
+    // Number of writes run
+    public long getTaskCount(){ return taskCount.sum(); }
+    // Number of writes turned away because the queue was full
+    public long getRejectedCount(){ return rejectedCount.sum(); }
+    // Total time writes spent queued, in nanoseconds
+    public long getTotalWaitNanos(){ return waitNanos.sum(); }
+    // Total time writes spent running, in nanoseconds
+    public long getTotalRunNanos(){ return runNanos.sum(); }
+    // The write connection's pool, for its statistics
+    public ConnectionPool getConnectionPool(){ return connection; }
+
+    /*
+     * Average Wait Method
+     * INPUT: N/A
+     * OUTPUT: 1 double
+     * Returns the mean time in milliseconds a write waited for the writer thread
+    */
+    public double getAverageWaitMillis(){
+        long tasks = taskCount.sum();
+        return (tasks == 0) ? 0.0 : (waitNanos.sum() / 1_000_000.0) / tasks;
+    }
+
+    /*
+     * Average Run Method
+     * INPUT: N/A
+     * OUTPUT: 1 double
+     * Returns the mean time in milliseconds a write held the write connection
+    */
+    public double getAverageRunMillis(){
+        long tasks = taskCount.sum();
+        return (tasks == 0) ? 0.0 : (runNanos.sum() / 1_000_000.0) / tasks;
+    }
+
+    /*
+     * Run on Writer Helper Method
+     * INPUT: 1 SqlWork
+     * OUTPUT: T
+     * Runs the work on the write connection; returning the connection rolls back anything left uncommitted
+     * Nested work runs on the connection the outer work already holds
+    */
+    private <T> T runOnWriter(SqlWork<T> work) throws SQLException{
+        if(current != null){
+            return work.run(current);
+        }
+
+        long start = System.nanoTime();
+
+        try(Connection writeConnection = connection.getConnection()){
+            current = writeConnection;
+            return work.run(writeConnection);
+        }
+        finally{
+            current = null;
+            runNanos.add(System.nanoTime() - start);
+            taskCount.increment();
+        }
+    }
+}
@@ -0,0 +1,273 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: StatementCache.java
+/* FILE DESCRIPTION: Class that caches PreparedStatements for one pooled connection, keyed by SQL.
+ * Callers still close their statements with try-with-resources; closing a cached statement
+ * clears it and hands it back to the cache instead of finalizing it, so SQLite parses each query once.
+ * Only the thread holding the connection uses its cache, so no locking is needed.
+*/
+
+package Utility;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+class StatementCache {
+    // Settings
+    private final int maxSize;
+
+    // Cache state, least recently used first
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    // Statistics shared by every connection of the pool
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 int, 3 LongAdder
+     * Creates a cache holding at most maxSize statements; the counters are owned by the pool
+    */
+    StatementCache(int maxSize, LongAdder hitCount, LongAdder missCount, LongAdder evictionCount){
+        this.maxSize = maxSize;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.statements = new LinkedHashMap<>(maxSize * 2, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest){
+                if(size() > StatementCache.this.maxSize){
+                    evict(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Methods
+    /*
+     * Prepare Method
+     * INPUT: 2 Connection, 1 Method, 1 Object array
+     * OUTPUT: PreparedStatement
+     * Returns the cached statement for the prepareStatement call, preparing and caching it on a miss
+     * handle is the pooled Connection the caller sees, physical is the driver connection behind it
+     * If the same SQL is already open (e.g. a nested query), an uncached statement is prepared instead
+    */
+    PreparedStatement prepare(Connection physical, Connection handle, Method prepareMethod, Object[] args) throws SQLException{
+        String key = keyFor(args);
+        CachedStatement cached = statements.get(key);
+
+        if(cached != null && !cached.inUse){
+            hitCount.increment();
+            cached.inUse = true;
+            return cached.newHandle(handle);
+        }
+
+        missCount.increment();
+        PreparedStatement ps = (PreparedStatement) invoke(prepareMethod, physical, args);
+
+        if(cached != null){
+            // Already in use, so this one is not cached and close() really closes it
+            return ps;
+        }
+
+        cached = new CachedStatement(ps);
+        cached.inUse = true;
+        statements.put(key, cached);
+        return cached.newHandle(handle);
+    }
+
+    /*
+     * Reclaim Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Takes back statements a caller forgot to close before returning the connection
+    */
+    void reclaim(){
+        for(CachedStatement cached : statements.values().toArray(new CachedStatement[0])){
+            if(cached.inUse){
+                cached.giveBack();
+            }
+        }
+    }
+
+    /*
+     * Size Method
+     * INPUT: N/A
+     * OUTPUT: 1 int
+     * Returns the number of cached statements
+    */
+    int size(){
+        return statements.size();
+    }
+
+    // Helper Methods
+    /*
+     * Key Helper Method
+     * INPUT: 1 Object array
+     * OUTPUT: 1 String
+     * Builds the cache key from the SQL and any extra prepareStatement arguments (result set type, etc.)
+    */
+    private static String keyFor(Object[] args){
+        if(args.length == 1){
+            return (String) args[0];
+        }
+
+        StringBuilder key = new StringBuilder((String) args[0]);
+        for(int i = 1; i < args.length; i++){
+            key.append('\u0000').append(args[i]);
+        }
+        return key.toString();
+    }
+
+    /*
+     * Evict Helper Method
+     * INPUT: 1 CachedStatement
+     * OUTPUT: N/A
+     * Closes an evicted statement now, or when its current user returns it
+    */
+    private void evict(CachedStatement cached){
+        evictionCount.increment();
+        cached.evicted = true;
+
+        if(!cached.inUse){
+            cached.closeQuietly();
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws SQLException{
+        try{
+            return method.invoke(target, args);
+        }
+        catch(InvocationTargetException e){
+            if(e.getCause() instanceof SQLException){
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+        catch(IllegalAccessException e){
+            throw new SQLException(e);
+        }
+    }
+
+    /*
+     * Cached Statement Class
+     * A physical PreparedStatement plus whether a caller currently has it
+    */
+    private class CachedStatement {
+        private final PreparedStatement physical;
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        private CachedStatement(PreparedStatement physical){
+            this.physical = physical;
+        }
+
+        /*
+         * New Handle Method
+         * INPUT: 1 Connection
+         * OUTPUT: PreparedStatement
+         * Returns the PreparedStatement a caller uses; its close() hands the statement back
+        */
+        private PreparedStatement newHandle(Connection handle){
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{ PreparedStatement.class },
+                new StatementHandle(this, handle)
+            );
+        }
+
+        /*
+         * Give Back Method
+         * INPUT: N/A
+         * OUTPUT: N/A
+         * Resets the statement for its next user, or closes it if it was evicted or cannot be reset
+        */
+        private void giveBack(){
+            inUse = false;
+
+            if(evicted){
+                closeQuietly();
+                return;
+            }
+
+            try{
+                physical.clearParameters();
+                physical.clearBatch();
+            }
+            catch(SQLException e){
+                evicted = true;
+                statements.values().remove(this);
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly(){
+            try{
+                physical.close();
+            }
+            catch(SQLException e){
+                System.out.println("Failed to close cached statement");
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Statement Handle Class
+     * Routes calls to the cached statement until the caller closes it
+    */
+    private static class StatementHandle implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection connection;
+        private boolean returned = false;
+
+        private StatementHandle(CachedStatement cached, Connection connection){
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+            switch(method.getName()){
+                case "close":
+                    if(!returned){
+                        returned = true;
+                        cached.giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return returned;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+
+            if(returned){
+                throw new SQLException("Statement has already been closed");
+            }
+
+            try{
+                return method.invoke(cached.physical, args);
+            }
+            catch(InvocationTargetException e){
+                throw e.getCause();
+            }
+        }
+    }
+}
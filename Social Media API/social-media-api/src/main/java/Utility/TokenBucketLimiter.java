@@ -0,0 +1,109 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: TokenBucketLimiter.java
+/* FILE DESCRIPTION: Class that rate limits many independent keys (e.g. accounts or client IPs) with token buckets.
+ * Each bucket is kept in the GCRA form: a single "theoretical arrival time" in an AtomicLong, advanced with
+ * compare-and-set, which behaves exactly like a bucket refilled at ratePerSecond and holding up to burst tokens
+ * but needs no lock and no refill timer.
+ * Buckets that have refilled completely carry no state worth keeping and are swept once there are too many keys.
+*/
+
+package Utility;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TokenBucketLimiter {
+    // Settings
+    private final long intervalNanos;   // Time to refill one token
+    private final long burstNanos;      // Time to refill a full bucket
+    private final int maxKeys;
+
+    // Theoretical arrival time of each key's next request; a bucket is full once this is in the past
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final LongAdder allowedCount = new LongAdder();
+    private final LongAdder limitedCount = new LongAdder();
+
+    // Constructors
+    /*
+     * Parameterized Constructor
+     * INPUT: 1 double, 2 int
+     * Allows each key ratePerSecond requests per second on average and up to burst at once,
+     * and sweeps full buckets once more than maxKeys keys are tracked
+    */
+    public TokenBucketLimiter(double ratePerSecond, int burst, int maxKeys){
+        if(ratePerSecond <= 0 || burst < 1){
+            throw new IllegalArgumentException("ratePerSecond and burst must be positive");
+        }
+
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.maxKeys = maxKeys;
+    }
+
+    // Methods
+    /*
+     * Try Acquire Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: 1 long
+     * Takes the given number of tokens from the key's bucket and returns 0,
+     * or, if the bucket does not hold that many, takes none and returns the nanoseconds until it will
+    */
+    public long tryAcquire(String key, int permits){
+        return tryAcquire(key, permits, System.nanoTime());
+    }
+
+    /*
+     * Try Acquire Method
+     * INPUT: 1 String, 1 int, 1 long
+     * OUTPUT: 1 long
+     * tryAcquire at the given System.nanoTime() value
+    */
+    public long tryAcquire(String key, int permits, long now){
+        AtomicLong bucket = buckets.get(key);
+        if(bucket == null){
+            if(buckets.size() >= maxKeys){
+                sweep(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        long cost = intervalNanos * permits;
+        while(true){
+            long arrival = bucket.get();
+            long next = Math.max(arrival, now) + cost;
+
+            // Taking the tokens would leave the bucket more than empty
+            long wait = next - now - burstNanos;
+            if(wait > 0){
+                limitedCount.increment();
+                return wait;
+            }
+
+            if(bucket.compareAndSet(arrival, next)){
+                allowedCount.increment();
+                return 0;
+            }
+        }
+    }
+
+    /*
+     * Sweep Method
+     * INPUT: 1 long
+     * OUTPUT: N/A
+     * Forgets every key whose bucket has refilled completely; such a key starts over full anyway
+    */
+    private void sweep(long now){
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    // Statistics Getter Methods
+    // Number of keys being tracked
+    public int getKeyCount(){ return buckets.size(); }
+    // Number of requests allowed
+    public long getAllowedCount(){ return allowedCount.sum(); }
+    // Number of requests turned away
+    public long getLimitedCount(){ return limitedCount.sum(); }
+}
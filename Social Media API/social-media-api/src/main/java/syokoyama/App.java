@@ -7,14 +7,42 @@ package syokoyama;
 
 import io.javalin.Javalin;
 
+import java.sql.SQLException;
+
 import Controller.SocialMediaController;
+import DAO.DaoFactory;
+import Utility.AppConfig;
+import Utility.ConnectionUtil;
+import Utility.SchemaManager;
 
 public class App 
 {
-    public static void main( String[] args )
+    public static void main( String[] args ) throws SQLException
     {
+        // Maintenance command: rebuild the message search index, then exit
+        if(args.length > 0 && args[0].equals("--rebuild-search-index")){
+            if(DaoFactory.isInMemory()){
+                System.out.println("db.backend=memory searches the stored Messages directly; there is no index to rebuild");
+                return;
+            }
+            SchemaManager.migrate();
+
+            long start = System.nanoTime();
+            SchemaManager.rebuildSearchIndex();
+            System.out.println("Rebuilt the search index of " + ConnectionUtil.getUrl() + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+            ConnectionUtil.shutdown();
+            return;
+        }
+
+        // Create or migrate the schema before serving requests
+        if(!DaoFactory.isInMemory() && AppConfig.getBoolean("db.schema.autoMigrate", true)){
+            int version = SchemaManager.migrate();
+            System.out.println("Database " + ConnectionUtil.getUrl() + " is at schema version " + version);
+        }
+
         SocialMediaController controller = new SocialMediaController();
         Javalin app = controller.startAPI();
-        app.start(80);
+        app.start(AppConfig.getInt("server.port", 80));
     }
 }
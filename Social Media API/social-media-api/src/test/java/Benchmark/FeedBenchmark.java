@@ -0,0 +1,129 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: FeedBenchmark.java
+/* FILE DESCRIPTION: Benchmark that measures posting and home-feed reads for an account with 1k, 10k and 100k followers.
+ * Each run uses the in-memory DAOs so only the fan-out work is measured. Every follower follows the popular account;
+ * the active followers (the ones that read their feed) also follow a few ordinary accounts.
+ * Strategies: push fans every Message out on write, pull merges every followee on read,
+ * and hybrid switches the popular account to pull once it reaches feed.fanoutThreshold followers.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=Benchmark.FeedBenchmark
+*/
+
+package Benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import DAO.Account.InMemoryAccountDao;
+import DAO.Follow.InMemoryFollowDao;
+import DAO.Message.InMemoryMessageDao;
+import Model.Account;
+import Model.Message;
+import Service.SocialMediaService;
+import Utility.AppConfig;
+
+public class FeedBenchmark {
+    // Settings
+    private static final String FOLLOWER_COUNTS = AppConfig.getString("bench.followers", "1000,10000,100000");
+    private static final int ACTIVE_FOLLOWERS = AppConfig.getInt("bench.activeFollowers", 2_000);
+    private static final int FRIENDS = AppConfig.getInt("bench.friends", 20);
+    private static final int POSTS = AppConfig.getInt("bench.posts", 200);
+    private static final int READS = AppConfig.getInt("bench.reads", 20_000);
+    private static final int FEED_LIMIT = AppConfig.getInt("bench.feedLimit", 50);
+    private static final int THRESHOLD = AppConfig.getInt("feed.fanoutThreshold", 10_000);
+
+    private static long clock = 0;
+
+    public static void main(String[] args){
+        System.out.println("active followers = " + ACTIVE_FOLLOWERS + ", friends = " + FRIENDS + ", feed limit = " + FEED_LIMIT
+            + ", hybrid threshold = " + THRESHOLD);
+        System.out.printf("%-10s %-8s %14s %12s %12s %12s%n", "followers", "mode", "post us/op", "feed p50 us", "feed p99 us", "feed max us");
+
+        for(String count : FOLLOWER_COUNTS.split(",")){
+            int followers = Integer.parseInt(count.trim());
+
+            run(followers, "push", Integer.MAX_VALUE);
+            run(followers, "pull", 1);
+            run(followers, "hybrid", THRESHOLD);
+        }
+    }
+
+    /*
+     * Run Method
+     * INPUT: 1 int, 1 String, 1 int
+     * OUTPUT: N/A
+     * Builds the follow graph, then times POSTS posts by the popular account and READS feed reads by active followers
+    */
+    private static void run(int followers, String mode, int threshold){
+        System.setProperty("feed.fanoutThreshold", String.valueOf(threshold));
+        SocialMediaService service = new SocialMediaService(new InMemoryAccountDao(), new InMemoryMessageDao(), new InMemoryFollowDao());
+
+        // Accounts: 1 is the popular account, then the friends, then the followers
+        int popular = register(service, "popular");
+        int[] friends = new int[FRIENDS];
+        for(int i = 0; i < FRIENDS; i++){
+            friends[i] = register(service, "friend" + i);
+        }
+
+        int active = Math.min(followers, ACTIVE_FOLLOWERS);
+        int[] readers = new int[active];
+        for(int i = 0; i < followers; i++){
+            int id = register(service, "follower" + i);
+            service.userFollow(id, popular);
+
+            if(i < active){
+                readers[i] = id;
+                for(int friend : friends){
+                    service.userFollow(id, friend);
+                }
+            }
+        }
+
+        // History, then every active follower reads once so its feed is built
+        for(int i = 0; i < 50; i++){
+            post(service, popular);
+            for(int friend : friends){
+                post(service, friend);
+            }
+        }
+        for(int reader : readers){
+            service.feedRetrieve(reader, FEED_LIMIT);
+        }
+
+        // Posts by the popular account, interleaved with the friends as usual
+        long postNanos = 0;
+        for(int i = 0; i < POSTS; i++){
+            long begin = System.nanoTime();
+            post(service, popular);
+            postNanos += System.nanoTime() - begin;
+
+            post(service, friends[i % FRIENDS]);
+        }
+
+        // Feed reads
+        long[] latencies = new long[READS];
+        for(int i = 0; i < READS; i++){
+            int reader = readers[ThreadLocalRandom.current().nextInt(active)];
+
+            long begin = System.nanoTime();
+            service.feedRetrieve(reader, FEED_LIMIT);
+            latencies[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(latencies);
+
+        System.out.printf("%-10d %-8s %14.1f %12.1f %12.1f %12.1f%n", followers, mode, postNanos / 1e3 / POSTS,
+            percentileMicros(latencies, 0.50), percentileMicros(latencies, 0.99), percentileMicros(latencies, 1.0));
+    }
+
+    private static int register(SocialMediaService service, String username){
+        return service.userRegister(new Account(username, "password")).getAccountId();
+    }
+
+    private static void post(SocialMediaService service, int postedBy){
+        service.messageCreate(new Message(postedBy, "bench", ++clock));
+    }
+
+    private static double percentileMicros(long[] sortedLatencies, double percentile){
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e3;
+    }
+}
@@ -0,0 +1,380 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: LoadTest.java
+/* FILE DESCRIPTION: End-to-end load test that starts the real API on a random port against a scratch SQLite file
+ * and drives a weighted mix of register, login, post, read, patch and delete requests over HTTP.
+ * In closed-loop mode a fixed number of clients each send their next request when the last one returns.
+ * In open-loop mode requests are scheduled at a constant arrival rate whether or not earlier ones have finished.
+ * Latencies are corrected for coordinated omission: open-loop requests (and paced closed-loop ones) are timed from
+ * when they were due rather than when they were sent, and unpaced closed-loop clients back-fill the requests a
+ * stall kept them from sending, as HdrHistogram's recordValueWithExpectedInterval does. Raw latencies are reported too.
+ * Everything runs in one JVM on localhost, so no network access is needed.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=Benchmark.LoadTest -Dload.mode=open -Dload.rate=2000
+*/
+
+package Benchmark;
+
+import io.javalin.Javalin;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import Controller.SocialMediaController;
+import Utility.AppConfig;
+import Utility.ConnectionUtil;
+import Utility.LatencyHistogram;
+import Utility.SchemaManager;
+
+public class LoadTest {
+    public static final String CLOSED = "closed";
+    public static final String OPEN = "open";
+
+    // Settings
+    private static final String MODE = AppConfig.getString("load.mode", CLOSED);
+    private static final int DURATION_SECONDS = AppConfig.getInt("load.durationSeconds", 30);
+    private static final int WARMUP_SECONDS = AppConfig.getInt("load.warmupSeconds", 5);
+    private static final int CONCURRENCY = AppConfig.getInt("load.concurrency", 64);
+    private static final int RATE = AppConfig.getInt("load.rate", 0);
+    private static final int SEED_ACCOUNTS = AppConfig.getInt("load.seedAccounts", 100);
+    private static final int SEED_MESSAGES = AppConfig.getInt("load.seedMessages", 1_000);
+    private static final String MIX = AppConfig.getString("load.mix", "register=5,login=15,post=15,read=50,patch=10,delete=5");
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    // Operations and their share of the traffic
+    private enum Operation { REGISTER, LOGIN, POST, READ, PATCH, DELETE }
+
+    // Workload state shared by every client
+    private static String base;
+    private static final String RUN_ID = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicInteger nextUser = new AtomicInteger();
+    private static int[] accountIds;
+    private static int seedMessageCount;
+    private static final ConcurrentLinkedQueue<Integer> postedIds = new ConcurrentLinkedQueue<>();
+
+    public static void main(String[] args) throws Exception{
+        if(!CLOSED.equals(MODE) && !OPEN.equals(MODE)){
+            throw new IllegalArgumentException("load.mode must be " + CLOSED + " or " + OPEN + ", not " + MODE);
+        }
+        if(OPEN.equals(MODE) && RATE <= 0){
+            throw new IllegalArgumentException("load.rate must be positive in open-loop mode");
+        }
+        Mix mix = Mix.parse(MIX);
+
+        File dbFile = File.createTempFile("load-test", ".db");
+        System.setProperty("db.path", dbFile.getAbsolutePath());
+        SchemaManager.migrate();
+        Javalin app = new SocialMediaController().startAPI().start(0);
+
+        try{
+            base = "http://localhost:" + app.port();
+            seed();
+
+            System.out.println("mode = " + MODE + ", concurrency = " + CONCURRENCY + ", rate = " + ((RATE > 0) ? RATE + "/s" : "unpaced")
+                + ", duration = " + DURATION_SECONDS + "s, mix = " + MIX);
+
+            Run warmup = run(mix, WARMUP_SECONDS, 0);
+            long expectedInterval = (CLOSED.equals(MODE) && RATE <= 0) ? warmup.meanRawNanos() : 0;
+
+            Run run = run(mix, DURATION_SECONDS, expectedInterval);
+            run.print();
+        }
+        finally{
+            app.stop();
+            ConnectionUtil.shutdown();
+            dbFile.delete();
+            new File(dbFile.getAbsolutePath() + "-wal").delete();
+            new File(dbFile.getAbsolutePath() + "-shm").delete();
+        }
+    }
+
+    /*
+     * Seed Method
+     * INPUT: N/A
+     * OUTPUT: N/A
+     * Registers SEED_ACCOUNTS accounts and posts SEED_MESSAGES Messages spread across them
+    */
+    private static void seed() throws Exception{
+        accountIds = new int[SEED_ACCOUNTS];
+        for(int i = 0; i < SEED_ACCOUNTS; i++){
+            String body = send("POST", "/register", credentials("seed-" + RUN_ID + "-" + i)).body();
+            accountIds[i] = idFrom(body, "accountId");
+        }
+
+        for(int i = 0; i < SEED_MESSAGES; i++){
+            send("POST", "/messages", messageBody(accountIds[i % SEED_ACCOUNTS], "seed message " + i));
+        }
+        seedMessageCount = SEED_MESSAGES;
+    }
+
+    /*
+     * Run Method
+     * INPUT: 1 Mix object, 1 int, 1 long
+     * OUTPUT: Run object
+     * Drives the mix for the given number of seconds in the configured mode and returns what was recorded
+     * A positive expectedInterval back-fills the requests an unpaced closed-loop client could not send during a stall
+    */
+    private static Run run(Mix mix, int seconds, long expectedInterval) throws Exception{
+        Run run = new Run(expectedInterval);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+
+        if(OPEN.equals(MODE)){
+            // One scheduler hands each request to the pool at its due time; a busy pool makes it wait in the queue
+            long period = 1_000_000_000L / RATE;
+            for(long due = start; due < deadline; due += period){
+                long wait = due - System.nanoTime();
+                if(wait > 0){
+                    LockSupport.parkNanos(wait);
+                }
+
+                long scheduled = due;
+                clients.execute(() -> run.execute(mix.pick(ThreadLocalRandom.current()), scheduled));
+            }
+        }
+        else{
+            // Paced clients each take every CONCURRENCY-th slot of the target rate
+            long period = (RATE > 0) ? 1_000_000_000L * CONCURRENCY / RATE : 0;
+            for(int t = 0; t < CONCURRENCY; t++){
+                long offset = (RATE > 0) ? period * t / CONCURRENCY : 0;
+                clients.execute(() -> {
+                    long due = start + offset;
+                    while(due < deadline){
+                        if(period > 0){
+                            long wait = due - System.nanoTime();
+                            if(wait > 0){
+                                LockSupport.parkNanos(wait);
+                            }
+                        }
+                        else{
+                            due = System.nanoTime();
+                        }
+
+                        run.execute(mix.pick(ThreadLocalRandom.current()), due);
+                        due += period;
+                    }
+                });
+            }
+        }
+
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.MINUTES);
+        run.elapsedNanos = System.nanoTime() - start;
+
+        return run;
+    }
+
+    /*
+     * Request Method
+     * INPUT: 1 Operation
+     * OUTPUT: 1 int
+     * Sends one request of the given kind and returns its status code
+    */
+    private static int request(Operation op) throws Exception{
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int accountId = accountIds[random.nextInt(accountIds.length)];
+
+        switch(op){
+            case REGISTER:
+                return send("POST", "/register", credentials("load-" + RUN_ID + "-" + nextUser.incrementAndGet())).statusCode();
+            case LOGIN:
+                return send("GET", "/login", credentials("seed-" + RUN_ID + "-" + random.nextInt(accountIds.length))).statusCode();
+            case POST:
+                HttpResponse<String> posted = send("POST", "/messages", messageBody(accountId, "load test message " + random.nextInt()));
+                if(posted.statusCode() == 200){
+                    postedIds.add(idFrom(posted.body(), "messageId"));
+                }
+                return posted.statusCode();
+            case READ:
+                return send("GET", "/messages/" + (1 + random.nextInt(seedMessageCount)), null).statusCode();
+            case PATCH:
+                // Seeded Messages are never deleted, so a patch always has a target
+                return send("PATCH", "/messages/" + (1 + random.nextInt(seedMessageCount)),
+                    "{\"messageText\":\"edited " + random.nextInt() + "\"}").statusCode();
+            default:
+                Integer messageId = postedIds.poll();
+                return send("DELETE", "/messages/" + ((messageId == null) ? Integer.MAX_VALUE : messageId), null).statusCode();
+        }
+    }
+
+    private static HttpResponse<String> send(String method, String path, String body) throws Exception{
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+            .method(method, (body == null) ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String credentials(String username){
+        return "{\"username\":\"" + username + "\",\"password\":\"password\"}";
+    }
+
+    private static String messageBody(int postedBy, String text){
+        return "{\"postedBy\":" + postedBy + ",\"messageText\":\"" + text + "\",\"timePostedEpoch\":" + System.currentTimeMillis() + "}";
+    }
+
+    /*
+     * ID From Helper Method
+     * INPUT: 2 String
+     * OUTPUT: 1 int
+     * Pulls an integer field out of a JSON response without a full parse
+    */
+    private static int idFrom(String json, String field){
+        int at = json.indexOf("\"" + field + "\":") + field.length() + 3;
+        int end = at;
+        while(end < json.length() && Character.isDigit(json.charAt(end))){
+            end++;
+        }
+        return Integer.parseInt(json.substring(at, end));
+    }
+
+    /*
+     * Mix Class
+     * Cumulative weights of each Operation, parsed from "name=weight,..."
+    */
+    private static class Mix {
+        private final Operation[] operations;
+        private final int[] cumulative;
+
+        private Mix(Operation[] operations, int[] cumulative){
+            this.operations = operations;
+            this.cumulative = cumulative;
+        }
+
+        private static Mix parse(String spec){
+            String[] parts = spec.split(",");
+            Operation[] operations = new Operation[parts.length];
+            int[] cumulative = new int[parts.length];
+
+            int total = 0;
+            for(int i = 0; i < parts.length; i++){
+                String[] pair = parts[i].trim().split("=");
+                if(pair.length != 2){
+                    throw new IllegalArgumentException("load.mix entry " + parts[i] + " is not name=weight");
+                }
+                operations[i] = Operation.valueOf(pair[0].trim().toUpperCase());
+                total += Integer.parseInt(pair[1].trim());
+                cumulative[i] = total;
+            }
+            if(total <= 0){
+                throw new IllegalArgumentException("load.mix weights must add up to more than 0");
+            }
+
+            return new Mix(operations, cumulative);
+        }
+
+        private Operation pick(ThreadLocalRandom random){
+            int roll = random.nextInt(cumulative[cumulative.length - 1]);
+            int i = 0;
+            while(roll >= cumulative[i]){
+                i++;
+            }
+            return operations[i];
+        }
+    }
+
+    /*
+     * Run Class
+     * Corrected latencies per Operation, raw latencies overall, and outcome counts of one run
+    */
+    private static class Run {
+        private final long expectedInterval;
+        private final Map<Operation, LatencyHistogram> corrected = new EnumMap<>(Operation.class);
+        private final Map<Operation, LongAdder> completed = new EnumMap<>(Operation.class);
+        private final LatencyHistogram correctedAll = new LatencyHistogram();
+        private final LatencyHistogram rawAll = new LatencyHistogram();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private long elapsedNanos;
+
+        private Run(long expectedInterval){
+            this.expectedInterval = expectedInterval;
+            for(Operation op : Operation.values()){
+                corrected.put(op, new LatencyHistogram());
+                completed.put(op, new LongAdder());
+            }
+        }
+
+        /*
+         * Execute Method
+         * INPUT: 1 Operation, 1 long
+         * OUTPUT: N/A
+         * Sends the request and records its latency from when it was due and from when it was sent
+        */
+        private void execute(Operation op, long due){
+            long sent = System.nanoTime();
+            int status;
+            try{
+                status = request(op);
+            }
+            catch(Exception e){
+                status = 0;
+            }
+            long done = System.nanoTime();
+
+            if(status == 0 || status >= 500){
+                serverErrors.increment();
+            }
+            else if(status >= 400){
+                clientErrors.increment();
+            }
+
+            completed.get(op).increment();
+            rawAll.record(done - sent);
+            record(corrected.get(op), done - due);
+        }
+
+        private void record(LatencyHistogram histogram, long latency){
+            histogram.record(latency);
+            correctedAll.record(latency);
+
+            // Requests this client would have sent while it was stuck on this one
+            if(expectedInterval > 0){
+                for(long missed = latency - expectedInterval; missed >= expectedInterval; missed -= expectedInterval){
+                    histogram.record(missed);
+                    correctedAll.record(missed);
+                }
+            }
+        }
+
+        private long meanRawNanos(){
+            return (rawAll.getCount() == 0) ? 0 : rawAll.getTotalNanos() / rawAll.getCount();
+        }
+
+        private void print(){
+            double seconds = elapsedNanos / 1e9;
+
+            System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n", "operation", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+            for(Operation op : Operation.values()){
+                long count = completed.get(op).sum();
+                if(count > 0){
+                    printRow(op.name().toLowerCase(), count, corrected.get(op), seconds);
+                }
+            }
+            printRow("all", rawAll.getCount(), correctedAll, seconds);
+            printRow("all (raw)", rawAll.getCount(), rawAll, seconds);
+
+            System.out.println("completed = " + rawAll.getCount() + " in " + String.format("%.1f", seconds) + "s, 4xx = " + clientErrors.sum()
+                + ", errors = " + serverErrors.sum() + ((expectedInterval > 0) ? ", expected interval = " + (expectedInterval / 1_000) + "us" : ""));
+        }
+
+        // Counts are requests actually completed; back-filled samples only shape the percentiles
+        private void printRow(String name, long count, LatencyHistogram histogram, double seconds){
+            System.out.printf("%-10s %10d %10.0f %10.2f %10.2f %10.2f %10.2f%n", name, count, count / seconds,
+                histogram.getPercentileNanos(0.50) / 1e6, histogram.getPercentileNanos(0.99) / 1e6,
+                histogram.getPercentileNanos(0.999) / 1e6, histogram.getPercentileNanos(1.0) / 1e6);
+        }
+    }
+}
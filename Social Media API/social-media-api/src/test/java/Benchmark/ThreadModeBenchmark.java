@@ -0,0 +1,159 @@
+// AUTHOR: Sebastien Yokoyama
+// FILE NAME: ThreadModeBenchmark.java
+/* FILE DESCRIPTION: Benchmark that runs the same HTTP workload against the API on platform threads and on virtual threads.
+ * Each mode gets a fresh server on a random port backed by a scratch SQLite file; the workload is mostly
+ * GET /messages/{messageId} with some POST /messages, and the lookup cache is disabled so every request hits JDBC.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=Benchmark.ThreadModeBenchmark
+*/
+
+package Benchmark;
+
+import io.javalin.Javalin;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Controller.SocialMediaController;
+import Utility.AppConfig;
+import Utility.ConnectionUtil;
+import Utility.SchemaManager;
+import Utility.ServerThreadPool;
+
+public class ThreadModeBenchmark {
+    // Settings
+    private static final int REQUESTS = AppConfig.getInt("bench.requests", 20_000);
+    private static final int WARMUP_REQUESTS = AppConfig.getInt("bench.warmupRequests", 2_000);
+    private static final int CONCURRENCY = AppConfig.getInt("bench.concurrency", 256);
+    private static final int SEED_MESSAGES = AppConfig.getInt("bench.seedMessages", 1_000);
+    private static final int WRITE_PERCENT = AppConfig.getInt("bench.writePercent", 10);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    public static void main(String[] args) throws Exception{
+        File dbFile = File.createTempFile("thread-mode-bench", ".db");
+        System.setProperty("db.path", dbFile.getAbsolutePath());
+        System.setProperty("cache.enabled", "false");
+        SchemaManager.migrate();
+
+        System.out.println("requests = " + REQUESTS + ", concurrency = " + CONCURRENCY + ", writes = " + WRITE_PERCENT + "%");
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+
+        try{
+            for(String mode : new String[]{ ServerThreadPool.PLATFORM, ServerThreadPool.VIRTUAL }){
+                System.setProperty("server.threadMode", mode);
+                Javalin app = new SocialMediaController().startAPI().start(0);
+
+                try{
+                    String base = "http://localhost:" + app.port();
+                    seed(base);
+                    run(base, WARMUP_REQUESTS);
+                    Result result = run(base, REQUESTS);
+
+                    System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %8d%n", mode, result.throughput,
+                        result.percentileMillis(0.50), result.percentileMillis(0.99), result.percentileMillis(1.0), result.errors);
+                }
+                finally{
+                    app.stop();
+                }
+            }
+        }
+        finally{
+            ConnectionUtil.shutdown();
+            dbFile.delete();
+            new File(dbFile.getAbsolutePath() + "-wal").delete();
+            new File(dbFile.getAbsolutePath() + "-shm").delete();
+        }
+    }
+
+    /*
+     * Seed Method
+     * INPUT: 1 String
+     * OUTPUT: N/A
+     * Registers an account and posts SEED_MESSAGES Messages for the reads to hit
+    */
+    private static void seed(String base) throws Exception{
+        send(base, "POST", "/register", "{\"username\":\"bench-" + System.nanoTime() + "\",\"password\":\"password\"}");
+        for(int i = 0; i < SEED_MESSAGES; i++){
+            send(base, "POST", "/messages", "{\"postedBy\":1,\"messageText\":\"seed " + i + "\",\"timePostedEpoch\":" + i + "}");
+        }
+    }
+
+    /*
+     * Run Method
+     * INPUT: 1 String, 1 int
+     * OUTPUT: Result object
+     * Sends the given number of requests from CONCURRENCY client threads and records each latency
+    */
+    private static Result run(String base, int requests) throws Exception{
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+
+        long start = System.nanoTime();
+        for(int t = 0; t < CONCURRENCY; t++){
+            clients.execute(() -> {
+                int i;
+                while((i = next.getAndIncrement()) < requests){
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long begin = System.nanoTime();
+                    try{
+                        int status = (random.nextInt(100) < WRITE_PERCENT)
+                            ? send(base, "POST", "/messages", "{\"postedBy\":1,\"messageText\":\"bench\",\"timePostedEpoch\":" + i + "}")
+                            : send(base, "GET", "/messages/" + (1 + random.nextInt(SEED_MESSAGES)), null);
+                        if(status != 200){
+                            errors.incrementAndGet();
+                        }
+                    }
+                    catch(Exception e){
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - begin;
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(latencies, requests / (elapsed / 1e9), errors.get());
+    }
+
+    private static int send(String base, String method, String path, String body) throws Exception{
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+            .method(method, (body == null) ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /*
+     * Result Class
+     * Throughput, error count and sorted latencies of one run
+    */
+    private static class Result {
+        private final long[] sortedLatencies;
+        private final double throughput;
+        private final int errors;
+
+        private Result(long[] latencies, double throughput, int errors){
+            this.sortedLatencies = latencies.clone();
+            Arrays.sort(this.sortedLatencies);
+            this.throughput = throughput;
+            this.errors = errors;
+        }
+
+        private double percentileMillis(double percentile){
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package DAO.Message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import Model.Message;
+
+/**
+ * Unit tests for GroupCommitMessageDao.
+ */
+public class GroupCommitMessageDaoTest
+{
+    @Test
+    public void closeFlushesQueuedInserts()
+    {
+        InMemoryMessageDao store = new InMemoryMessageDao();
+        // A long linger keeps the rows queued until close
+        GroupCommitMessageDao dao = new GroupCommitMessageDao(store, 100, 5_000_000, 100, 1_000);
+
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for(int i = 0; i < 10; i++){
+            futures.add(dao.insertMessageAsync(new Message(1, "msg " + i, i)));
+        }
+        dao.close();
+
+        assertEquals(10, store.selectAllMessagesFromUser(1).size());
+        for(CompletableFuture<Message> future : futures){
+            assertEquals(1, future.join().getPostedBy());
+        }
+    }
+
+    @Test
+    public void writerFailureFailsTheBatch()
+    {
+        MessageDAO broken = new ForwardingMessageDao(new InMemoryMessageDao()){
+            @Override
+            public List<Message> insertMessages(List<Message> msgs){ throw new IllegalStateException("disk full"); }
+        };
+        GroupCommitMessageDao dao = new GroupCommitMessageDao(broken, 100, 0, 100, 1_000);
+
+        try{
+            dao.insertMessageAsync(new Message(1, "msg", 1)).join();
+            throw new AssertionError("insert should fail");
+        }
+        catch(CompletionException e){
+            // A server error, not a null that reads as an invalid Message
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        finally{
+            dao.close();
+        }
+    }
+}
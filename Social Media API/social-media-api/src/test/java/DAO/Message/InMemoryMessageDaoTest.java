@@ -0,0 +1,132 @@
+package DAO.Message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import Model.Message;
+
+/**
+ * Unit tests for InMemoryMessageDao.
+ */
+public class InMemoryMessageDaoTest
+{
+    @Test
+    public void deleteKeepsOtherRowsReachable()
+    {
+        InMemoryMessageDao dao = new InMemoryMessageDao();
+        for(int i = 0; i < 100; i++){
+            dao.insertMessage(new Message(1, "msg " + i, i));
+        }
+
+        // Ids 1, 17, 33, ... share a stripe, so deleting 1 moves another row into its place
+        assertEquals("msg 0", dao.deleteMessage(1).getMessageText());
+        assertNull(dao.deleteMessage(1));
+        assertNull(dao.selectMessageById(1));
+        for(int id = 2; id <= 100; id++){
+            assertEquals("msg " + (id - 1), dao.selectMessageById(id).getMessageText());
+        }
+        assertEquals(99, dao.selectAllMessages().size());
+    }
+
+    @Test
+    public void updateBumpsVersion()
+    {
+        InMemoryMessageDao dao = new InMemoryMessageDao();
+        int id = dao.insertMessage(new Message(1, "first", 1)).getMessageId();
+        dao.insertMessage(new Message(1, "other", 2));
+        assertEquals(1, dao.selectMessageById(id).getVersion());
+
+        assertEquals(2, dao.updateMessage(id, "second").getVersion());
+        assertEquals(3, dao.updateMessage(id, "third").getVersion());
+        assertEquals(3, dao.selectMessageById(id).getVersion());
+        assertEquals(3, dao.selectAllMessagesFromUser(1).get(0).getVersion());
+
+        // Other rows keep their own version
+        assertEquals(3, dao.deleteMessage(id).getVersion());
+        assertEquals(1, dao.selectMessageById(id + 1).getVersion());
+    }
+
+    @Test
+    public void everyWriteMovesOnlyThePostersListVersion()
+    {
+        InMemoryMessageDao dao = new InMemoryMessageDao();
+        assertEquals(0, dao.selectMessageListVersion(1));
+
+        int id = dao.insertMessage(new Message(1, "first", 1)).getMessageId();
+        long afterInsert = dao.selectMessageListVersion(1);
+        dao.insertMessage(new Message(2, "other", 2));
+        long otherAccount = dao.selectMessageListVersion(2);
+        assertEquals(afterInsert, dao.selectMessageListVersion(1));
+
+        dao.updateMessage(id, "second");
+        assertEquals(afterInsert + 1, dao.selectMessageListVersion(1));
+        dao.deleteMessage(id);
+        assertEquals(afterInsert + 2, dao.selectMessageListVersion(1));
+
+        // Nothing changed, nothing moves
+        assertNull(dao.updateMessage(id, "gone"));
+        assertEquals(afterInsert + 2, dao.selectMessageListVersion(1));
+        assertEquals(otherAccount, dao.selectMessageListVersion(2));
+    }
+
+    @Test
+    public void pagesFollowTimeThenIdOrder()
+    {
+        InMemoryMessageDao dao = new InMemoryMessageDao();
+        List<Message> batch = new ArrayList<>();
+        for(int i = 0; i < 50; i++){
+            batch.add(new Message(i % 2, "msg " + i, 1_000 - (i / 5)));
+        }
+        dao.insertMessages(batch);
+
+        List<Integer> seen = new ArrayList<>();
+        long afterTime = Long.MIN_VALUE;
+        int afterId = 0;
+        List<Message> page;
+        while(!(page = dao.selectMessagesFromUserAfter(1, afterTime, afterId, 7)).isEmpty()){
+            for(Message msg : page){
+                seen.add(msg.getMessageId());
+            }
+            Message last = page.get(page.size() - 1);
+            afterTime = last.getTimePostedEpoch();
+            afterId = last.getMessageId();
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for(Message msg : dao.selectAllMessagesFromUser(1)){
+            expected.add(msg.getMessageId());
+        }
+        assertEquals(25, seen.size());
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    public void searchMatchesEveryTermAndPages()
+    {
+        InMemoryMessageDao dao = new InMemoryMessageDao();
+        dao.insertMessage(new Message(1, "Learning #Java today", 1));
+        dao.insertMessage(new Message(1, "java java coffee", 2));
+        dao.insertMessage(new Message(2, "coffee first", 3));
+        dao.insertMessage(new Message(2, "Java", 4));
+
+        // Shorter messages with the terms rank first
+        assertEquals(List.of(4, 2, 1), ids(dao.searchMessages("JAVA", 0, 10)));
+        assertEquals(List.of(2), ids(dao.searchMessages("coffee, java!", 0, 10)));
+        assertEquals(List.of(1), ids(dao.searchMessages("java", 2, 10)));
+        assertEquals(List.of(), ids(dao.searchMessages("#", 0, 10)));
+    }
+
+    private List<Integer> ids(List<Message> messages)
+    {
+        List<Integer> ids = new ArrayList<>();
+        for(Message msg : messages){
+            ids.add(msg.getMessageId());
+        }
+        return ids;
+    }
+}
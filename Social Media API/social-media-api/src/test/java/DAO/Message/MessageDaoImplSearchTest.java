@@ -0,0 +1,103 @@
+package DAO.Message;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import Model.Message;
+import Utility.ConnectionUtil;
+import Utility.SchemaManager;
+import syokoyama.App;
+
+/**
+ * Unit tests for MessageDaoImpl search against a temporary SQLite database with the messages_fts index.
+ */
+public class MessageDaoImplSearchTest
+{
+    private File dbFile;
+    private MessageDaoImpl dao;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dbFile = File.createTempFile("search-test", ".db");
+        System.setProperty("db.path", dbFile.getAbsolutePath());
+        ConnectionUtil.shutdown();
+        SchemaManager.migrate();
+
+        dao = new MessageDaoImpl();
+        dao.insertMessage(new Message(1, "Learning #Java today", 1));
+        dao.insertMessage(new Message(1, "java java coffee", 2));
+        dao.insertMessage(new Message(2, "coffee first", 3));
+        dao.insertMessage(new Message(2, "Java", 4));
+    }
+
+    @After
+    public void tearDown()
+    {
+        ConnectionUtil.shutdown();
+        System.clearProperty("db.path");
+        for(String suffix : new String[]{ "", "-wal", "-shm" }){
+            new File(dbFile.getAbsolutePath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void ranksByBm25AndPages()
+    {
+        // Shorter messages with the terms rank first, the same order InMemoryMessageDao gives
+        assertEquals(List.of(4, 2, 1), ids(dao.searchMessages("JAVA", 0, 10)));
+        assertEquals(List.of(2), ids(dao.searchMessages("coffee, java!", 0, 10)));
+
+        assertEquals(List.of(4, 2), ids(dao.searchMessages("java", 0, 2)));
+        assertEquals(List.of(1), ids(dao.searchMessages("java", 2, 10)));
+        assertEquals(List.of(), ids(dao.searchMessages("#", 0, 10)));
+    }
+
+    @Test
+    public void indexFollowsInsertUpdateAndDelete()
+    {
+        int id = dao.insertMessage(new Message(3, "fresh tea", 5)).getMessageId();
+        assertEquals(List.of(id), ids(dao.searchMessages("tea", 0, 10)));
+
+        dao.updateMessage(id, "fresh juice");
+        assertEquals(List.of(), ids(dao.searchMessages("tea", 0, 10)));
+        assertEquals(List.of(id), ids(dao.searchMessages("juice", 0, 10)));
+
+        dao.deleteMessage(id);
+        assertEquals(List.of(), ids(dao.searchMessages("juice", 0, 10)));
+        assertEquals(List.of(3, 2), ids(dao.searchMessages("coffee", 0, 10)));
+    }
+
+    @Test
+    public void rebuildCommandRestoresIndex() throws SQLException
+    {
+        // Empty the index behind the triggers' back, as a bulk import that bypasses them would leave it
+        try(Connection connection = ConnectionUtil.getConnection(); Statement st = connection.createStatement()){
+            st.execute("INSERT INTO messages_fts (messages_fts) VALUES ('delete-all')");
+        }
+        assertEquals(List.of(), ids(dao.searchMessages("java", 0, 10)));
+
+        App.main(new String[]{ "--rebuild-search-index" });
+
+        assertEquals(List.of(4, 2, 1), ids(dao.searchMessages("java", 0, 10)));
+    }
+
+    private List<Integer> ids(List<Message> messages)
+    {
+        List<Integer> ids = new ArrayList<>();
+        for(Message msg : messages){
+            ids.add(msg.getMessageId());
+        }
+        return ids;
+    }
+}
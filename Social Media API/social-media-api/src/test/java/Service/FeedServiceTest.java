@@ -0,0 +1,86 @@
+package Service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import DAO.Follow.InMemoryFollowDao;
+
+/**
+ * Unit tests for FeedService.
+ */
+public class FeedServiceTest
+{
+    @Test
+    public void pushedAndPulledMessagesAreMergedNewestFirst()
+    {
+        TimelineIndex index = new TimelineIndex();
+        FeedService feeds = new FeedService(new InMemoryFollowDao(), index, 2, 100);
+
+        // Account 1 stays under the threshold; account 2 reaches it
+        feeds.follow(10, 1);
+        feeds.follow(10, 2);
+        feeds.follow(11, 2);
+        assertFalse(feeds.isFanoutOnRead(1));
+        assertTrue(feeds.isFanoutOnRead(2));
+
+        // Build 10's feed, then post from both accounts
+        assertArrayEquals(new int[0], feeds.feed(10, 10));
+        post(feeds, index, 1, 100, 1);
+        post(feeds, index, 2, 200, 2);
+        post(feeds, index, 1, 300, 3);
+
+        assertEquals(0, feeds.onPost(2, 400, 4));
+        assertArrayEquals(new int[]{ 3, 2, 1 }, feeds.feed(10, 10));
+        assertArrayEquals(new int[]{ 3, 2 }, feeds.feed(10, 2));
+    }
+
+    @Test
+    public void followBackfillsAndUnfollowRemoves()
+    {
+        TimelineIndex index = new TimelineIndex();
+        FeedService feeds = new FeedService(new InMemoryFollowDao(), index, 100, 3);
+
+        feeds.feed(10, 10);
+        for(int id = 1; id <= 5; id++){
+            post(feeds, index, 1, id * 10L, id);
+        }
+
+        // Only the newest bufferSize Messages are copied in
+        assertTrue(feeds.follow(10, 1));
+        assertArrayEquals(new int[]{ 5, 4, 3 }, feeds.feed(10, 10));
+
+        assertTrue(feeds.unfollow(10, 1));
+        assertFalse(feeds.unfollow(10, 1));
+        assertArrayEquals(new int[0], feeds.feed(10, 10));
+    }
+
+    @Test
+    public void droppingBelowThresholdKeepsPulledMessages()
+    {
+        TimelineIndex index = new TimelineIndex();
+        FeedService feeds = new FeedService(new InMemoryFollowDao(), index, 2, 100);
+
+        // Account 1 is merged on read while it has two followers
+        feeds.follow(10, 1);
+        feeds.follow(11, 1);
+        feeds.feed(10, 10);
+        post(feeds, index, 1, 100, 1);
+        assertTrue(feeds.isFanoutOnRead(1));
+
+        // Back under the threshold its Messages are pushed, and 10's buffer gets what it missed
+        assertTrue(feeds.unfollow(11, 1));
+        assertFalse(feeds.isFanoutOnRead(1));
+        post(feeds, index, 1, 200, 2);
+        assertArrayEquals(new int[]{ 2, 1 }, feeds.feed(10, 10));
+    }
+
+    private void post(FeedService feeds, TimelineIndex index, int postedBy, long time, int id)
+    {
+        index.add(postedBy, time, id);
+        feeds.onPost(postedBy, time, id);
+    }
+}
@@ -0,0 +1,41 @@
+package Service;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for TimelineIndex.
+ */
+public class TimelineIndexTest
+{
+    @Test
+    public void rangeIsNewestFirstAndHalfOpen()
+    {
+        TimelineIndex index = new TimelineIndex();
+        index.add(1, 300, 3);
+        index.add(1, 100, 1);
+        index.add(1, 200, 2);
+        index.add(1, 200, 4);
+        index.add(2, 150, 5);
+
+        assertArrayEquals(new int[]{ 3, 4, 2, 1 }, index.range(1, Long.MIN_VALUE, Long.MAX_VALUE, 10));
+        assertArrayEquals(new int[]{ 4, 2 }, index.range(1, 200, 300, 10));
+        assertArrayEquals(new int[]{ 3 }, index.range(1, 100, 400, 1));
+        assertArrayEquals(new int[0], index.range(3, 0, 1000, 10));
+    }
+
+    @Test
+    public void removedMessagesLeaveTheTimeline()
+    {
+        TimelineIndex index = new TimelineIndex();
+        for(int id = 1; id <= 20; id++){
+            index.add(1, id * 10L, id);
+        }
+
+        index.remove(1, 100, 10);
+        index.remove(1, 100, 11);   // wrong time, so nothing is removed
+
+        assertArrayEquals(new int[]{ 12, 11, 9 }, index.range(1, 90, 130, 10));
+    }
+}
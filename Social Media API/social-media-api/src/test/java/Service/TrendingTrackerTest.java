@@ -0,0 +1,49 @@
+package Service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import Model.TrendingTag;
+
+/**
+ * Unit tests for TrendingTracker.
+ */
+public class TrendingTrackerTest
+{
+    @Test
+    public void extractsHashtagsAndMentions()
+    {
+        assertEquals(List.of("#java", "@bob", "#a_b"),
+            TrendingTracker.extractTags("Hello #Java @bob! mail me at x@y.com #a_b # @"));
+    }
+
+    @Test
+    public void countsSlideOutOfTheWindow()
+    {
+        AtomicLong now = new AtomicLong(0);
+        TrendingTracker tracker = new TrendingTracker(60, 60_000, 4, 256, 16, 100, now::get);
+
+        for(int i = 0; i < 5; i++){
+            tracker.record("#old");
+        }
+        now.set(10 * 60_000);
+        for(int i = 0; i < 3; i++){
+            tracker.record("#new #new @you");
+        }
+
+        List<TrendingTag> lastFiveMinutes = tracker.top(5 * 60_000, 10);
+        assertEquals(2, lastFiveMinutes.size());
+        assertEquals("#new", lastFiveMinutes.get(0).getTag());
+        assertEquals(6, lastFiveMinutes.get(0).getCount());
+        assertEquals(3, lastFiveMinutes.get(1).getCount());
+
+        List<TrendingTag> lastHour = tracker.top(60 * 60_000, 1);
+        assertEquals(1, lastHour.size());
+        assertEquals("#new", lastHour.get(0).getTag());
+        assertEquals(5, tracker.top(60 * 60_000, 10).get(1).getCount());
+    }
+}
@@ -0,0 +1,46 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for AcceptEncoding and the per-coding ETags.
+ */
+public class AcceptEncodingTest
+{
+    @Test
+    public void qValueOfZeroRefusesCoding()
+    {
+        assertTrue(AcceptEncoding.accepts("gzip, deflate, br", "gzip"));
+        assertTrue(AcceptEncoding.accepts("br;q=1.0, GZIP;q=0.5", "gzip"));
+        assertTrue(AcceptEncoding.accepts("x-gzip", "gzip"));
+        assertFalse(AcceptEncoding.accepts("gzip;q=0", "gzip"));
+        assertFalse(AcceptEncoding.accepts("gzip; q=0.000", "gzip"));
+        assertFalse(AcceptEncoding.accepts("identity", "gzip"));
+        assertFalse(AcceptEncoding.accepts(null, "gzip"));
+    }
+
+    @Test
+    public void namedCodingOverridesWildcard()
+    {
+        assertTrue(AcceptEncoding.accepts("*", "gzip"));
+        assertFalse(AcceptEncoding.accepts("*;q=0", "gzip"));
+        assertFalse(AcceptEncoding.accepts("*, gzip;q=0", "gzip"));
+        assertTrue(AcceptEncoding.accepts("*;q=0, gzip", "gzip"));
+
+        // A q-value that is not a number is ignored rather than read as 1
+        assertFalse(AcceptEncoding.accepts("gzip;q=high", "gzip"));
+    }
+
+    @Test
+    public void codingGetsItsOwnETag()
+    {
+        String etag = ETags.quote("a1.7");
+
+        assertEquals("\"a1.7-gzip\"", ETags.forContentCoding(etag, "gzip"));
+        assertFalse(ETags.matches(etag, ETags.forContentCoding(etag, "gzip")));
+    }
+}
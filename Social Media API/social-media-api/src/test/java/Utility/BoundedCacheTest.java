@@ -0,0 +1,119 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for BoundedCache.
+ */
+public class BoundedCacheTest
+{
+    @Test
+    public void loadsOnceThenServesFromCache()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("v1", cache.get(1, k -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", cache.get(1, k -> "v" + loads.incrementAndGet()));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void getAllLoadsOnlyMissingKeysInOneCall()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 0);
+        cache.put(1, "cached");
+        AtomicInteger loads = new AtomicInteger();
+
+        Map<Integer, String> values = cache.getAll(Arrays.asList(1, 2, 3), missing -> {
+            loads.incrementAndGet();
+            assertEquals(Arrays.asList(2, 3), missing);
+
+            // Key 3 has no value, so it is left out
+            Map<Integer, String> loaded = new HashMap<>();
+            loaded.put(2, "loaded");
+            return loaded;
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals(2, values.size());
+        assertEquals("cached", values.get(1));
+        assertEquals("loaded", cache.get(2, k -> "reloaded"));
+    }
+
+    @Test
+    public void invalidateForcesReload()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 0);
+        cache.put(1, "old");
+        cache.invalidate(1);
+
+        assertEquals("new", cache.get(1, k -> "new"));
+    }
+
+    @Test
+    public void getIfPresentNeverLoads()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 0);
+
+        assertNull(cache.getIfPresent(1));
+        assertEquals(0, cache.size());
+
+        cache.put(1, "v1");
+        assertEquals("v1", cache.getIfPresent(1));
+        cache.invalidate(1);
+        assertNull(cache.getIfPresent(1));
+
+        // Misses are left for the get() that falls back to loading
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void loadRacingWithInvalidateIsNotCached()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(100, 0);
+
+        // The loader reads a row, then an update invalidates the key before the load is stored
+        assertEquals("stale", cache.get(1, k -> {
+            cache.invalidate(1);
+            return "stale";
+        }));
+
+        assertEquals("fresh", cache.get(1, k -> "fresh"));
+    }
+
+    @Test
+    public void evictsWhenFull()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(16, 0);
+
+        for(int i = 0; i < 1_000; i++){
+            cache.put(i, "v" + i);
+        }
+
+        assertTrue(cache.size() <= 16);
+        assertEquals(1_000 - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    public void nullValuesAreNotCached()
+    {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(16, 0);
+
+        assertNull(cache.get(1, k -> null));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,137 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for ConnectionPool.
+ */
+public class ConnectionPoolTest
+{
+    private File dbFile;
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dbFile = File.createTempFile("pool-test", ".db");
+        pool = ConnectionPool.builder("jdbc:sqlite:" + dbFile.getAbsolutePath())
+            .minSize(1)
+            .maxSize(2)
+            .connectionTimeoutMs(200)
+            .pragma("journal_mode = WAL")
+            .pragma("busy_timeout = 1234")
+            .build();
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void appliesPragmasToNewConnections() throws SQLException
+    {
+        try(Connection connection = pool.getConnection();
+            Statement st = connection.createStatement();
+            ResultSet rs = st.executeQuery("PRAGMA busy_timeout")){
+            assertTrue(rs.next());
+            assertEquals(1234, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void closeReturnsConnectionToPool() throws SQLException
+    {
+        Connection first = pool.getConnection();
+        assertEquals(1, pool.getActiveCount());
+        first.close();
+
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(first.isClosed());
+
+        try(Connection second = pool.getConnection()){
+            assertNotSame(first, second);
+            assertEquals(1, pool.getTotalCount());
+        }
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws SQLException
+    {
+        try(Connection a = pool.getConnection(); Connection b = pool.getConnection()){
+            pool.getConnection();
+            fail("Expected the third borrow to time out");
+        }
+        catch(SQLTransientConnectionException e){
+            assertEquals(1, pool.getTimeoutCount());
+        }
+
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    public void closedStatementsAreReusedFromTheCache() throws SQLException
+    {
+        try(Connection connection = pool.getConnection()){
+            for(int i = 0; i < 3; i++){
+                try(PreparedStatement ps = connection.prepareStatement("SELECT ?")){
+                    ps.setInt(1, i);
+                    try(ResultSet rs = ps.executeQuery()){
+                        assertTrue(rs.next());
+                        assertEquals(i, rs.getInt(1));
+                    }
+                }
+            }
+        }
+
+        assertEquals(1, pool.getStatementCacheMissCount());
+        assertEquals(2, pool.getStatementCacheHitCount());
+    }
+
+    @Test
+    public void borrowIsRejectedWhenTooManyCallersAreWaiting() throws SQLException
+    {
+        ConnectionPool gated = ConnectionPool.builder("jdbc:sqlite:" + dbFile.getAbsolutePath())
+            .minSize(0)
+            .maxSize(1)
+            .maxWaiting(0)
+            .build();
+
+        try{
+            try(Connection held = gated.getConnection()){
+                gated.getConnection();
+                fail("Expected the second borrow to be rejected");
+            }
+            catch(OverloadedException e){
+                assertEquals(1, gated.getRejectedCount());
+                assertEquals(0, gated.getTimeoutCount());
+            }
+
+            // The slot is free again once the connection is returned
+            try(Connection again = gated.getConnection()){
+                assertEquals(1, gated.getActiveCount());
+            }
+        }
+        finally{
+            gated.close();
+        }
+    }
+}
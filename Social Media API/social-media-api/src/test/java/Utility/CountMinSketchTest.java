@@ -0,0 +1,51 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for CountMinSketch.
+ */
+public class CountMinSketchTest
+{
+    @Test
+    public void collidingHashCodesKeepSeparateCounts()
+    {
+        // "Aa" and "BB" have the same String.hashCode()
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+
+        CountMinSketch sketch = new CountMinSketch(4, 256, 42);
+        for(int i = 0; i < 100; i++){
+            sketch.add("Aa");
+        }
+
+        assertEquals(100, sketch.estimate("Aa"));
+        assertEquals(0, sketch.estimate("BB"));
+    }
+
+    @Test
+    public void mergeAddsCountsOfSketchesWithTheSameSeed()
+    {
+        CountMinSketch first = new CountMinSketch(4, 256, 7);
+        CountMinSketch second = new CountMinSketch(4, 256, 7);
+        for(int i = 0; i < 3; i++){
+            first.add("#java");
+        }
+        second.add("#java");
+        second.add("#tea");
+
+        first.merge(second);
+        assertEquals(4, first.estimate("#java"));
+        assertEquals(1, first.estimate("#tea"));
+        assertEquals(1, second.estimate("#java"));
+
+        try{
+            first.merge(new CountMinSketch(4, 256, 8));
+            throw new AssertionError("merge should fail");
+        }
+        catch(IllegalArgumentException e){
+            // Counters of differently seeded sketches track different keys
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for IntIndexMap.
+ */
+public class IntIndexMapTest
+{
+    @Test
+    public void missingKeysReturnNoValue()
+    {
+        IntIndexMap map = new IntIndexMap(4);
+        map.put(7, 70);
+
+        assertEquals(70, map.get(7));
+        assertEquals(IntIndexMap.NO_VALUE, map.get(8));
+        assertEquals(IntIndexMap.NO_VALUE, map.remove(8));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomPutsAndRemoves()
+    {
+        IntIndexMap map = new IntIndexMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for(int i = 0; i < 100_000; i++){
+            int key = random.nextInt(2_000) - 1_000;
+            if(random.nextInt(3) == 0){
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? IntIndexMap.NO_VALUE : old, map.remove(key));
+            }
+            else{
+                Integer old = expected.put(key, i);
+                assertEquals(old == null ? IntIndexMap.NO_VALUE : old, map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for(int key = -1_000; key < 1_000; key++){
+            Integer value = expected.get(key);
+            assertEquals(value == null ? IntIndexMap.NO_VALUE : value, map.get(key));
+        }
+    }
+}
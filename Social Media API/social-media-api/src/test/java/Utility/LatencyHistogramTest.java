@@ -0,0 +1,48 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest
+{
+    @Test
+    public void percentilesAreWithinOneSubBucket()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int micros = 1; micros <= 10_000; micros++){
+            histogram.record(micros * 1_000L);
+        }
+
+        assertEquals(10_000, histogram.getCount());
+        assertNear(5_000_000, histogram.getPercentileNanos(0.50));
+        assertNear(9_900_000, histogram.getPercentileNanos(0.99));
+        assertNear(10_000_000, histogram.getPercentileNanos(1.0));
+        assertEquals(0, new LatencyHistogram().getPercentileNanos(0.99));
+    }
+
+    @Test
+    public void powerOfTwoCountsAreExact()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(7_999);        // 7us
+        histogram.record(8_000);        // 8us
+        histogram.record(1_023_000);    // 1023us
+        histogram.record(1_024_000);    // 1024us
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, histogram.getCountBelowPowerOfTwo(3));
+        assertEquals(3, histogram.getCountBelowPowerOfTwo(10));
+        assertEquals(4, histogram.getCountBelowPowerOfTwo(11));
+        assertEquals(5, histogram.getCountBelowPowerOfTwo(64));
+    }
+
+    private void assertNear(long expected, long actual)
+    {
+        assertTrue(actual + " is not within 12.5% of " + expected, Math.abs(actual - expected) <= expected / 8);
+    }
+}
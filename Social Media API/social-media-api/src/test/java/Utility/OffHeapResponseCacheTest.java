@@ -0,0 +1,89 @@
+package Utility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for OffHeapResponseCache.
+ */
+public class OffHeapResponseCacheTest
+{
+    @Test
+    public void servesBodyOnlyForItsETag() throws IOException
+    {
+        OffHeapResponseCache cache = new OffHeapResponseCache(1024, 16, 1024);
+        byte[] bytes = new byte[40];
+        for(int i = 0; i < bytes.length; i++){
+            bytes[i] = (byte) i;
+        }
+        assertTrue(cache.put(1, "all", "\"v1\"", bytes, null, "cursor"));
+
+        OffHeapResponseCache.Body body = cache.acquire(1, "all", "\"v1\"");
+        assertNotNull(body);
+        assertEquals("cursor", body.getNextCursor());
+        assertArrayEquals(bytes, read(cache, body));
+        cache.release(body);
+
+        // A newer ETag means the body is stale; it is dropped and its blocks freed
+        assertNull(cache.acquire(1, "all", "\"v2\""));
+        assertNull(cache.acquire(1, "all", "\"v1\""));
+        assertEquals(0, cache.getUsedBytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAccount()
+    {
+        OffHeapResponseCache cache = new OffHeapResponseCache(64, 16, 64);
+        assertTrue(cache.put(1, "all", "a", new byte[32], null, null));
+        assertTrue(cache.put(2, "all", "b", new byte[32], null, null));
+        cache.release(cache.acquire(1, "all", "a"));
+
+        // Account 2 was used least recently, so it makes room for account 3
+        assertTrue(cache.put(3, "all", "c", new byte[32], null, null));
+        assertNotNull(cache.acquire(1, "all", "a"));
+        assertNull(cache.acquire(2, "all", "b"));
+        assertEquals(1, cache.getEvictionCount());
+
+        // Too big for the whole cache
+        assertFalse(cache.put(4, "all", "d", new byte[65], null, null));
+    }
+
+    @Test
+    public void heldBodySurvivesInvalidation() throws IOException
+    {
+        OffHeapResponseCache cache = new OffHeapResponseCache(32, 16, 32);
+        byte[] bytes = "0123456789abcdefXYZ".getBytes();
+        cache.put(1, "all", "a", bytes, null, null);
+
+        OffHeapResponseCache.Body body = cache.acquire(1, "all", "a");
+        cache.invalidate(1);
+
+        // Its blocks are still taken, so nothing can overwrite them mid-write
+        assertFalse(cache.put(2, "all", "b", new byte[17], null, null));
+        assertArrayEquals(bytes, read(cache, body));
+
+        cache.release(body);
+        assertEquals(0, cache.getUsedBytes());
+        assertTrue(cache.put(2, "all", "b", new byte[17], null, null));
+    }
+
+    private static byte[] read(OffHeapResponseCache cache, OffHeapResponseCache.Body body) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeTo(body, buffer -> {
+            byte[] chunk = new byte[buffer.remaining()];
+            buffer.get(chunk);
+            out.write(chunk);
+        });
+        return out.toByteArray();
+    }
+}
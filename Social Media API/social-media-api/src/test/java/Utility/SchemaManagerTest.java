@@ -0,0 +1,98 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for SchemaManager, migrating databases laid out like the original schema.
+ */
+public class SchemaManagerTest
+{
+    private File dbFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dbFile = File.createTempFile("schema-test", ".db");
+        System.setProperty("db.path", dbFile.getAbsolutePath());
+        ConnectionUtil.shutdown();
+
+        // The tables as they were before SchemaManager existed: no indexes, usernames kept unique only by the service
+        try(Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+            Statement st = connection.createStatement()){
+            st.execute("CREATE TABLE accounts (accountId INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "username VARCHAR(255) NOT NULL, password VARCHAR(255) NOT NULL)");
+            st.execute("CREATE TABLE messages (messageId INTEGER PRIMARY KEY AUTOINCREMENT, postedBy INTEGER NOT NULL, "
+                + "messageText VARCHAR(255) NOT NULL, timePostedEpoch BIGINT NOT NULL)");
+            st.execute("INSERT INTO accounts (username, password) VALUES ('alice', 'pw1'), ('bob', 'pw2'), ('alice', 'pw3')");
+            st.execute("INSERT INTO messages (postedBy, messageText, timePostedEpoch) VALUES (1, 'hello search', 1), (3, 'second', 2)");
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        ConnectionUtil.shutdown();
+        System.clearProperty("db.path");
+        System.clearProperty("db.migrate.renameDuplicateUsernames");
+        for(String suffix : new String[]{ "", "-wal", "-shm" }){
+            new File(dbFile.getAbsolutePath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void duplicateUsernamesFailWithTheirNames() throws SQLException
+    {
+        try{
+            SchemaManager.migrate();
+            throw new AssertionError("migration should fail");
+        }
+        catch(SQLException e){
+            assertTrue(e.getMessage(), e.getMessage().contains("Schema migration 2 failed"));
+            assertTrue(e.getMessage(), e.getMessage().contains("'alice' (2 accounts)"));
+            assertTrue(e.getMessage(), e.getMessage().contains("db.migrate.renameDuplicateUsernames"));
+        }
+
+        // Migration 1 stays applied, migration 2 is rolled back whole
+        assertEquals(1, queryInt("PRAGMA user_version"));
+        assertEquals(0, queryInt("SELECT COUNT(*) FROM sqlite_master WHERE name = 'idx_accounts_username'"));
+    }
+
+    @Test
+    public void renamedDuplicatesLetEveryMigrationRun() throws SQLException
+    {
+        System.setProperty("db.migrate.renameDuplicateUsernames", "true");
+
+        assertEquals(SchemaManager.latestVersion(), SchemaManager.migrate());
+        assertEquals(SchemaManager.latestVersion(), SchemaManager.migrate());
+
+        // The oldest account keeps the name
+        assertEquals(1, queryInt("SELECT accountId FROM accounts WHERE username = 'alice'"));
+        assertEquals(3, queryInt("SELECT accountId FROM accounts WHERE username = 'alice#3'"));
+
+        // Rows stored before the migrations are searchable, versioned and have list versions
+        assertEquals(1, queryInt("SELECT rowid FROM messages_fts WHERE messages_fts MATCH 'search'"));
+        assertEquals(2, queryInt("SELECT COUNT(*) FROM messages WHERE version = 1"));
+        assertEquals(2, queryInt("SELECT COUNT(*) FROM message_list_versions"));
+    }
+
+    private int queryInt(String sql) throws SQLException
+    {
+        try(Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+            Statement st = connection.createStatement();
+            ResultSet rs = st.executeQuery(sql)){
+            return rs.next() ? rs.getInt(1) : -1;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for SingleFlight.
+ */
+public class SingleFlightTest
+{
+    @Test
+    public void concurrentCallersShareOneQuery()
+    {
+        SingleFlight<Integer, String> flights = new SingleFlight<>();
+        CompletableFuture<String> query = new CompletableFuture<>();
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<String> first = flights.executeAsync(1, () -> { runs.incrementAndGet(); return query; });
+        CompletableFuture<String> second = flights.executeAsync(1, () -> { runs.incrementAndGet(); return query; });
+        assertSame(first, second);
+        assertEquals(1, runs.get());
+        assertEquals(1, flights.getSharedCount());
+
+        // Once it completes, the next caller runs a query of its own
+        query.complete("row");
+        assertEquals("row", second.join());
+        assertEquals(0, flights.getInFlightCount());
+        flights.executeAsync(1, () -> { runs.incrementAndGet(); return new CompletableFuture<>(); });
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    public void forgottenQueryIsNotJoined()
+    {
+        SingleFlight<Integer, String> flights = new SingleFlight<>();
+        CompletableFuture<String> before = flights.executeAsync(1, CompletableFuture::new);
+
+        // A write happened; later callers must not get rows read before it
+        flights.forget(1);
+        CompletableFuture<String> after = flights.executeAsync(1, CompletableFuture::new);
+        assertNotSame(before, after);
+        assertEquals(2, flights.getLeaderCount());
+    }
+
+    @Test
+    public void failureReachesEveryCaller()
+    {
+        SingleFlight<Integer, String> flights = new SingleFlight<>();
+        CompletableFuture<String> query = new CompletableFuture<>();
+
+        CompletableFuture<String> first = flights.executeAsync(1, () -> query);
+        CompletableFuture<String> second = flights.executeAsync(1, () -> query);
+        query.completeExceptionally(new IllegalStateException("db down"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    @Test
+    public void joinedCallersContinueInParallelOnTheirExecutor() throws Exception
+    {
+        SingleFlight<Integer, String> flights = new SingleFlight<>();
+        CompletableFuture<String> query = new CompletableFuture<>();
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        CountDownLatch bothWriting = new CountDownLatch(2);
+
+        try{
+            // Each writer waits for the other, so they only finish if neither runs behind the other
+            CompletableFuture<Boolean> first = flights.executeAsync(1, () -> query).thenApplyAsync(row -> await(bothWriting), writers);
+            CompletableFuture<Boolean> second = flights.executeAsync(1, () -> query).thenApplyAsync(row -> await(bothWriting), writers);
+
+            // The thread finishing the query only hands the result over
+            query.complete("row");
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertTrue(second.get(5, TimeUnit.SECONDS));
+        }
+        finally{
+            writers.shutdownNow();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch)
+    {
+        latch.countDown();
+        try{
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for SqlWriter.
+ */
+public class SqlWriterTest
+{
+    private File dbFile;
+    private SqlWriter writer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dbFile = File.createTempFile("writer-test", ".db");
+        ConnectionPool connection = ConnectionPool.builder("jdbc:sqlite:" + dbFile.getAbsolutePath())
+            .minSize(1)
+            .maxSize(1)
+            .pragma("journal_mode = WAL")
+            .build();
+        writer = new SqlWriter(connection, 16);
+    }
+
+    @After
+    public void tearDown()
+    {
+        writer.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void writesRunOnTheWriterThread() throws SQLException
+    {
+        Thread caller = Thread.currentThread();
+        Thread ran = writer.execute(connection -> Thread.currentThread());
+
+        assertNotSame(caller, ran);
+        assertEquals("sqlite-writer", ran.getName());
+        assertEquals(1, writer.getTaskCount());
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    @Test
+    public void nestedWritesShareTheWriteConnection() throws SQLException
+    {
+        int rows = writer.execute(outer -> {
+            try(Statement st = outer.createStatement()){
+                st.execute("CREATE TABLE t (x INTEGER)");
+            }
+
+            // Would wait forever for the single connection if it were borrowed again
+            return writer.execute(inner -> {
+                assertSame(outer, inner);
+                try(Statement st = inner.createStatement()){
+                    return st.executeUpdate("INSERT INTO t VALUES (1)");
+                }
+            });
+        });
+
+        assertEquals(1, rows);
+    }
+}
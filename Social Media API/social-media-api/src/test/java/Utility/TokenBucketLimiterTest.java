@@ -0,0 +1,69 @@
+package Utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for TokenBucketLimiter and RateLimitRules.
+ */
+public class TokenBucketLimiterTest
+{
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void allowsBurstThenRefillsAtRate()
+    {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 3, 100);
+        long now = 0;
+
+        for(int i = 0; i < 3; i++){
+            assertEquals(0, limiter.tryAcquire("a", 1, now));
+        }
+
+        // Empty; one token comes back every half second
+        assertEquals(SECOND / 2, limiter.tryAcquire("a", 1, now));
+        assertEquals(0, limiter.tryAcquire("a", 1, now + SECOND / 2));
+
+        // Other keys have their own bucket
+        assertEquals(0, limiter.tryAcquire("b", 1, now));
+    }
+
+    @Test
+    public void refusedRequestTakesNoTokens()
+    {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(1, 2, 100);
+
+        // Asking for more than is left takes nothing, so a smaller request still fits
+        assertEquals(0, limiter.tryAcquire("a", 1, 0));
+        assertTrue(limiter.tryAcquire("a", 2, 0) > 0);
+        assertEquals(0, limiter.tryAcquire("a", 1, 0));
+        assertEquals(1, limiter.getLimitedCount());
+    }
+
+    @Test
+    public void rulesMatchRouteAndReadAccountId()
+    {
+        RateLimitRules rules = RateLimitRules.parse("POST /messages account=1/1; PATCH /accounts/{accountId} account=1/1 ip=5/5", 100);
+
+        assertNotNull(rules.match("POST", "/messages"));
+        assertNull(rules.match("GET", "/messages"));
+        assertNull(rules.match("POST", "/messages/batch"));
+
+        RateLimitRules.Rule rule = rules.match("PATCH", "/accounts/7");
+        assertEquals("7", rule.accountIdFrom("/accounts/7"));
+
+        rule.checkAccount("7", 1);
+        try{
+            rule.checkAccount("7", 1);
+        }
+        catch(RateLimitedException e){
+            assertEquals(1, e.getRetryAfterSeconds());
+            return;
+        }
+        throw new AssertionError("second request should be rate limited");
+    }
+}